@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.classmethod.aws.dynamodb.DynamoDbObjectMapper;
+import jp.classmethod.aws.dynamodb.Magazine;
+import jp.classmethod.aws.dynamodb.MagazineDynamoDbCodec;
+
+/**
+ * Measures the conversion of entities to DynamoDB items and back, the way the repository converts them: through
+ * JSON with the object mapper, and with a generated codec. A small entity and an order with nested line items stand
+ * in for the entity shapes of our tables. The JSON conversion is also measured without the items, to tell the time
+ * spent in the serializers of Jackson from the time spent converting JSON to and from items.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec
+ * </pre>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EntityConversionBenchmark {
+
+	/**
+	 * An order with a dozen scalar properties and nested line items
+	 */
+	public static class Order {
+		@JsonProperty("order_id")
+		public String orderId;
+
+		@JsonProperty("customer_id")
+		public String customerId;
+
+		@JsonProperty("status")
+		public String status;
+
+		@JsonProperty("currency")
+		public String currency;
+
+		@JsonProperty("total")
+		public BigDecimal total;
+
+		@JsonProperty("created_at")
+		public long createdAt;
+
+		@JsonProperty("updated_at")
+		public long updatedAt;
+
+		@JsonProperty("gift")
+		public boolean gift;
+
+		@JsonProperty("version")
+		public Long version;
+
+		@JsonProperty("shipping_address")
+		public Map<String, String> shippingAddress;
+
+		@JsonProperty("line_items")
+		public List<LineItem> lineItems;
+	}
+
+	/**
+	 * A line item of an order
+	 */
+	public static class LineItem {
+		@JsonProperty("sku")
+		public String sku;
+
+		@JsonProperty("quantity")
+		public int quantity;
+
+		@JsonProperty("unit_price")
+		public BigDecimal unitPrice;
+	}
+
+	private final ObjectMapper objectMapper = new DynamoDbObjectMapper();
+
+	private final MagazineDynamoDbCodec magazineCodec = new MagazineDynamoDbCodec();
+
+	private Magazine magazine;
+
+	private Item magazineItem;
+
+	private String magazineJson;
+
+	private Map<String, AttributeValue> magazineAttributes;
+
+	private Order order;
+
+	private Item orderItem;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		magazine = new Magazine("Monthly Gardening");
+		magazineJson = objectMapper.writeValueAsString(magazine);
+		magazineItem = Item.fromJSON(magazineJson);
+		magazineAttributes = magazineCodec.encode(magazine);
+		order = newOrder();
+		orderItem = Item.fromJSON(objectMapper.writeValueAsString(order));
+	}
+
+	private static Order newOrder() {
+		final Order order = new Order();
+		order.orderId = "5f0c7a7e-2f0e-4c1b-9a57-0d6b1c7f3a01";
+		order.customerId = "c5a1f0e2-8d3b-4b7e-a1c9-6e2f4d8b0a17";
+		order.status = "SHIPPED";
+		order.currency = "JPY";
+		order.total = new BigDecimal("12800");
+		order.createdAt = 1_500_000_000_000L;
+		order.updatedAt = 1_500_000_360_000L;
+		order.version = 3L;
+		order.shippingAddress = new LinkedHashMap<>();
+		order.shippingAddress.put("postal_code", "101-0021");
+		order.shippingAddress.put("prefecture", "Tokyo");
+		order.shippingAddress.put("city", "Chiyoda");
+		order.shippingAddress.put("street", "Sotokanda 1-1-1");
+		order.lineItems = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			final LineItem lineItem = new LineItem();
+			lineItem.sku = "SKU-" + i;
+			lineItem.quantity = i + 1;
+			lineItem.unitPrice = new BigDecimal("1280");
+			order.lineItems.add(lineItem);
+		}
+		return order;
+	}
+
+	@Benchmark
+	public Item writeMagazine() throws IOException {
+		return Item.fromJSON(objectMapper.writeValueAsString(magazine));
+	}
+
+	@Benchmark
+	public Magazine readMagazine() throws IOException {
+		return objectMapper.readValue(magazineItem.toJSON(), Magazine.class);
+	}
+
+	@Benchmark
+	public String serializeMagazine() throws IOException {
+		return objectMapper.writeValueAsString(magazine);
+	}
+
+	@Benchmark
+	public Magazine deserializeMagazine() throws IOException {
+		return objectMapper.readValue(magazineJson, Magazine.class);
+	}
+
+	@Benchmark
+	public Item writeOrder() throws IOException {
+		return Item.fromJSON(objectMapper.writeValueAsString(order));
+	}
+
+	@Benchmark
+	public Order readOrder() throws IOException {
+		return objectMapper.readValue(orderItem.toJSON(), Order.class);
+	}
+
+	@Benchmark
+	public Map<String, AttributeValue> writeMagazineWithCodec() {
+		return magazineCodec.encode(magazine);
+	}
+
+	@Benchmark
+	public Magazine readMagazineWithCodec() {
+		return magazineCodec.decode(magazineAttributes);
+	}
+}
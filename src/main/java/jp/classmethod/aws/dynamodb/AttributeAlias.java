@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a top level property of an entity under a shorter attribute name. DynamoDB counts attribute names in the
+ * size of every item, so short stored names reduce the capacity consumed by reads and writes. The JSON of the
+ * entity, used by exports and imports, keeps the property name.
+ *
+ * <pre>
+ * &#64;AttributeAlias("d")
+ * &#64;JsonProperty("description")
+ * private String description;
+ * </pre>
+ *
+ * <p>Key, GSI key and version attribute names given to the repository, as well as filters, condition expressions
+ * and JSON patches, use the stored name.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @see DynamoDbRepository#setAttributeAliases(java.util.Map)
+ * @since #version#
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+public @interface AttributeAlias {
+
+	/**
+	 * @return the name of the attribute that stores the property
+	 */
+	String value();
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Configures the compression of the attributes of a repository. Selected top level attributes are written as binary
+ * attributes holding their compressed JSON, and decompressed back into JSON subtrees when read.
+ *
+ * <p>A compressed value starts with a four byte header, {@code 00 44 5A} followed by the id of the algorithm, so
+ * items written before compression was enabled, and attributes that were not worth compressing, read unchanged.
+ * An attribute is only stored compressed if that makes it smaller. Only the attributes the compression selects are
+ * decompressed when read, so other binary attributes that happen to start with the header read unchanged.</p>
+ *
+ * <p>Compressed attributes are opaque to DynamoDB: they can not be used in key conditions, filters, condition
+ * expressions or JSON patches that address their contents.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+public class AttributeCompression {
+
+	/**
+	 * Compression algorithms of the {@code java.util.zip} package.
+	 */
+	@RequiredArgsConstructor
+	public enum Algorithm {
+
+		/**gzip, a deflate stream with a header and a CRC-32 trailer**/
+		GZIP((byte) 1),
+
+		/**zlib deflate, which has a smaller header and trailer than gzip**/
+		DEFLATE((byte) 2);
+
+		/**id of the algorithm in the header of compressed values**/
+		private final byte id;
+
+		OutputStream compressing(OutputStream out) throws IOException {
+			return this == GZIP ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+		}
+
+		InputStream decompressing(InputStream in) throws IOException {
+			return this == GZIP ? new GZIPInputStream(in) : new InflaterInputStream(in);
+		}
+
+		static Algorithm of(byte id) {
+			for (Algorithm algorithm : values()) {
+				if (algorithm.id == id) {
+					return algorithm;
+				}
+			}
+			throw new IllegalArgumentException("unknown compression algorithm id " + id);
+		}
+	}
+
+	/**first bytes of every compressed value, followed by the algorithm id**/
+	private static final byte[] MAGIC = {0x00, 0x44 /*D*/, 0x5A /*Z*/};
+
+	private static final int HEADER_BYTES = MAGIC.length + 1;
+
+
+	/**
+	 * @param attributeNames the names of the attributes to compress
+	 * @return a policy that gzips the given attributes whenever that makes them smaller
+	 */
+	public static AttributeCompression forAttributes(String... attributeNames) {
+		Preconditions.checkNotNull(attributeNames, "attributeNames must not be null");
+		Preconditions.checkArgument(attributeNames.length > 0, "attributeNames must not be empty");
+		return new AttributeCompression(Algorithm.GZIP, new LinkedHashSet<>(Arrays.asList(attributeNames)), 0);
+	}
+
+	/**
+	 * @param thresholdBytes the JSON size from which an attribute is compressed
+	 * @return a policy that gzips any attribute other than keys and the version whose JSON is at least the threshold
+	 */
+	public static AttributeCompression aboveThreshold(int thresholdBytes) {
+		return new AttributeCompression(Algorithm.GZIP, Collections.emptySet(), thresholdBytes);
+	}
+
+	/**algorithm of the values written**/
+	@Getter
+	private final Algorithm algorithm;
+
+	/**names of the attributes to compress. Empty to consider all attributes other than keys and the version**/
+	@Getter
+	private final Set<String> attributeNames;
+
+	/**the JSON size in bytes from which a selected attribute is compressed**/
+	@Getter
+	private final int thresholdBytes;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param algorithm the algorithm of the values written. Values written with any algorithm can be read
+	 * @param attributeNames the names of the attributes to compress, or an empty set to consider all attributes
+	 *                       other than the keys of the table and its GSIs and the version attribute
+	 * @param thresholdBytes the JSON size in bytes from which a selected attribute is compressed, 0 for all sizes
+	 * @since #version#
+	 */
+	public AttributeCompression(Algorithm algorithm, Set<String> attributeNames, int thresholdBytes) {
+		Preconditions.checkNotNull(algorithm, "algorithm must not be null");
+		Preconditions.checkNotNull(attributeNames, "attributeNames must not be null");
+		Preconditions.checkArgument(thresholdBytes >= 0, "thresholdBytes must not be negative");
+		this.algorithm = algorithm;
+		this.attributeNames = Collections.unmodifiableSet(new LinkedHashSet<>(attributeNames));
+		this.thresholdBytes = thresholdBytes;
+	}
+
+	/**
+	 * @param attributeName the name of an attribute that is not a key nor the version
+	 * @param jsonBytes the size of the JSON of the attribute
+	 * @return true if the attribute should be compressed
+	 */
+	boolean isSelected(String attributeName, int jsonBytes) {
+		return selects(attributeName) && jsonBytes >= thresholdBytes;
+	}
+
+	/**
+	 * @param attributeName the name of an attribute that is not a key nor the version
+	 * @return true if the attribute may have been written compressed, whatever its size
+	 */
+	boolean selects(String attributeName) {
+		return attributeNames.isEmpty() || attributeNames.contains(attributeName);
+	}
+
+	/**
+	 * @param json the UTF-8 JSON of an attribute
+	 * @return the header followed by the compressed JSON
+	 */
+	byte[] compress(byte[] json) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 2 + HEADER_BYTES);
+		bytes.write(MAGIC, 0, MAGIC.length);
+		bytes.write(algorithm.id);
+		try (OutputStream out = algorithm.compressing(bytes)) {
+			out.write(json);
+		} catch (IOException e) {
+			throw new IllegalStateException("unable to compress attribute", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param value the value of a binary attribute
+	 * @return true if the value starts with the header of a compressed value
+	 */
+	static boolean isCompressed(byte[] value) {
+		if (value == null || value.length < HEADER_BYTES) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (value[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param value a value written by {@link #compress(byte[])} with any algorithm
+	 * @return the UTF-8 JSON of the attribute
+	 * @throws IllegalArgumentException if the value is not compressed or is corrupt
+	 */
+	static byte[] decompress(byte[] value) {
+		Preconditions.checkArgument(isCompressed(value), "value is not compressed");
+		final Algorithm algorithm = Algorithm.of(value[MAGIC.length]);
+		final InputStream compressed =
+				new ByteArrayInputStream(value, HEADER_BYTES, value.length - HEADER_BYTES);
+		try (InputStream in = algorithm.decompressing(compressed)) {
+			return ByteStreams.toByteArray(in);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("unable to decompress attribute", e);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Collects keys requested by independent threads and loads them with one call per batch.
+ *
+ * <p>A batch is dispatched when it reaches {@code maxBatchSize} keys or when {@code windowMicros} have passed
+ * since its first key was enqueued, whichever comes first. Concurrent requests for a key that is already waiting
+ * or being loaded share the same future (single-flight).</p>
+ *
+ * @param <K> the key type. Must implement equals and hashCode
+ * @param <V> the loaded value type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class AutoBatcher<K, V> {
+
+	private final Function<List<K>, Map<K, V>> loader;
+
+	@Getter
+	private final long windowMicros;
+
+	@Getter
+	private final int maxBatchSize;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ExecutorService dispatcher;
+
+	/**keys that are either waiting in a batch or being loaded**/
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**guards pending**/
+	private final Object lock = new Object();
+
+	private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param name prefix of the names of the threads this batcher creates
+	 * @param loader loads a batch of keys. Keys absent from the returned map complete with null
+	 * @param windowMicros how long the first key of a batch waits for other keys to join it
+	 * @param maxBatchSize the number of keys that causes a batch to be dispatched immediately
+	 * @since #version#
+	 */
+	public AutoBatcher(String name, Function<List<K>, Map<K, V>> loader, long windowMicros, int maxBatchSize) {
+		Preconditions.checkNotNull(loader, "loader must not be null");
+		Preconditions.checkArgument(windowMicros >= 0, "windowMicros must not be negative");
+		Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+		this.loader = loader;
+		this.windowMicros = windowMicros;
+		this.maxBatchSize = maxBatchSize;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory(name + "-timer"));
+		this.dispatcher = Executors.newCachedThreadPool(daemonThreadFactory(name + "-dispatch"));
+	}
+
+	static ThreadFactory daemonThreadFactory(String name) {
+		final AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Requests the value for a key. The key joins the current batch unless it is already in flight.
+	 *
+	 * @param key the key to load
+	 * @return a future completed with the loaded value, null if absent, or exceptionally with the loader's exception
+	 */
+	public CompletableFuture<V> load(K key) {
+		Preconditions.checkNotNull(key, "key must not be null");
+		final CompletableFuture<V> fresh = new CompletableFuture<>();
+		final CompletableFuture<V> existing = inFlight.putIfAbsent(key, fresh);
+		if (existing != null) {
+			return existing;
+		}
+		Map<K, CompletableFuture<V>> full = null;
+		Map<K, CompletableFuture<V>> started = null;
+		synchronized (lock) {
+			pending.put(key, fresh);
+			if (pending.size() >= maxBatchSize) {
+				full = pending;
+				pending = new LinkedHashMap<>();
+			} else if (pending.size() == 1) {
+				started = pending;
+			}
+		}
+		if (full != null) {
+			dispatch(full);
+		} else if (started != null) {
+			final Map<K, CompletableFuture<V>> batch = started;
+			try {
+				scheduler.schedule(() -> flushIfPending(batch), windowMicros, TimeUnit.MICROSECONDS);
+			} catch (RejectedExecutionException e) {
+				//shut down, so the batch is dispatched now and fails with the rejection of the dispatcher
+				flushIfPending(batch);
+			}
+		}
+		return fresh;
+	}
+
+	private void flushIfPending(Map<K, CompletableFuture<V>> batch) {
+		synchronized (lock) {
+			if (pending != batch) {
+				//already dispatched because it filled up
+				return;
+			}
+			pending = new LinkedHashMap<>();
+		}
+		dispatch(batch);
+	}
+
+	private void dispatch(Map<K, CompletableFuture<V>> batch) {
+		try {
+			dispatcher.execute(() -> {
+				final List<K> keys = new ArrayList<>(batch.keySet());
+				Map<K, V> result = null;
+				Throwable failure = null;
+				try {
+					result = loader.apply(keys);
+				} catch (Throwable t) { //NOPMD - the futures must complete whatever the loader throws
+					failure = t;
+				} finally {
+					complete(batch, result, failure);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			complete(batch, null, e);
+		}
+	}
+
+	private void complete(Map<K, CompletableFuture<V>> batch, Map<K, V> result, Throwable failure) {
+		//stop sharing these futures before completing them so later callers see fresh data
+		batch.forEach(inFlight::remove);
+		for (Map.Entry<K, CompletableFuture<V>> entry : batch.entrySet()) {
+			if (failure != null) {
+				entry.getValue().completeExceptionally(failure);
+			} else {
+				entry.getValue().complete(result == null ? null : result.get(entry.getKey()));
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads of this batcher. Keys that are still waiting for their window fail with
+	 * {@link IllegalStateException}; batches that were already dispatched complete normally.
+	 */
+	public void shutdown() {
+		final Map<K, CompletableFuture<V>> abandoned;
+		synchronized (lock) {
+			abandoned = pending;
+			pending = new LinkedHashMap<>();
+		}
+		scheduler.shutdownNow();
+		dispatcher.shutdown();
+		abandoned.forEach((key, future) -> {
+			inFlight.remove(key, future);
+			future.completeExceptionally(new IllegalStateException("batcher was shut down"));
+		});
+	}
+}
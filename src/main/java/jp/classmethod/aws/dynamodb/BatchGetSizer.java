@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Chooses the number of keys per BatchGetItem request from the service limits (100 keys, 16 MB per response) and
+ * from the item sizes observed in previous responses.
+ *
+ * <p>The size limit packs as many keys as fit in {@value #TARGET_RESPONSE_BYTES} bytes of average-sized items.
+ * On top of it, a congestion limit is halved whenever a response comes back with unprocessed keys, and grows by
+ * one key per fully processed response.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class BatchGetSizer {
+
+	/**maximum number of keys in one BatchGetItem request**/
+	public static final int MAX_KEYS = 100;
+
+	/**maximum size of one BatchGetItem response**/
+	public static final long MAX_RESPONSE_BYTES = 16L * 1024 * 1024;
+
+	/**response size to aim for, leaving headroom for items larger than average**/
+	static final long TARGET_RESPONSE_BYTES = MAX_RESPONSE_BYTES * 3 / 4;
+
+	/**weight of the newest response in the average item size**/
+	private static final double ALPHA = 0.2;
+
+	/**average item size in bytes. Zero until the first item is observed**/
+	private volatile double averageItemBytes;
+
+	/**limit on the number of keys that adapts to unprocessed keys**/
+	private volatile int congestionLimit = MAX_KEYS;
+
+
+	/**
+	 * @return the number of keys to put in the next BatchGetItem request, between 1 and 100
+	 */
+	public int nextBatchSize() {
+		final double average = averageItemBytes;
+		final long sizeLimit = average <= 0 ? MAX_KEYS : (long) (TARGET_RESPONSE_BYTES / average);
+		return (int) Math.max(1L, Math.min(congestionLimit, Math.min(MAX_KEYS, sizeLimit)));
+	}
+
+	/**
+	 * @return the average size of the items observed so far, in bytes
+	 */
+	public double getAverageItemBytes() {
+		return averageItemBytes;
+	}
+
+	/**
+	 * Updates the estimates from a BatchGetItem response.
+	 *
+	 * @param items the items returned for the table
+	 * @param unprocessedKeys the number of keys for the table that the service did not process
+	 */
+	public synchronized void recordResponse(List<Map<String, AttributeValue>> items, int unprocessedKeys) {
+		if (items != null && false == items.isEmpty()) {
+			long bytes = 0;
+			for (Map<String, AttributeValue> item : items) {
+				bytes += ItemSizeCalculator.sizeOf(item);
+			}
+			final double observed = (double) bytes / items.size();
+			averageItemBytes = averageItemBytes <= 0 ? observed : ALPHA * observed + (1 - ALPHA) * averageItemBytes;
+		}
+		if (unprocessedKeys > 0) {
+			congestionLimit = Math.max(1, congestionLimit / 2);
+		} else if (congestionLimit < MAX_KEYS) {
+			congestionLimit++;
+		}
+	}
+}
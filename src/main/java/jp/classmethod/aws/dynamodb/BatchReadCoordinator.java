@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads entities of several {@link DynamoDbRepository repositories} with shared multi-table BatchGetItem requests.
+ *
+ * <pre>
+ * BatchReadCoordinator coordinator = new BatchReadCoordinator(amazonDynamoDB);
+ * BatchReadCoordinator.Handle&lt;Book&gt; books = coordinator.add(bookRepository, bookIds);
+ * BatchReadCoordinator.Handle&lt;Author&gt; authors = coordinator.add(authorRepository, authorIds);
+ * coordinator.execute();
+ * List&lt;Book&gt; found = books.get();
+ * </pre>
+ *
+ * <p>Keys of all tables are packed into requests of up to 100 keys. Unprocessed keys are resubmitted in the next
+ * round, after a backoff of the retry policy. Each handle converts its items with its own repository. A coordinator
+ * is not thread safe and executes once.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class BatchReadCoordinator {
+
+	private static final String OPERATION = "BatchReadCoordinator.execute";
+
+	private final AmazonDynamoDB dynamoDB;
+
+	private final RetryPolicy retryPolicy;
+
+	private final List<Handle<?>> handles = new ArrayList<>();
+
+	/**keys to read per table, deduplicated**/
+	private final Map<String, Set<Map<String, AttributeValue>>> keysByTable = new LinkedHashMap<>();
+
+	/**true if any handle of the table asked for strongly consistent reads**/
+	private final Map<String, Boolean> consistentByTable = new HashMap<>();
+
+	/**the repository of the first handle of each table, which records the table's reads**/
+	private final Map<String, DynamoDbRepository<?, ?>> repositoriesByTable = new LinkedHashMap<>();
+
+	/**items read per table, keyed by their primary key attributes**/
+	private final Map<String, Map<Map<String, AttributeValue>, Map<String, AttributeValue>>> itemsByTable =
+			new ConcurrentHashMap<>();
+
+	private boolean executed;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param dynamoDB the client that issues the BatchGetItem requests
+	 * @since #version#
+	 */
+	public BatchReadCoordinator(AmazonDynamoDB dynamoDB) {
+		this(dynamoDB, RetryPolicy.defaultBatchPolicy());
+	}
+
+	/**
+	 * Create instance.
+	 *
+	 * @param dynamoDB the client that issues the BatchGetItem requests
+	 * @param retryPolicy retries throttled and failed requests, and bounds the rounds that resubmit unprocessed keys
+	 * @since #version#
+	 */
+	public BatchReadCoordinator(AmazonDynamoDB dynamoDB, RetryPolicy retryPolicy) {
+		Preconditions.checkNotNull(dynamoDB, "dynamoDB must not be null");
+		Preconditions.checkNotNull(retryPolicy, "retryPolicy must not be null");
+		this.dynamoDB = dynamoDB;
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Adds keys to read from a repository with the repository's default read consistency.
+	 *
+	 * @param repository the repository whose table and conversion to use
+	 * @param keys the keys of the entities to read
+	 * @param <E> the entity type
+	 * @param <K> the key type
+	 * @return a handle to the entities, available after {@link #execute()}
+	 */
+	public <E, K extends Serializable> Handle<E> add(DynamoDbRepository<E, K> repository, Iterable<K> keys) {
+		Preconditions.checkNotNull(repository, "repository must not be null");
+		return add(repository, keys, repository.getReadConsistency());
+	}
+
+	/**
+	 * Adds keys to read from a repository.
+	 *
+	 * @param repository the repository whose table and conversion to use
+	 * @param keys the keys of the entities to read
+	 * @param consistency the consistency of the reads. If two handles of the same table ask for different
+	 *                    consistencies, the table is read with strong consistency
+	 * @param <E> the entity type
+	 * @param <K> the key type
+	 * @return a handle to the entities, available after {@link #execute()}
+	 */
+	public <E, K extends Serializable> Handle<E> add(DynamoDbRepository<E, K> repository, Iterable<K> keys,
+													 ReadConsistency consistency) {
+		Preconditions.checkNotNull(repository, "repository must not be null");
+		Preconditions.checkNotNull(keys, "keys must not be null");
+		Preconditions.checkNotNull(consistency, "consistency must not be null");
+		Preconditions.checkState(false == executed, "coordinator already executed");
+		final String tableName = repository.tableName();
+		final List<Map<String, AttributeValue>> keyMaps = new ArrayList<>();
+		for (K key : keys) {
+			keyMaps.add(repository.keyAttributes(key));
+		}
+		keysByTable.computeIfAbsent(tableName, ignored -> new LinkedHashSet<>()).addAll(keyMaps);
+		consistentByTable.merge(tableName, consistency.isConsistentRead(), Boolean::logicalOr);
+		repositoriesByTable.putIfAbsent(tableName, repository);
+		final Handle<E> handle = new Handle<>(repository, keyMaps);
+		handles.add(handle);
+		return handle;
+	}
+
+	/**
+	 * Reads all added keys. Requests are issued in parallel when there are more than 100 keys, on the segment
+	 * executor of the first handle's repository, or on a pool of their own.
+	 *
+	 * <p>A request passes the circuit breakers of all the tables it reads, and is hedged by the hedger of the first
+	 * handle's repository. Each repository samples its keys for hot key detection, and records the items read, the
+	 * unprocessed responses, the retry rounds and the latency of the execution in its metrics.</p>
+	 *
+	 * @throws DataAccessException translated by the repository of the first handle if a request fails
+	 * @throws CircuitOpenException if the circuit breaker of a table does not admit a request
+	 * @throws QueryTimeoutException if keys remain unprocessed when the retry policy is exhausted
+	 * @throws IllegalStateException if already executed
+	 */
+	public void execute() {
+		Preconditions.checkState(false == executed, "coordinator already executed");
+		executed = true;
+		if (handles.isEmpty()) {
+			return;
+		}
+		handles.forEach(handle -> handle.keys.forEach(handle.repository::sampleKey));
+		keysByTable.keySet().forEach(tableName -> itemsByTable.put(tableName, new ConcurrentHashMap<>()));
+		final long start = System.nanoTime();
+		final RetryPolicy.Backoff backoff = retryPolicy.start();
+		try {
+			List<Map<String, KeysAndAttributes>> requests = pack(keysByTable);
+			while (false == requests.isEmpty()) {
+				final List<Map<String, KeysAndAttributes>> round = requests;
+				requests = repack(handles.get(0).repository.runSegments("batch-read", round.size(),
+						request -> read(round.get(request))));
+				if (false == requests.isEmpty() && false == backoff.retry()) {
+					throw new QueryTimeoutException(String.format(Locale.ENGLISH,
+							"unable to batch get entity due to throttling: keys unprocessed after %d rounds",
+							backoff.getAttempts()));
+				}
+			}
+		} catch (RuntimeException e) {
+			recordExecution(e.getClass().getSimpleName(), System.nanoTime() - start, backoff);
+			throw e;
+		}
+		recordExecution(RepositoryMetrics.SUCCESS, System.nanoTime() - start, backoff);
+	}
+
+	/**
+	 * issues one request
+	 * @param requestItems the keys to read per table
+	 * @return the keys left unprocessed per table, empty if none
+	 */
+	private Map<String, KeysAndAttributes> read(Map<String, KeysAndAttributes> requestItems) {
+		final DynamoDbRepository<?, ?> first = handles.get(0).repository;
+		final ReturnConsumedCapacity recordedCapacity =
+				FlightRecorderEvents.isRecordingRoundTrips() ? ReturnConsumedCapacity.TOTAL : null;
+		Supplier<BatchGetItemResult> request = () -> FlightRecorderEvents.roundTrip(
+				String.join(",", requestItems.keySet()), null /*base tables*/, OPERATION,
+				() -> first.hedged(OPERATION, () -> dynamoDB.batchGetItem(new BatchGetItemRequest()
+						.withRequestItems(requestItems)
+						.withReturnConsumedCapacity(recordedCapacity))));
+		for (String tableName : requestItems.keySet()) {
+			final Supplier<BatchGetItemResult> inner = request;
+			request = () -> repositoriesByTable.get(tableName).admitted(ThrottlingCircuitBreaker.Priority.NORMAL,
+					inner);
+		}
+		final BatchGetItemResult result;
+		try {
+			result = retryPolicy.execute(request);
+		} catch (AmazonClientException e) {
+			throw first.convertDynamoDBException(e, "batch get", null /*no conditions for reads*/);
+		}
+		result.getResponses().forEach((tableName, items) -> {
+			final DynamoDbRepository<?, ?> repository = repositoriesByTable.get(tableName);
+			final List<String> keyNames = repository.keyAttributeNames();
+			items.forEach(item -> {
+				repository.recordRead(OPERATION, item);
+				itemsByTable.get(tableName).put(keyOf(item, keyNames), item);
+			});
+		});
+		if (result.getUnprocessedKeys() == null) {
+			return Collections.emptyMap();
+		}
+		result.getUnprocessedKeys().keySet().forEach(tableName -> repositoriesByTable.get(tableName)
+				.recordUnprocessed());
+		return result.getUnprocessedKeys();
+	}
+
+	private void recordExecution(String outcome, long nanos, RetryPolicy.Backoff backoff) {
+		repositoriesByTable.forEach((tableName, repository) -> {
+			repository.recordOperation(OPERATION, outcome, nanos, itemsByTable.get(tableName).size());
+			repository.recordRetries(OperationType.BATCH_GET, null /*base table*/, backoff);
+		});
+	}
+
+	private List<Map<String, KeysAndAttributes>> pack(Map<String, Set<Map<String, AttributeValue>>> keys) {
+		final List<Map<String, KeysAndAttributes>> requests = new ArrayList<>();
+		Map<String, KeysAndAttributes> current = new HashMap<>();
+		int size = 0;
+		for (Map.Entry<String, Set<Map<String, AttributeValue>>> entry : keys.entrySet()) {
+			final String tableName = entry.getKey();
+			for (Map<String, AttributeValue> key : entry.getValue()) {
+				if (size == BatchGetSizer.MAX_KEYS) {
+					requests.add(current);
+					current = new HashMap<>();
+					size = 0;
+				}
+				current.computeIfAbsent(tableName, ignored -> new KeysAndAttributes()
+						.withConsistentRead(consistentByTable.get(tableName))
+						.withKeys(new ArrayList<Map<String, AttributeValue>>()))
+						.getKeys().add(key);
+				size++;
+			}
+		}
+		if (size > 0) {
+			requests.add(current);
+		}
+		return requests;
+	}
+
+	private List<Map<String, KeysAndAttributes>> repack(List<Map<String, KeysAndAttributes>> unprocessed) {
+		final Map<String, Set<Map<String, AttributeValue>>> keys = new LinkedHashMap<>();
+		unprocessed.forEach(requestItems -> requestItems.forEach((tableName, keysAndAttributes) ->
+				keys.computeIfAbsent(tableName, ignored -> new LinkedHashSet<>()).addAll(keysAndAttributes.getKeys())));
+		return pack(keys);
+	}
+
+	private static Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item, List<String> keyNames) {
+		final Map<String, AttributeValue> key = new HashMap<>();
+		keyNames.forEach(name -> key.put(name, item.get(name)));
+		return key;
+	}
+
+	/**
+	 * The entities read for the keys added with one call to {@code add}.
+	 *
+	 * @param <E> the entity type
+	 */
+	public final class Handle<E> {
+
+		private final DynamoDbRepository<E, ?> repository;
+
+		private final List<Map<String, AttributeValue>> keys;
+
+		private Handle(DynamoDbRepository<E, ?> repository, List<Map<String, AttributeValue>> keys) {
+			this.repository = repository;
+			this.keys = keys;
+		}
+
+		/**
+		 * @return the entities that exist, in the order of their keys
+		 * @throws IllegalStateException if the coordinator has not executed yet
+		 */
+		public List<E> get() {
+			Preconditions.checkState(executed, "coordinator has not executed yet");
+			final Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items =
+					itemsByTable.getOrDefault(repository.tableName(), Collections.emptyMap());
+			return keys.stream()
+					.map(items::get)
+					.filter(item -> item != null)
+					.map(repository::convertRawItemToDomain)
+					.collect(Collectors.toList());
+		}
+	}
+}
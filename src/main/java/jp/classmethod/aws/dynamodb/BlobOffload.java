@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Configures the offload of large attributes of a repository to a {@link BlobStore}. When an item would exceed the
+ * threshold, its configured attributes are moved to the blob store, largest first, until it fits. The item keeps a
+ * binary pointer to each blob with the SHA-256 checksum of its content, which is verified when the pointer is
+ * resolved as the item is converted to an entity.
+ *
+ * <p>Offloaded attributes are opaque to DynamoDB, like compressed attributes. Pointers are resolved eagerly: every
+ * read of an item with offloaded attributes reads their blobs, so offload only attributes that are too large to
+ * keep in the item. Only pointers in the configured attributes are resolved; other binary attributes read
+ * unchanged. Blobs are not removed when their item is replaced or deleted. When a write is rejected, its
+ * blobs are deleted; when the write may have succeeded, after a timeout or a server error, they are kept.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+public class BlobOffload {
+
+	/**keeps the offloaded attributes**/
+	@Getter
+	private final BlobStore blobStore;
+
+	/**names of the attributes that may be offloaded**/
+	@Getter
+	private final Set<String> attributeNames;
+
+	/**the item size in bytes above which attributes are offloaded**/
+	@Getter
+	private final long thresholdBytes;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param blobStore keeps the offloaded attributes
+	 * @param attributeNames the names of the attributes that may be offloaded
+	 * @param thresholdBytes the item size in bytes, following the DynamoDB item size rules, above which attributes
+	 *                       are offloaded. {@link Long#MAX_VALUE} only resolves the pointers of existing items
+	 * @since #version#
+	 */
+	public BlobOffload(BlobStore blobStore, Set<String> attributeNames, long thresholdBytes) {
+		Preconditions.checkNotNull(blobStore, "blobStore must not be null");
+		Preconditions.checkNotNull(attributeNames, "attributeNames must not be null");
+		Preconditions.checkArgument(false == attributeNames.isEmpty(), "attributeNames must not be empty");
+		Preconditions.checkArgument(thresholdBytes >= 0, "thresholdBytes must not be negative");
+		this.blobStore = blobStore;
+		this.attributeNames = Collections.unmodifiableSet(new LinkedHashSet<>(attributeNames));
+		this.thresholdBytes = thresholdBytes;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+/**
+ * The value of an attribute that was offloaded to a {@link BlobStore}: a header, the SHA-256 checksum and size of
+ * the blob, and the UTF-8 blob identifier.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+final class BlobPointer {
+
+	/**first bytes of every pointer, distinct from the header of compressed values**/
+	private static final byte[] MAGIC = {0x00, 0x44 /*D*/, 0x50 /*P*/, 0x01 /*format version*/};
+
+	private static final int CHECKSUM_BYTES = 32;
+
+	private static final int HEADER_BYTES = MAGIC.length + CHECKSUM_BYTES + Long.BYTES;
+
+
+	/**
+	 * @param blobId the identifier of the blob
+	 * @param content the content of the blob
+	 * @return a pointer to the blob
+	 */
+	static BlobPointer of(String blobId, byte[] content) {
+		return new BlobPointer(blobId, checksumOf(content), content.length);
+	}
+
+	/**
+	 * @param value the value of a binary attribute
+	 * @return true if the value is a pointer to a blob
+	 */
+	static boolean isPointer(byte[] value) {
+		return value != null && value.length > HEADER_BYTES
+				&& Arrays.equals(MAGIC, Arrays.copyOf(value, MAGIC.length));
+	}
+
+	/**
+	 * @param value a value written by {@link #encode()}
+	 * @return the pointer
+	 * @throws IllegalArgumentException if the value is not a pointer
+	 */
+	static BlobPointer decode(byte[] value) {
+		Preconditions.checkArgument(isPointer(value), "value is not a blob pointer");
+		final ByteBuffer buffer = ByteBuffer.wrap(value, MAGIC.length, value.length - MAGIC.length);
+		final byte[] checksum = new byte[CHECKSUM_BYTES];
+		buffer.get(checksum);
+		final long size = buffer.getLong();
+		final String blobId = new String(value, HEADER_BYTES, value.length - HEADER_BYTES, StandardCharsets.UTF_8);
+		return new BlobPointer(blobId, checksum, size);
+	}
+
+	private static byte[] checksumOf(byte[] content) {
+		return Hashing.sha256().hashBytes(content).asBytes();
+	}
+
+
+	@Getter
+	private final String blobId;
+
+	private final byte[] checksum;
+
+	@Getter
+	private final long size;
+
+
+	private BlobPointer(String blobId, byte[] checksum, long size) {
+		this.blobId = blobId;
+		this.checksum = checksum;
+		this.size = size;
+	}
+
+	/**
+	 * @return the attribute value of this pointer
+	 */
+	byte[] encode() {
+		final byte[] id = blobId.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(HEADER_BYTES + id.length)
+				.put(MAGIC).put(checksum).putLong(size).put(id)
+				.array();
+	}
+
+	/**
+	 * @param content the content read from the blob store
+	 * @return true if the content has the size and checksum the pointer was written with
+	 */
+	boolean matches(byte[] content) {
+		return content.length == size && Arrays.equals(checksum, checksumOf(content));
+	}
+}
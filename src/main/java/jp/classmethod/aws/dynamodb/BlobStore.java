@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+/**
+ * Keeps the attributes that a {@link BlobOffload} moves out of items too large to store cheaply in DynamoDB.
+ * Blobs are written once under a new identifier and never modified. Implementations must be safe to call from
+ * several threads at once.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public interface BlobStore {
+
+	/**
+	 * Stores a blob.
+	 *
+	 * @param blobId the identifier of the blob, made of letters, digits, underscores, hyphens and dots
+	 * @param content the content of the blob
+	 * @throws org.springframework.dao.DataAccessException if the blob can not be stored
+	 */
+	void put(String blobId, byte[] content);
+
+	/**
+	 * @param blobId the identifier of the blob
+	 * @return the content of the blob, or null if there is no such blob
+	 * @throws org.springframework.dao.DataAccessException if the blob can not be read
+	 */
+	byte[] get(String blobId);
+
+	/**
+	 * Removes a blob, for example one left behind by an item that was replaced or deleted.
+	 * Removing a blob that does not exist succeeds.
+	 *
+	 * @param blobId the identifier of the blob
+	 * @throws org.springframework.dao.DataAccessException if the blob can not be removed
+	 */
+	void delete(String blobId);
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.google.common.base.Preconditions;
+
+/**
+ * Token bucket of DynamoDB capacity units, refilled at an adaptive rate up to a target and holding at most one
+ * second of capacity. It paces the pages of background scans and the batch writes of the bulk tools.
+ *
+ * <p>Callers {@link #acquire(double) acquire} the capacity they expect to consume before a request, and report
+ * the capacity actually {@link #consumed(double, double) consumed} once the response arrives. The bucket may go
+ * into debt, in which case later callers wait until it is repaid. When a request is
+ * {@link #throttled(double, int) throttled}, the rate is halved and the request is retried after a backoff; every
+ * request that succeeds raises the rate again, up to the target.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class CapacityRateLimiter {
+
+	/**number of times a throttled request is retried before it fails**/
+	static final int MAX_THROTTLED_ATTEMPTS = 10;
+
+	/**lowest rate throttling can reduce the limiter to, as a fraction of the target**/
+	private static final double MIN_RATE_FRACTION = 0.1;
+
+	/**rate increase after each request that succeeds, as a fraction of the target**/
+	private static final double RECOVERY_FRACTION = 0.05;
+
+	private static final long BASE_BACKOFF_MILLIS = 50L;
+
+	private static final long MAX_BACKOFF_MILLIS = 5_000L;
+
+	/**capacity units per second allowed while requests are not throttled**/
+	private final double targetUnitsPerSecond;
+
+	/**capacity units added per second**/
+	private double unitsPerSecond;
+
+	/**capacity units available now. Negative when in debt**/
+	private double available;
+
+	/**when available was last refilled, in System.nanoTime() nanoseconds**/
+	private long refilledAtNanos;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param targetUnitsPerSecond the capacity units per second to allow, greater than zero
+	 * @since #version#
+	 */
+	public CapacityRateLimiter(double targetUnitsPerSecond) {
+		Preconditions.checkArgument(targetUnitsPerSecond > 0, "targetUnitsPerSecond must be positive");
+		this.targetUnitsPerSecond = targetUnitsPerSecond;
+		this.unitsPerSecond = targetUnitsPerSecond;
+		this.available = targetUnitsPerSecond;
+		this.refilledAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * @return the capacity units per second allowed while requests are not throttled
+	 */
+	public double getTargetUnitsPerSecond() {
+		return targetUnitsPerSecond;
+	}
+
+	/**
+	 * @return the capacity units per second allowed now, lower than the target after throttling
+	 */
+	public synchronized double getUnitsPerSecond() {
+		return unitsPerSecond;
+	}
+
+	/**
+	 * Takes capacity units from the bucket, waiting until the bucket is out of debt.
+	 *
+	 * @param units the capacity units expected to be consumed, zero if unknown before the response
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void acquire(double units) throws InterruptedException {
+		Preconditions.checkArgument(units >= 0, "units must not be negative");
+		final long waitNanos;
+		synchronized (this) {
+			refill();
+			waitNanos = available >= 0 ? 0L : (long) (-available / unitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+			available -= units;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	/**
+	 * Corrects the bucket once the capacity consumed by a request that succeeded is known, and raises the rate
+	 * towards the target.
+	 *
+	 * @param acquiredUnits the capacity units acquired for the request
+	 * @param consumedUnits the capacity units the response reports consumed
+	 */
+	public synchronized void consumed(double acquiredUnits, double consumedUnits) {
+		refill();
+		available = Math.min(unitsPerSecond, available - (consumedUnits - acquiredUnits));
+		if (unitsPerSecond < targetUnitsPerSecond) {
+			unitsPerSecond = Math.min(targetUnitsPerSecond, unitsPerSecond + targetUnitsPerSecond * RECOVERY_FRACTION);
+		}
+	}
+
+	/**
+	 * Returns the capacity acquired for a throttled request, which consumed none, and halves the rate.
+	 *
+	 * @param acquiredUnits the capacity units acquired for the request
+	 * @param attempt the number of times the request was throttled before, starting at zero
+	 * @return the milliseconds to wait before retrying the request
+	 */
+	public synchronized long throttled(double acquiredUnits, int attempt) {
+		refill();
+		unitsPerSecond = Math.max(targetUnitsPerSecond * MIN_RATE_FRACTION, unitsPerSecond / 2);
+		available = Math.min(unitsPerSecond, available + acquiredUnits);
+		return Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+	}
+
+	/**
+	 * @param capacity the consumed capacity of a response, may be null
+	 * @return the capacity units consumed, zero if the response or the table did not report them
+	 */
+	static double unitsOf(ConsumedCapacity capacity) {
+		return capacity == null || capacity.getCapacityUnits() == null ? 0.0 : capacity.getCapacityUnits();
+	}
+
+	private void refill() {
+		final long now = System.nanoTime();
+		available = Math.min(unitsPerSecond,
+				available + (now - refilledAtNanos) * unitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+		refilledAtNanos = now;
+	}
+}
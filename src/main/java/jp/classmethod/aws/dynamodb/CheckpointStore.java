@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+/**
+ * Persists the {@link SegmentCheckpoint checkpoints} of long running scan jobs so that they can resume after a
+ * failure. Implementations must be safe to call from the threads of several segments at once.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public interface CheckpointStore {
+
+	/**
+	 * @param jobId the identifier of the job
+	 * @param segment the segment
+	 * @return the last saved checkpoint of the segment, or null if none was saved
+	 */
+	SegmentCheckpoint load(String jobId, int segment);
+
+	/**
+	 * Saves a checkpoint, replacing the previous checkpoint of its segment.
+	 *
+	 * @param jobId the identifier of the job
+	 * @param checkpoint the checkpoint to save
+	 */
+	void save(String jobId, SegmentCheckpoint checkpoint);
+
+	/**
+	 * Removes all checkpoints of a job, so that the job starts over the next time it runs.
+	 *
+	 * @param jobId the identifier of the job
+	 */
+	void clear(String jobId);
+}
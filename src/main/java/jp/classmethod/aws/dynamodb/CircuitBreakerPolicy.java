@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Configures the {@link ThrottlingCircuitBreaker throttling circuit breakers} of a repository.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+public class CircuitBreakerPolicy {
+
+	/**
+	 * @return a policy that opens when half of at least 20 requests in 10 s were throttled, stays open for 5 s and
+	 * closes after 3 successful trial requests
+	 */
+	public static CircuitBreakerPolicy defaultPolicy() {
+		return new CircuitBreakerPolicy(0.5, 20, 10_000L, 5_000L, 3);
+	}
+
+	/**share of throttled requests in a window that opens the breaker, between 0 and 1**/
+	@Getter
+	private final double throttledRatioThreshold;
+
+	/**number of requests in a window before the breaker may open**/
+	@Getter
+	private final int minimumRequests;
+
+	/**length of the window over which throttled requests are counted**/
+	@Getter
+	private final long windowMillis;
+
+	/**how long the breaker stays open before it admits trial requests**/
+	@Getter
+	private final long openMillis;
+
+	/**number of successful trial requests that close the breaker**/
+	@Getter
+	private final int trialRequests;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param throttledRatioThreshold share of throttled requests in a window that opens the breaker, for example 0.5
+	 * @param minimumRequests number of requests in a window before the breaker may open
+	 * @param windowMillis length of the window over which throttled requests are counted
+	 * @param openMillis how long the breaker stays open before it admits trial requests
+	 * @param trialRequests number of successful trial requests that close the breaker
+	 * @since #version#
+	 */
+	public CircuitBreakerPolicy(double throttledRatioThreshold, int minimumRequests, long windowMillis,
+								long openMillis, int trialRequests) {
+		Preconditions.checkArgument(throttledRatioThreshold > 0.0 && throttledRatioThreshold <= 1.0,
+				"throttledRatioThreshold must be in (0, 1]");
+		Preconditions.checkArgument(minimumRequests > 0, "minimumRequests must be positive");
+		Preconditions.checkArgument(windowMillis > 0, "windowMillis must be positive");
+		Preconditions.checkArgument(openMillis > 0, "openMillis must be positive");
+		Preconditions.checkArgument(trialRequests > 0, "trialRequests must be positive");
+		this.throttledRatioThreshold = throttledRatioThreshold;
+		this.minimumRequests = minimumRequests;
+		this.windowMillis = windowMillis;
+		this.openMillis = openMillis;
+		this.trialRequests = trialRequests;
+	}
+}
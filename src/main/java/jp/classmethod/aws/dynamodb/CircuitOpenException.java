@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * @author Alexander Patrikalakis
+ * @since #version#
+ *
+ * This exception gets thrown without calling DynamoDB while the throttling circuit breaker of a table or index is
+ * open, or while it sheds low priority requests (retriable - transient)
+ */
+@SuppressWarnings("serial")
+public class CircuitOpenException extends QueryTimeoutException {
+	public CircuitOpenException(String msg) {
+		super(msg);
+	}
+}
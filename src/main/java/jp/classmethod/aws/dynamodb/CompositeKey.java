@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.Serializable;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Key of an entity in a table with a hash (partition) key and a range (sort) key.
+ * Repositories of such tables use this class as their key type.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+@EqualsAndHashCode
+@SuppressWarnings("serial")
+public class CompositeKey implements Serializable {
+
+	/**
+	 * @param hashKey the hash key value, a String, Number or ByteBuffer
+	 * @param rangeKey the range key value, a String, Number or ByteBuffer
+	 * @return the composite key
+	 */
+	public static CompositeKey of(Object hashKey, Object rangeKey) {
+		return new CompositeKey(hashKey, rangeKey);
+	}
+
+
+	@Getter
+	private final Object hashKey;
+
+	@Getter
+	private final Object rangeKey;
+
+
+	private CompositeKey(Object hashKey, Object rangeKey) {
+		Preconditions.checkNotNull(hashKey, "hashKey must not be null");
+		Preconditions.checkNotNull(rangeKey, "rangeKey must not be null");
+		this.hashKey = hashKey;
+		this.rangeKey = rangeKey;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a {@link TableCopier} run. Updated by the copying threads and safe to read from any thread.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class CopyProgress {
+
+	/**progress of the scan of the source table**/
+	private final ScanProgress scan;
+
+	private final long startedAtNanos = System.nanoTime();
+
+	private final AtomicLong itemsWritten = new AtomicLong();
+
+	private final AtomicLong itemsSkipped = new AtomicLong();
+
+
+	CopyProgress(ScanProgress scan) {
+		this.scan = scan;
+	}
+
+	/**
+	 * @return the number of segments of the source scan
+	 */
+	public int getTotalSegments() {
+		return scan.getTotalSegments();
+	}
+
+	/**
+	 * @return the number of segments copied completely, including segments completed by earlier runs
+	 */
+	public int getSegmentsCompleted() {
+		return scan.getSegmentsCompleted();
+	}
+
+	/**
+	 * @return the number of items read from the source table by this run
+	 */
+	public long getItemsRead() {
+		return scan.getItemsRead();
+	}
+
+	/**
+	 * @return the number of items written to the target table by this run
+	 */
+	public long getItemsWritten() {
+		return itemsWritten.get();
+	}
+
+	/**
+	 * @return the number of items the transform dropped in this run
+	 */
+	public long getItemsSkipped() {
+		return itemsSkipped.get();
+	}
+
+	/**
+	 * @return the read capacity units consumed on the source table by this run
+	 */
+	public double getReadUnits() {
+		return scan.getReadUnits();
+	}
+
+	/**
+	 * @return the items written per second since this run started
+	 */
+	public double getItemsWrittenPerSecond() {
+		final long elapsed = System.nanoTime() - startedAtNanos;
+		return elapsed <= 0 ? 0.0 : itemsWritten.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+	}
+
+	void pageCopied(long read, long written) {
+		itemsWritten.addAndGet(written);
+		itemsSkipped.addAndGet(read - written);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Lock-free count-min sketch of string keys. Counts are never underestimated; with {@code width} columns and
+ * {@code depth} rows, an estimate exceeds the true count by more than {@code e / width} of all additions with
+ * probability at most {@code exp(-depth)}.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class CountMinSketch {
+
+	private static final HashFunction HASH = Hashing.murmur3_128();
+
+	@Getter
+	private final int width;
+
+	@Getter
+	private final int depth;
+
+	/**row-major counters**/
+	private final AtomicLongArray counts;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param width number of counters per row
+	 * @param depth number of rows, each with its own hash function
+	 * @since #version#
+	 */
+	public CountMinSketch(int width, int depth) {
+		Preconditions.checkArgument(width > 0, "width must be positive");
+		Preconditions.checkArgument(depth > 0, "depth must be positive");
+		Preconditions.checkArgument((long) width * depth <= Integer.MAX_VALUE, "sketch too large");
+		this.width = width;
+		this.depth = depth;
+		this.counts = new AtomicLongArray(width * depth);
+	}
+
+	/**
+	 * Counts one occurrence of a key.
+	 *
+	 * @param key the key
+	 * @return the estimated count of the key, including this occurrence
+	 */
+	public long add(String key) {
+		final long hash = HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counts.incrementAndGet(indexOf(hash, row)));
+		}
+		return estimate;
+	}
+
+	/**
+	 * @param key the key
+	 * @return the estimated count of the key
+	 */
+	public long estimate(String key) {
+		final long hash = HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counts.get(indexOf(hash, row)));
+		}
+		return estimate;
+	}
+
+	/**derives the row hashes from two halves of one hash (Kirsch and Mitzenmacher)**/
+	private int indexOf(long hash, int row) {
+		final int combined = (int) hash + row * (int) (hash >>> 32);
+		return row * width + ((combined & Integer.MAX_VALUE) % width);
+	}
+}
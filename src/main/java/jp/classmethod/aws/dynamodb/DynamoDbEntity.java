@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks the {@link EntityCodecProcessor} to generate a {@link EntityCodec} named {@code <Entity>DynamoDbCodec} in
+ * the package of the entity. A {@link DynamoDbRepository} of the entity converts it with the generated codec
+ * instead of Jackson.
+ *
+ * <p>The entity must be a top level class that extends {@code Object} and has a non-private constructor without
+ * parameters. Its non-static, non-transient fields that are not {@code @JsonIgnore}d are converted, named by their
+ * {@code @JsonProperty} value or else by the field name, and accessed directly unless private, in which case through
+ * a non-private getter and setter following the JavaBeans (and Lombok) naming conventions. Fields may be strings,
+ * numbers, booleans or enums. Null fields are not written.</p>
+ *
+ * <p>No codec is generated, and the repository uses Jackson, if a field has another type or lacks its accessors,
+ * if a public getter has no non-transient field, or if the entity, its members or its enums carry Jackson
+ * annotations other than {@code @JsonInclude} on the class and {@code @JsonProperty} and {@code @JsonIgnore} on
+ * fields. The processor warns about each entity it skips. Getters and setters generated by Lombok are only seen if
+ * Lombok runs before the processor.</p>
+ *
+ * <p>The codec does not read the configuration of the {@code ObjectMapper} of the repository. The repository only
+ * uses it when that object mapper has no naming strategy, no mix-ins and writes enums by name.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface DynamoDbEntity {
+}
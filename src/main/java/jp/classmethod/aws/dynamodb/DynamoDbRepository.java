@@ -17,22 +17,47 @@ package jp.classmethod.aws.dynamodb;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
@@ -45,7 +70,6 @@ import org.springframework.data.repository.NoRepositoryBean;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Attribute;
 import com.amazonaws.services.dynamodbv2.document.Item;
 import com.amazonaws.services.dynamodbv2.document.ItemCollection;
 import com.amazonaws.services.dynamodbv2.document.KeyAttribute;
@@ -79,20 +103,30 @@ import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.UpdateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.xspec.Condition;
 import com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder;
 import com.amazonaws.services.dynamodbv2.xspec.PutItemExpressionSpec;
+import com.amazonaws.services.dynamodbv2.xspec.ScanExpressionSpec;
 import com.amazonaws.services.dynamodbv2.xspec.UpdateItemExpressionSpec;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
 
 import jp.xet.sparwings.spring.data.chunk.Chunk;
 import jp.xet.sparwings.spring.data.chunk.ChunkImpl;
@@ -130,11 +164,26 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 	public static final String UPDATE_FAILED_NOT_FOUND_OR_BAD_VERSION =
 			UPDATE_FAILED_ENTITY_NOT_FOUND + " or the version was wrong or JSON patch conditions were not met";
 
+	/**maximum number of segments of a parallel scan**/
+	public static final int MAX_SCAN_SEGMENTS = 1_000_000;
+
+	/**number of segments of counts and aggregates that do not specify one**/
+	public static final int DEFAULT_SCAN_SEGMENTS = 8;
+
+	/**maximum number of threads of the pool of a parallel scan that runs without a segment executor**/
+	public static final int MAX_SEGMENT_THREADS = 64;
+
 	private static final String EXPRESSION_REFERS_TO_NON_EXTANT_ATTRIBUTE =
 			"The provided expression refers to an attribute that does not exist in the item";
 
 	private static final String VALIDATION_EXCEPTION = "ValidationException";
 
+	/**name placeholder of the hash key in key conditions**/
+	private static final String HASH_KEY_NAME = "#hk";
+
+	/**value placeholder of the hash key in key conditions**/
+	private static final String HASH_KEY_VALUE = ":hk";
+
 
 	private ProvisionedThroughput convert(ProvisionedThroughputDescription d) {
 		return new ProvisionedThroughput(d.getReadCapacityUnits(), d.getWriteCapacityUnits());
@@ -206,8 +255,6 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 
 	private final Map<String, GlobalSecondaryIndex> gsis;
 
-	private final Map<String, String> lookupKeyConditions;
-
 	private final ObjectMapper objectMapper;
 
 	private final String conditionalDeleteCondition;
@@ -218,6 +265,77 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 
 	private final String versionProperty;
 
+	/**coalesces concurrent findOne calls when batching is enabled. Null otherwise**/
+	private volatile AutoBatcher<Map<String, AttributeValue>, Map<String, AttributeValue>> findOneBatcher;
+
+	/**groups batched puts and deletes when write batching is enabled. Null otherwise**/
+	private volatile WriteBatcher writeBatcher;
+
+	/**latency distributions of the hedged operations of this repository**/
+	private final ConcurrentMap<String, Histogram> latencyHistograms = new ConcurrentHashMap<>();
+
+	/**hedges reads when a hedging policy is set. Null otherwise**/
+	private volatile Hedger hedger;
+
+	/**chooses the number of keys per BatchGetItem request**/
+	private final BatchGetSizer batchGetSizer = new BatchGetSizer();
+
+	/**runs the segments of parallel scans. Null to run each scan on a pool of its own**/
+	@Getter
+	private volatile Executor segmentExecutor;
+
+	/**paces scans to a share of the provisioned read capacity when background scans are enabled. Null otherwise**/
+	private volatile CapacityRateLimiter backgroundScanLimiter;
+
+	/**retry policy of each operation type**/
+	private final Map<OperationType, RetryPolicy> retryPolicies = new ConcurrentHashMap<>(defaultRetryPolicies());
+
+	/**policy of the throttling circuit breakers. Null while they are disabled**/
+	private volatile CircuitBreakerPolicy circuitBreakerPolicy;
+
+	/**throttling circuit breakers of the base table and of each GSI, keyed by table or index name**/
+	private final ConcurrentMap<String, ThrottlingCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	/**receives the measurements of repository operations**/
+	@Getter
+	private volatile RepositoryMetrics metrics = RepositoryMetrics.NOOP;
+
+	/**true while the item size histograms are recorded**/
+	private volatile boolean itemSizeHistograms;
+
+	/**sizes of the items read, following the DynamoDB item size rules**/
+	private final Histogram readItemSizes = new Histogram();
+
+	/**sizes of the items written, following the DynamoDB item size rules**/
+	private final Histogram writtenItemSizes = new Histogram();
+
+	/**samples accessed keys while hot key detection is enabled. Null otherwise**/
+	@Getter
+	private volatile HotKeyDetector hotKeyDetector;
+
+	/**publishes the hot key snapshots of each window**/
+	private volatile ScheduledExecutorService hotKeyScheduler;
+
+	/**consistency of reads that do not specify one**/
+	@Getter
+	private volatile ReadConsistency readConsistency = ReadConsistency.EVENTUAL;
+
+	/**compression of the attributes written. Null while compression is disabled**/
+	@Getter
+	private volatile AttributeCompression attributeCompression;
+
+	/**offload of large attributes to a blob store. Null while offloading is disabled**/
+	@Getter
+	private volatile BlobOffload blobOffload;
+
+	/**stored attribute names of the aliased top level properties, keyed by property name**/
+	@Getter
+	private volatile ImmutableBiMap<String, String> attributeAliases;
+
+	/**converts entities of exactly the entity class without Jackson. Null to use Jackson**/
+	@Getter
+	private volatile EntityCodec<E> entityCodec;
+
 
 	/**
 	 * Create instance.
@@ -252,7 +370,6 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 		this.ptMap = provisionedThroughputMap;
 		this.gsis = gsiList != null ? new HashMap<>() : null;
 		this.definitions = new HashMap<>(attributeDefinitions);
-		this.lookupKeyConditions = new HashMap<>();
 		this.objectMapper = objectMapper;
 		this.clazz = clazz;
 		this.gsiHashKeys = new HashMap<>();
@@ -272,11 +389,7 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 			this.gsis.put(indexName, copy);
 			this.gsiHashKeys.put(indexName, hk);
 			if (rk != null) {
-				lookupKeyConditions.put(indexName,
-						String.format(Locale.ENGLISH, "%s = :%s and %s = :%s", hk, hk, rk, rk));
 				this.gsiRangeKeys.put(indexName, rk);
-			} else {
-				lookupKeyConditions.put(indexName, String.format(Locale.ENGLISH, "%s = :%s", hk, hk));
 			}
 		});
 
@@ -301,6 +414,8 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 				? String.format(Locale.ENGLISH, "attribute_exists(%s) and attribute_exists(%s)", hashKeyName,
 				rangeKeyName)
 				: String.format(Locale.ENGLISH, "attribute_exists(%s)", hashKeyName);
+		attributeAliases = checkAliases(annotatedAliases(objectMapper, clazz));
+		entityCodec = isCodecCompatible(objectMapper) ? EntityCodecs.generatedCodecOf(clazz) : null;
 	}
 
 	@Override
@@ -358,370 +473,2106 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 		return table.getTableName();
 	}
 
-	@Override
-	public E findOne(K keys) {
-		//interface specifies throw IllegalArgumentException so use checkArgument instead
-		Preconditions.checkArgument(keys != null, "keys must not be null");
-		//just read the item and return it
-		final Item item;
-		final PrimaryKey pk = createKeys(keys);
-		GetItemSpec spec = new GetItemSpec().withPrimaryKey(pk);
+	/**
+	 * Reads the provisioned read capacity of the table from the throughput configuration of this repository, or
+	 * from the table description if the configuration has none.
+	 *
+	 * @return the provisioned read capacity units of the table
+	 * @throws IllegalStateException if the table has no provisioned read capacity, for example in on-demand mode
+	 * @since #version#
+	 */
+	public long provisionedReadCapacity() {
+		final ProvisionedThroughput configured = ptMap.get(tableNameSuffix);
+		if (configured != null && configured.getReadCapacityUnits() != null && configured.getReadCapacityUnits() > 0) {
+			return configured.getReadCapacityUnits();
+		}
+		final TableDescription desc;
 		try {
-			//TODO add projection expression for keys
-			item = table.getItem(spec);
-			return item == null ? null : convertItemToDomain(item);
+			desc = table.describe();
 		} catch (AmazonClientException e) {
-			throw convertDynamoDBException(e, "read",
-					null /* conditionMessage is null because GetItem doesnt take a condition */);
+			throw convertDynamoDBException(e, "DescribeTable", null /* conditionMessage */);
 		}
+		final Long units = desc.getProvisionedThroughput() == null
+				? null : desc.getProvisionedThroughput().getReadCapacityUnits();
+		Preconditions.checkState(units != null && units > 0, "table has no provisioned read capacity");
+		return units;
 	}
 
-	@Override
-	public boolean exists(K keys) {
-		Preconditions.checkArgument(keys != null, "keys must not be null");
-		return null != findOne(keys);
+	/**
+	 * Runs the scans of this repository in the background: {@code findAll(Chunkable)}, parallel scans, counts,
+	 * aggregates and exports are paced to a fraction of the provisioned read capacity of the table, so that they
+	 * leave the rest to online reads. Each page pays for the capacity it reports consumed. A throttled page
+	 * halves the pace and is retried after a backoff; the pace recovers as pages succeed.
+	 *
+	 * @param readCapacityFraction the fraction of the provisioned read capacity scans may consume, greater than 0
+	 *                             and at most 1
+	 * @throws IllegalStateException if the table has no provisioned read capacity
+	 * @since #version#
+	 */
+	public void enableBackgroundScans(double readCapacityFraction) {
+		Preconditions.checkArgument(readCapacityFraction > 0 && readCapacityFraction <= 1,
+				"readCapacityFraction must be greater than 0 and at most 1");
+		backgroundScanLimiter = new CapacityRateLimiter(readCapacityFraction * provisionedReadCapacity());
 	}
 
 	/**
-	 * Translates low level database exceptions to application level exceptions
+	 * Lets scans consume read capacity as fast as the client issues them again.
 	 *
-	 * @param e the low level amazon client exception
-	 * @param action crud action name
-	 * @param conditionalSupplier creates condition failed exception (context dependent)
-	 * @return a translation of the AWS/DynamoDB exception
+	 * @since #version#
 	 */
-	DataAccessException convertDynamoDBException(AmazonClientException e,
-												 String action,
-												 Supplier<? extends DataAccessException> conditionalSupplier) {
-
-		final String format = "unable to %s entity due to %s.";
-		if (e instanceof ConditionalCheckFailedException) {
-			return conditionalSupplier.get();
-		} else if (e instanceof ProvisionedThroughputExceededException) {
-			return new QueryTimeoutException(String.format(Locale.ENGLISH, format, action, "throttling"), e);
-		} else if (e instanceof ResourceNotFoundException) {
-			return new NonTransientDataAccessResourceException(String.format(Locale.ENGLISH, format, action,
-					"table does not exist"), e);
-		} else if (e instanceof AmazonServiceException) {
-			AmazonServiceException ase = (AmazonServiceException) e;
-			if (VALIDATION_EXCEPTION.equals(((AmazonServiceException) e).getErrorCode())) {
-				return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, action,
-						"client error"), e);
-			} else {
-				return new DynamoDbServiceException(
-						String.format(Locale.ENGLISH, format, action, "DynamoDB service error"), ase);
-			}
-		} else {
-			return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, action,
-					"client error"), e);
-		}
+	public void disableBackgroundScans() {
+		backgroundScanLimiter = null;
 	}
 
-	private Chunk<Item> getItemListForGsi(String indexName, QuerySpec spec) {
-		Preconditions.checkNotNull(spec, "spec must not be null");
-		final ItemCollection<QueryOutcome> outcome = table.getIndex(indexName).query(spec);
-
-		List<Item> results = new ArrayList<>();
-		try {
-			outcome.pages().forEach(p -> {
-				p.iterator().forEachRemaining(o -> results.add(o));
-			});
-		} catch (AmazonServiceException e) {
-			throw convertDynamoDBException(e, "getting by spec: " + spec.toString(),
-					null /*no write condition exception*/);
-		}
-		Map<String, AttributeValue> lastEvaluatedKey =
-				outcome.getLastLowLevelResult().getQueryResult().getLastEvaluatedKey();
-		String lastEvaluatedItemJson = lastEvaluatedKey == null ? null
-				: Item.fromMap(InternalUtils.toSimpleMapValue(lastEvaluatedKey)).toJSON();
-
-		return new ChunkImpl<>(results, lastEvaluatedItemJson, null /*chunkable*/);
+	/**
+	 * Protects the table and each GSI with a {@link ThrottlingCircuitBreaker}. While the breaker of a table or index
+	 * is open, its requests fail fast with {@link CircuitOpenException}. Background work, that is paced scans and the
+	 * bulk writes of the import and copy tools, is shed until the breaker closes; paced scans back off and wait for
+	 * it.
+	 *
+	 * @param policy the thresholds of the breakers
+	 * @since #version#
+	 */
+	public void enableCircuitBreakers(CircuitBreakerPolicy policy) {
+		Preconditions.checkNotNull(policy, "policy must not be null");
+		circuitBreakers.clear();
+		circuitBreakerPolicy = policy;
 	}
 
 	/**
-	 * gets a full item from a GSI
-	 * @param indexName name of GSI
-	 * @param spec query spec for gsi query
-	 * @return a full item keyed at keys in the GSI. If the GSI does not project all attributes, will read the item from
-	 * the base table
+	 * Stops protecting the table and its GSIs with circuit breakers.
 	 *
-	 * TODO, ideally, return a wrapper of the last evaluated key from the query result and the list, but since we are
-	 * not filtering on the server side, do this later.
+	 * @since #version#
 	 */
-	private Chunk<E> getFromGSI(String indexName, QuerySpec spec, boolean isUnique) {
-		Preconditions.checkNotNull(spec, "query spec was null");
-		Chunk<Item> chunk = getItemListForGsi(indexName, spec);
-		//check if the index was not a unique index
-		if (isUnique) {
-			Preconditions.checkState(chunk.getContent().size() < 2,
-					"the index had more than one item at spec=" + spec.toString());
-		}
-
-		if (ProjectionType.fromValue(gsis.get(indexName).getProjection().getProjectionType()) == ProjectionType.ALL) {
-			//the GSI had the full item so return it.
-			return new ChunkImpl<>(chunk.getContent().parallelStream()
-					.map(i -> convertItemToDomain(i)).collect(Collectors.toList()), chunk.getPaginationToken(),
-					null /*chunkable*/);
-		}
-		//else read the item from the base table
-		try {
-			List<AttributeValue> pks = chunk.getContent().stream()
-					.map(i -> getPrimaryKeyFromItem(i))
-					.map(pk -> Iterables.getOnlyElement(pk.getComponents().stream()
-							.filter(c -> c.getName().equals(hashKeyName))
-							.map(Attribute::getValue)
-							.map(InternalUtils::toAttributeValue)
-							.collect(Collectors.toList())))
-					.collect(Collectors.toList());
-			return new ChunkImpl<>(findAll(pks, true), chunk.getPaginationToken(), null /*chunkable*/);
-		} catch (AmazonClientException e) {
-			throw convertDynamoDBException(e, "read", null /*condition failed exception provider*/);
-		}
+	public void disableCircuitBreakers() {
+		circuitBreakerPolicy = null;
+		circuitBreakers.clear();
 	}
 
-	@Override
-	public E getAndDelete(K key, long version) {
-		Preconditions.checkNotNull(key, "keys must not be null");
-		Preconditions.checkArgument(version >= -1L, "version must be greater than or equal to -1");
-		final PrimaryKey pk = createKeys(key);
-		final boolean conditioning = version >= 0;
-		final String actualCondition;
-		final Map<String, Object> valueMap;
-		final Map<String, String> nameMap;
-
-		if (conditioning) {
-			Preconditions.checkState(versionProperty != null);
-			actualCondition = String.format(Locale.ENGLISH, "%s and #version = :v", conditionalDeleteCondition);
-			valueMap = Collections.singletonMap(":v", version);
-			nameMap = Collections.singletonMap("#version", versionProperty);
-		} else {
-			actualCondition = conditionalDeleteCondition;
-			valueMap = null;
-			nameMap = null;
-		}
-		final DeleteItemSpec spec = new DeleteItemSpec().withPrimaryKey(pk).withNameMap(nameMap).withValueMap(valueMap)
-				.withConditionExpression(actualCondition).withReturnValues(ReturnValue.ALL_OLD);
-		final Item item;
-		try {
-			item = table.deleteItem(spec).getItem();
-		} catch (AmazonClientException e) {
-			throw convertDynamoDBException(e, "delete",
-					() -> convertConditionalCheckFailedExceptionForDelete(e, version, key));
+	/**
+	 * @param indexName the name of a GSI, or null for the base table
+	 * @return the circuit breaker of the table or index, or null if circuit breakers are disabled
+	 * @since #version#
+	 */
+	public ThrottlingCircuitBreaker getCircuitBreaker(String indexName) {
+		final CircuitBreakerPolicy policy = circuitBreakerPolicy;
+		if (policy == null) {
+			return null;
 		}
-		return convertItemToDomain(item);
+		final String name = indexName == null ? tableName() : tableName() + "/" + indexName;
+		return circuitBreakers.computeIfAbsent(name, ignored -> new ThrottlingCircuitBreaker(name, policy));
 	}
 
-	private DataAccessException convertConditionalCheckFailedExceptionForDelete(AmazonClientException e,
-																				long version, K key) {
-		if (version == -1 || false == exists(key)) {
-			return getNotFoundException("didnt delete since entity didnt exist", e);
-		}
-		return new OptimisticLockingFailureException("did not delete entity because of version mismatch", e);
+	/**
+	 * issues a request through the circuit breaker of the table or index, if circuit breakers are enabled, and
+	 * records it as a flight recorder event
+	 * @param operation the repository operation that issues the request
+	 * @param type the type of the request
+	 * @param indexName the name of a GSI, or null for the base table
+	 * @param priority the priority of the request
+	 * @param request issues the request
+	 * @param <T> the result type
+	 * @return the result of the request
+	 * @throws CircuitOpenException if the breaker does not admit the request
+	 */
+	<T> T guarded(String operation, OperationType type, String indexName, ThrottlingCircuitBreaker.Priority priority,
+				  Supplier<T> request) {
+		final Supplier<T> recorded = () -> FlightRecorderEvents.roundTrip(tableName(), indexName, operation, request);
+		final ThrottlingCircuitBreaker breaker = getCircuitBreaker(indexName);
+		return breaker == null ? recorded.get() : breaker.call(priority, recorded);
 	}
 
-	@Override
-	public Iterable<E> findAll(Iterable<K> ids) {
-		Preconditions.checkNotNull(ids, "ids may not be null");
-		List<AttributeValue> idList = Lists.newArrayList(ids).parallelStream()
-				.map(DynamoDbInternalUtils::toAttributeValue)
-				.collect(Collectors.toList());
-		return findAll(idList, true /*useParallelBatches*/);
+	/**
+	 * issues a request through the circuit breaker of the base table, if circuit breakers are enabled, without
+	 * recording it. For requests that also read other tables, whose caller records the round trip
+	 * @param priority the priority of the request
+	 * @param request issues the request
+	 * @param <T> the result type
+	 * @return the result of the request
+	 * @throws CircuitOpenException if the breaker does not admit the request
+	 */
+	<T> T admitted(ThrottlingCircuitBreaker.Priority priority, Supplier<T> request) {
+		final ThrottlingCircuitBreaker breaker = getCircuitBreaker(null);
+		return breaker == null ? request.get() : breaker.call(priority, request);
 	}
 
-	private List<E> findAll(Iterable<AttributeValue> ids, boolean useParallelBatches) {
-		Preconditions.checkNotNull(ids, "ids may not be null");
-		List<AttributeValue> idList = Lists.newArrayList(ids);
-		if (idList.isEmpty()) {
-			return new ArrayList<>();
+	/**
+	 * records a batch response with unprocessed items as throttling of the base table
+	 */
+	void recordUnprocessed() {
+		final ThrottlingCircuitBreaker breaker = getCircuitBreaker(null);
+		if (breaker != null) {
+			breaker.recordPartialThrottling();
 		}
-		List<Map<String, AttributeValue>> resultantItems = new ArrayList<>();
-
-		StreamSupport.stream(Iterables.partition(idList, 25).spliterator(), useParallelBatches).forEach(inner -> {
-			BatchGetItemRequest req = new BatchGetItemRequest();
-			KeysAndAttributes keysAndAttributes = new KeysAndAttributes();
-			keysAndAttributes.setConsistentRead(true);
-			keysAndAttributes.setKeys(inner.stream()
-					.map(id -> ImmutableMap.of(hashKeyName, id))
-					.collect(Collectors.toList()));
-			String tableName = tableName();
-			req.withRequestItems(ImmutableMap.of(tableName, keysAndAttributes));
-
-			BatchGetItemResult result;
-
-			do {
-				try {
-					result = dynamoDB.batchGetItem(req);
-					resultantItems.addAll(result.getResponses().get(tableName));
-					req.setRequestItems(result.getUnprocessedKeys());
-				} catch (AmazonClientException e) {
-					throw this.convertDynamoDBException(e, "batch get", null /*no conditions for reads*/);
-				}
-			} while (false == result.getUnprocessedKeys().isEmpty());
-		});
-
-		return resultantItems.stream()
-				.map(legacyItem -> Item.fromMap(InternalUtils.toSimpleMapValue(legacyItem)))
-				.map(item -> convertItemToDomain(item))
-				.collect(Collectors.toList());
 	}
 
-	private PrimaryKey getPrimaryKeyFromItem(Item item) {
-		KeyAttribute[] keyAttributes = schemata.stream().map(keySchemaElement -> {
-			final String attrName = keySchemaElement.getAttributeName();
-			Preconditions.checkArgument(item.hasAttribute(attrName),
-					"must provide keys with " + attrName + " field set");
-			return new KeyAttribute(attrName, item.get(attrName));
-		}).toArray(KeyAttribute[]::new);
-		return new PrimaryKey(keyAttributes);
+	/**
+	 * Routes {@link #findOne(Serializable)} through an {@link AutoBatcher} so that concurrent lookups are served by
+	 * shared BatchGetItem requests. Concurrent lookups of the same key are served by a single read.
+	 *
+	 * @param windowMicros how long the first lookup of a batch waits for other lookups to join it
+	 * @param maxBatchSize number of keys that dispatches a batch immediately, at most 100 (BatchGetItem limit)
+	 * @since #version#
+	 */
+	public void enableFindOneBatching(long windowMicros, int maxBatchSize) {
+		Preconditions.checkArgument(maxBatchSize > 0 && maxBatchSize <= BatchGetSizer.MAX_KEYS,
+				"maxBatchSize must be between 1 and " + BatchGetSizer.MAX_KEYS);
+		disableFindOneBatching();
+		findOneBatcher = new AutoBatcher<>(tableName() + "-findOne",
+				keys -> batchGetItems("findOne", keys, false /*useParallelBatches*/, readConsistency).stream()
+						.collect(Collectors.toMap(this::keyAttributesOf, item -> item)),
+				windowMicros, maxBatchSize);
 	}
 
-	@Override
-	public E update(K key, JsonPatch patch, boolean increment, long version) {
-		final PrimaryKey pk = createKeys(key);
-		Preconditions.checkNotNull(patch, "patch must not be null");
-		Preconditions.checkArgument(version >= -1);
-
-		ExpressionSpecBuilder builder = patch.get();
-
-		//add a condition on item existence
-		builder.withCondition(ExpressionSpecBuilder.attribute_exists(hashKeyName));
-		//add update expression for incrementing the version
-		if (increment && versionProperty != null) {
-			builder.addUpdate(ExpressionSpecBuilder.N(versionProperty)
-					.set(ExpressionSpecBuilder.N(versionProperty).plus(1L)));
-		}
-		//add version condition
-		if (version >= 0) {
-			Preconditions.checkState(versionProperty != null);
-			builder.withCondition(ExpressionSpecBuilder.N(versionProperty).eq(version));
+	/**
+	 * Stops batching {@link #findOne(Serializable)} calls. Subsequent calls issue one GetItem each.
+	 *
+	 * @since #version#
+	 */
+	public void disableFindOneBatching() {
+		final AutoBatcher<Map<String, AttributeValue>, Map<String, AttributeValue>> batcher = findOneBatcher;
+		findOneBatcher = null;
+		if (batcher != null) {
+			batcher.shutdown();
 		}
+	}
 
-		UpdateItemExpressionSpec spec = builder.buildForUpdate();
-		Preconditions.checkArgument(false == Strings.isNullOrEmpty(spec.getUpdateExpression()),
-				"patch may not be empty"); // TODO add mechanism to JSON patch to allow iterating over list of ops
-		try {
-			UpdateItemOutcome updateItemOutcome = table.updateItem(new UpdateItemSpec()
-					.withExpressionSpec(spec)
-					.withPrimaryKey(pk)
-					.withReturnValues(ReturnValue.ALL_NEW));
-			return convertItemToDomain(updateItemOutcome.getItem());
-		} catch (AmazonClientException e) {
-			throw processUpdateItemException(key, e);
-		}
+	/**
+	 * Sets the consistency of the reads that do not specify one. This includes the base table reads that follow GSI
+	 * queries when the GSI does not project all attributes. Defaults to {@link ReadConsistency#EVENTUAL}.
+	 *
+	 * @param readConsistency the default read consistency of this repository
+	 * @since #version#
+	 */
+	public void setReadConsistency(ReadConsistency readConsistency) {
+		Preconditions.checkNotNull(readConsistency, "readConsistency must not be null");
+		this.readConsistency = readConsistency;
 	}
 
-	protected DataAccessException processUpdateItemException(K key, AmazonClientException e) {
-		final String format = "unable to update entity due to %s.";
-		if (e instanceof ConditionalCheckFailedException) {
-			if (null == findOne(key)) {
-				return getNotFoundException(UPDATE_FAILED_ENTITY_NOT_FOUND, e);
-			}
-			return new OptimisticLockingFailureException(UPDATE_FAILED_NOT_FOUND_OR_BAD_VERSION, e);
-		} else if (e instanceof ProvisionedThroughputExceededException) {
-			throw new QueryTimeoutException(String.format(Locale.ENGLISH, format, "throttling"), e);
-		} else if (e instanceof AmazonServiceException) {
-			AmazonServiceException ase = (AmazonServiceException) e;
-			if (VALIDATION_EXCEPTION.equals(ase.getErrorCode())) {
-				if (EXPRESSION_REFERS_TO_NON_EXTANT_ATTRIBUTE.equals(ase.getErrorMessage()) && null == findOne(key)) {
-					// if no locking and we get a specific message, then it also means the item does not exist
-					return getNotFoundException(UPDATE_FAILED_ENTITY_NOT_FOUND, e);
-				}
-				return new InvalidDataAccessResourceUsageException(
-						String.format(Locale.ENGLISH, format, "client error"), e);
-			} else {
-				return new DynamoDbServiceException(
-						String.format(Locale.ENGLISH, format, "DynamoDB service error"), ase);
-			}
-		} else {
-			return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, "client error"),
-					e);
+	/**
+	 * Sets the compression of the attributes written by this repository. The attributes the compression selects are
+	 * decompressed when read, and attributes written uncompressed read unchanged. The compression is also needed to
+	 * read the items whose attributes were compressed, so to stop compressing, set a compression of the same
+	 * attributes with a threshold of {@link Integer#MAX_VALUE} rather than null.
+	 *
+	 * @param compression the attribute compression, or null to neither compress nor decompress attributes
+	 * @throws IllegalArgumentException if the compression selects a key of the table or of a GSI, or the version
+	 * @since #version#
+	 */
+	public void setAttributeCompression(AttributeCompression compression) {
+		if (compression != null) {
+			compression.getAttributeNames().forEach(name -> Preconditions.checkArgument(
+					false == isKeyOrVersion(name), "keys and the version can not be compressed: " + name));
 		}
+		this.attributeCompression = compression;
 	}
 
-	private <T> String convertDomainToJSON(T domain) {
-		try {
-			return objectMapper.writeValueAsString(domain);
-		} catch (JsonProcessingException e) {
-			throw new IllegalArgumentException("unable to convert domain object to JSON", e);
-		}
+	/**
+	 * Sets the codec that converts entities of exactly the entity class, bypassing Jackson. Defaults to the codec
+	 * generated for entity classes annotated with {@link DynamoDbEntity}, unless the object mapper of this repository
+	 * is configured in a way the generated codec does not follow. Subclasses of the entity class, and exports and
+	 * imports, are always converted by Jackson.
+	 *
+	 * <p>The codec does not read the configuration of the object mapper, so items it writes are only read back the
+	 * same by Jackson, and the other way round, as far as the codec and the object mapper agree.</p>
+	 *
+	 * @param codec the entity codec, or null to convert all entities with Jackson
+	 * @since #version#
+	 */
+	public void setEntityCodec(EntityCodec<E> codec) {
+		this.entityCodec = codec;
 	}
 
 	/**
-	 * converts a Jackson annotated domain object to a DynamoDB document (item)
-	 * @param domain the object to convert
-	 * @return a DynamoDB Document representation of the domain object
+	 * @return false if the object mapper renames properties or writes enums in a way generated codecs do not follow
 	 */
-	<T> Item convertDomainToItem(T domain) {
-		return Item.fromJSON(convertDomainToJSON(domain));
+	private static boolean isCodecCompatible(ObjectMapper objectMapper) {
+		if (objectMapper == null) {
+			return true;
+		}
+		return objectMapper.getSerializationConfig().getPropertyNamingStrategy() == null
+				&& objectMapper.mixInCount() == 0
+				&& false == objectMapper.isEnabled(SerializationFeature.WRITE_ENUMS_USING_TO_STRING)
+				&& false == objectMapper.isEnabled(SerializationFeature.WRITE_ENUMS_USING_INDEX)
+				&& false == objectMapper.isEnabled(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
 	}
 
-	protected E convertItemToDomain(Item item) {
-		return convertItemToDomain(item, clazz);
+	/**
+	 * Stores top level properties under shorter attribute names, in addition to the properties annotated with
+	 * {@link AttributeAlias}. An alias given here replaces the annotated alias of the same property.
+	 *
+	 * <p>Key, GSI key and version attribute names of this repository are stored names, and so are the attribute
+	 * names of compression, blob offload, filters, condition expressions and JSON patches. Items written before a
+	 * property was aliased no longer read that property.</p>
+	 *
+	 * @param aliases the stored attribute names, keyed by the JSON property names of the entity
+	 * @throws IllegalArgumentException if two properties share a stored name, or if a property named as a key, a
+	 *                                  GSI key or the version would be stored under another name
+	 * @since #version#
+	 */
+	public void setAttributeAliases(Map<String, String> aliases) {
+		Preconditions.checkNotNull(aliases, "aliases must not be null");
+		final Map<String, String> merged = new LinkedHashMap<>(annotatedAliases(objectMapper, clazz));
+		merged.putAll(aliases);
+		attributeAliases = checkAliases(merged);
 	}
 
-	protected E findOneByGsi(String gsiName, QuerySpec spec) {
-		Chunk<E> chunk = getFromGSI(gsiName, spec, true /*isUnique*/);
-		return Optional.ofNullable(chunk.getContent().isEmpty() ? null : Iterables.getOnlyElement(chunk.getContent()))
-				.orElseThrow(() -> new IncorrectResultSizeDataAccessException(
-						"could not find one matching record for spec:" + spec.toString(), 1 /*expected*/,
-						0 /*actual*/));
+	/**
+	 * finds the properties of an entity class annotated with {@link AttributeAlias}
+	 * @param objectMapper the mapper that names the properties
+	 * @param type the entity class
+	 * @return the stored attribute names, keyed by property name
+	 */
+	static Map<String, String> annotatedAliases(ObjectMapper objectMapper, Class<?> type) {
+		if (objectMapper == null || type == null) {
+			return Collections.emptyMap();
+		}
+		final Map<String, String> aliases = new LinkedHashMap<>();
+		objectMapper.getSerializationConfig().introspect(objectMapper.constructType(type)).findProperties()
+				.forEach(property -> Stream.of(property.getField(), property.getGetter(), property.getSetter(),
+						property.getConstructorParameter())
+						.filter(member -> member != null && member.getAnnotation(AttributeAlias.class) != null)
+						.findFirst()
+						.ifPresent(member -> aliases.put(property.getName(),
+								member.getAnnotation(AttributeAlias.class).value())));
+		return aliases;
 	}
 
-	protected Chunk<E> findAllByGsi(String gsiName, QuerySpec spec) {
-		return getFromGSI(gsiName, spec, false /*isUnique*/);
+	private ImmutableBiMap<String, String> checkAliases(Map<String, String> aliases) {
+		aliases.forEach((property, stored) -> {
+			Preconditions.checkArgument(false == Strings.isNullOrEmpty(stored), "alias of %s is empty", property);
+			Preconditions.checkArgument(property.equals(stored) || false == isKeyOrVersion(property),
+					"keys and the version are named by their stored attribute names, not by property name: %s",
+					property);
+		});
+		// rejects two properties with the same stored name
+		return ImmutableBiMap.copyOf(aliases);
 	}
 
-	<S extends E> S convertItemToDomain(Item item, Class<? extends S> crass) {
-		try {
-			if (item == null) {
-				return null;
-			}
-			String json = item.toJSON();
-			return objectMapper.readValue(json, crass);
-		} catch (IOException e) {
-			throw new IllegalStateException("unable to convert orders JSON to domain object", e);
+	/**
+	 * @return a copy of the item with its attributes renamed, or the item itself if there is nothing to rename
+	 */
+	private static Item renamed(Item item, Map<String, String> names) {
+		if (names.isEmpty()) {
+			return item;
 		}
+		final Map<String, Object> attributes = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> attribute : item.attributes()) {
+			final String name = names.getOrDefault(attribute.getKey(), attribute.getKey());
+			Preconditions.checkArgument(false == attributes.containsKey(name),
+					"attribute %s is both a property and the alias of a property", name);
+			attributes.put(name, attribute.getValue());
+		}
+		return Item.fromMap(attributes);
 	}
 
-	@Override
+	/**
+	 * Sets the offload of large attributes to a blob store. The blob store is also needed to read the items whose
+	 * attributes were offloaded, so to stop offloading, set an offload with a threshold of {@link Long#MAX_VALUE}
+	 * rather than null.
+	 *
+	 * @param offload the blob offload, or null to neither offload attributes nor resolve pointers
+	 * @throws IllegalArgumentException if the offload selects a key of the table or of a GSI, or the version
+	 * @since #version#
+	 */
+	public void setBlobOffload(BlobOffload offload) {
+		if (offload != null) {
+			offload.getAttributeNames().forEach(name -> Preconditions.checkArgument(
+					false == isKeyOrVersion(name), "keys and the version can not be offloaded: " + name));
+		}
+		this.blobOffload = offload;
+	}
+
+	private boolean isKeyOrVersion(String attributeName) {
+		return attributeName.equals(hashKeyName) || attributeName.equals(rangeKeyName)
+				|| attributeName.equals(versionProperty) || gsiHashKeys.containsValue(attributeName)
+				|| gsiRangeKeys.containsValue(attributeName);
+	}
+
+	/**
+	 * Sets the executor that runs the segments of {@link #parallelScan(int, Condition, Consumer)}, of counts and
+	 * aggregates, of {@link TableExporter} and of {@link ScanJob}. Each segment is one task that lasts until the
+	 * segment is read, so the executor bounds how many segments are read at once. Without an executor each scan
+	 * runs on a pool of its own with one thread per segment, up to {@link #MAX_SEGMENT_THREADS}.
+	 *
+	 * @param executor the executor, or null to give each scan a pool of its own
+	 * @since #version#
+	 */
+	public void setSegmentExecutor(Executor executor) {
+		this.segmentExecutor = executor;
+	}
+
+	/**
+	 * Sets the policy for hedging GetItem reads of {@link #findOne(Serializable)} and the BatchGetItem reads of
+	 * {@link #findAll(Iterable)}.
+	 *
+	 * @param policy the hedging policy, or null to stop hedging
+	 * @since #version#
+	 */
+	public void setHedgingPolicy(HedgingPolicy policy) {
+		final Hedger previous = hedger;
+		hedger = policy == null ? null : new Hedger(tableName(), policy, latencyHistograms);
+		if (previous != null) {
+			previous.shutdown();
+		}
+	}
+
+	/**
+	 * @param operation the name of a hedged operation, GetItem or BatchGetItem
+	 * @return the latency distribution of the operation in nanoseconds, recorded while hedging is enabled
+	 * @since #version#
+	 */
+	public Histogram getLatencyHistogram(String operation) {
+		return Hedger.histogramFor(latencyHistograms, operation);
+	}
+
+	/**
+	 * issues a read through the hedger, if hedging is enabled
+	 * @param operation the name of the operation, which selects the latency histogram
+	 * @param read issues the read
+	 * @param <T> the result type
+	 * @return the result of the first attempt that completes
+	 */
+	<T> T hedged(String operation, Supplier<T> read) {
+		final Hedger h = hedger;
+		return h == null ? read.get() : h.call(operation, read);
+	}
+
+	private static Map<OperationType, RetryPolicy> defaultRetryPolicies() {
+		final Map<OperationType, RetryPolicy> policies = new EnumMap<>(OperationType.class);
+		for (OperationType type : OperationType.values()) {
+			policies.put(type, RetryPolicy.none());
+		}
+		policies.put(OperationType.BATCH_GET, RetryPolicy.defaultBatchPolicy());
+		policies.put(OperationType.BATCH_WRITE, RetryPolicy.defaultBatchPolicy());
+		return policies;
+	}
+
+	/**
+	 * Sets the policy for retrying requests of a type that were throttled or failed with a transient service error,
+	 * on top of the retries of the SDK client. Batch policies also bound the resubmission of unprocessed items.
+	 * Single operations default to {@link RetryPolicy#none()}, and batch operations to
+	 * {@link RetryPolicy#defaultBatchPolicy()}.
+	 *
+	 * <p>A write whose response was lost to a service error may have been applied. Its retry can then fail its
+	 * condition, so retrying conditional writes may report a conflict for the caller's own write.</p>
+	 *
+	 * @param type the operation type
+	 * @param policy the retry policy
+	 * @since #version#
+	 */
+	public void setRetryPolicy(OperationType type, RetryPolicy policy) {
+		Preconditions.checkNotNull(type, "type must not be null");
+		Preconditions.checkNotNull(policy, "policy must not be null");
+		retryPolicies.put(type, policy);
+	}
+
+	/**
+	 * @param type the operation type
+	 * @return the retry policy of the operation type
+	 * @since #version#
+	 */
+	public RetryPolicy getRetryPolicy(OperationType type) {
+		Preconditions.checkNotNull(type, "type must not be null");
+		return retryPolicies.get(type);
+	}
+
+	private <T> T retried(String operation, OperationType type, Supplier<T> call) {
+		return retried(operation, type, null /*base table*/, call);
+	}
+
+	private <T> T retried(String operation, OperationType type, String indexName, Supplier<T> call) {
+		final RetryPolicy policy = retryPolicies.get(type);
+		final RetryPolicy.Backoff backoff = policy.start();
+		try {
+			return policy.execute(backoff,
+					() -> guarded(operation, type, indexName, ThrottlingCircuitBreaker.Priority.NORMAL, call));
+		} finally {
+			recordRetries(type, indexName, backoff);
+		}
+	}
+
+	void recordRetries(OperationType type, String indexName, RetryPolicy.Backoff backoff) {
+		final RepositoryMetrics m = metrics;
+		if (m != RepositoryMetrics.NOOP && backoff.getAttempts() > 1) {
+			m.recordRetries(tableName(), indexName, type.name(), backoff.getAttempts() - 1);
+		}
+	}
+
+	/**
+	 * Samples the keys accessed by findOne, findAll(Iterable), update, getAndDelete and the batched writes, and
+	 * publishes the most accessed keys of each window. Keys that take a large share of the accesses are the likely
+	 * cause of throttling on a single partition.
+	 *
+	 * @param sampleRate fraction of the accesses to sample, in (0, 1]
+	 * @param topK number of hot keys to report per window
+	 * @param windowMillis length of a window
+	 * @param listener receives the snapshot of each window, or null to log the hot keys
+	 * @since #version#
+	 */
+	public void enableHotKeyDetection(double sampleRate, int topK, long windowMillis,
+									  Consumer<HotKeySnapshot> listener) {
+		Preconditions.checkArgument(windowMillis > 0, "windowMillis must be positive");
+		disableHotKeyDetection();
+		final HotKeyDetector detector = new HotKeyDetector(tableName(), sampleRate, topK);
+		final Consumer<HotKeySnapshot> publisher = listener == null ? DynamoDbRepository::logHotKeys : listener;
+		final ScheduledExecutorService scheduler =
+				Executors.newSingleThreadScheduledExecutor(Hedger.daemonThreadFactory(tableName() + "-hot-keys"));
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				publisher.accept(detector.rotate());
+			} catch (RuntimeException e) {
+				log.warn("hot key listener of {} failed", detector.getTableName(), e);
+			}
+		}, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+		hotKeyDetector = detector;
+		hotKeyScheduler = scheduler;
+	}
+
+	/**
+	 * Stops sampling accessed keys.
+	 *
+	 * @since #version#
+	 */
+	public void disableHotKeyDetection() {
+		final ScheduledExecutorService scheduler = hotKeyScheduler;
+		hotKeyDetector = null;
+		hotKeyScheduler = null;
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	private static void logHotKeys(HotKeySnapshot snapshot) {
+		if (snapshot.getHotKeys().isEmpty()) {
+			return;
+		}
+		log.info("hot keys of {} out of {} sampled accesses: {}", snapshot.getTableName(),
+				snapshot.getSampledAccesses(), snapshot.getHotKeys().stream()
+						.map(hotKey -> String.format(Locale.ENGLISH, "%s (%.1f%%)", hotKey.getKey(),
+								hotKey.getShare() * 100))
+						.collect(Collectors.joining(", ")));
+	}
+
+	/**
+	 * records a key access if hot key detection is enabled and samples it
+	 * @param key the primary key attributes of the accessed item
+	 */
+	void sampleKey(Map<String, AttributeValue> key) {
+		final HotKeyDetector detector = hotKeyDetector;
+		if (detector != null && detector.sample()) {
+			detector.record(renderKey(key));
+		}
+	}
+
+	private void sampleKey(PrimaryKey pk) {
+		if (hotKeyDetector != null) {
+			sampleKey(InternalUtils.toAttributeValueMap(pk.getComponents()));
+		}
+	}
+
+	private String renderKey(Map<String, AttributeValue> key) {
+		return keyAttributeNames().stream()
+				.map(name -> name + "=" + renderKeyValue(key.get(name)))
+				.collect(Collectors.joining(","));
+	}
+
+	private static String renderKeyValue(AttributeValue value) {
+		if (value == null) {
+			return "";
+		} else if (value.getS() != null) {
+			return value.getS();
+		} else if (value.getN() != null) {
+			return value.getN();
+		} else if (value.getB() != null) {
+			final ByteBuffer buffer = value.getB().duplicate();
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return BaseEncoding.base64().encode(bytes);
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Sets the receiver of the latency, outcome, item count, payload size and retry measurements of the operations
+	 * of this repository. Defaults to {@link RepositoryMetrics#NOOP}, which skips measuring altogether.
+	 *
+	 * @param metrics the receiver of the measurements, for example a {@link MicrometerRepositoryMetrics}
+	 * @since #version#
+	 */
+	public void setMetrics(RepositoryMetrics metrics) {
+		Preconditions.checkNotNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * times an operation and records its outcome and number of items, if metrics are enabled
+	 * @param operation the name of the operation
+	 * @param indexName the GSI the operation reads, or null for the base table
+	 * @param call the operation
+	 * @param <T> the result type
+	 * @return the result of the operation
+	 */
+	private <T> T measured(String operation, String indexName, Supplier<T> call) {
+		final RepositoryMetrics m = metrics;
+		if (m == RepositoryMetrics.NOOP) {
+			return call.get();
+		}
+		final long start = System.nanoTime();
+		final T result;
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			m.recordOperation(tableName(), indexName, operation, e.getClass().getSimpleName(),
+					System.nanoTime() - start, 0L);
+			throw e;
+		}
+		m.recordOperation(tableName(), indexName, operation, RepositoryMetrics.SUCCESS, System.nanoTime() - start,
+				itemCount(result));
+		return result;
+	}
+
+	/**
+	 * records an operation of the base table that was timed by its caller, if metrics are enabled
+	 * @param operation the name of the operation
+	 * @param outcome {@link RepositoryMetrics#SUCCESS} or the simple name of the exception
+	 * @param nanos the latency of the operation
+	 * @param items the number of items the operation returned
+	 */
+	void recordOperation(String operation, String outcome, long nanos, long items) {
+		final RepositoryMetrics m = metrics;
+		if (m != RepositoryMetrics.NOOP) {
+			m.recordOperation(tableName(), null /*base table*/, operation, outcome, nanos, items);
+		}
+	}
+
+	private static long itemCount(Object result) {
+		if (result == null) {
+			return 0L;
+		} else if (result instanceof Chunk) {
+			return ((Chunk<?>) result).getContent().size();
+		} else if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		return 1L;
+	}
+
+	/**
+	 * records the size of an item read
+	 * @param operation the repository operation
+	 * @param item the item, or null if there was none
+	 */
+	private void recordRead(String operation, Item item) {
+		if (item != null && isMeasuringItemSizes()) {
+			recordRead(operation, InternalUtils.toAttributeValues(item));
+		}
+	}
+
+	void recordRead(String operation, Map<String, AttributeValue> rawItem) {
+		if (rawItem != null && isMeasuringItemSizes()) {
+			final long size = ItemSizeCalculator.sizeOf(rawItem);
+			if (itemSizeHistograms) {
+				readItemSizes.record(size);
+			}
+			recordPayload(operation, size);
+		}
+	}
+
+	/**
+	 * records the size of an item written, whose size was not checked before the write
+	 * @param operation the repository operation
+	 * @param item the item as written
+	 */
+	private void recordWritten(String operation, Item item) {
+		if (item != null && isMeasuringItemSizes()) {
+			final long size = ItemSizeCalculator.sizeOf(InternalUtils.toAttributeValues(item));
+			if (itemSizeHistograms) {
+				writtenItemSizes.record(size);
+			}
+			recordPayload(operation, size);
+		}
+	}
+
+	/**
+	 * @return true if the sizes of the items read and written are measured, for the histograms or for metrics
+	 */
+	private boolean isMeasuringItemSizes() {
+		return itemSizeHistograms || metrics != RepositoryMetrics.NOOP;
+	}
+
+	/**
+	 * rejects an item about to be written if it exceeds the DynamoDB item size limit, and records its size
+	 * @param operation the repository operation
+	 * @param rawItem the item to write
+	 * @throws InvalidDataAccessResourceUsageException if the item exceeds 400 KB
+	 */
+	void checkItemSize(String operation, Map<String, AttributeValue> rawItem) {
+		final long size = ItemSizeCalculator.sizeOf(rawItem);
+		if (itemSizeHistograms) {
+			writtenItemSizes.record(size);
+		}
+		recordPayload(operation, size);
+		if (size > ItemSizeCalculator.MAX_ITEM_BYTES) {
+			throw new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH,
+					"unable to %s entity due to item size: %d bytes exceeds the limit of %d bytes", operation, size,
+					ItemSizeCalculator.MAX_ITEM_BYTES));
+		}
+	}
+
+	private void checkItemSize(String operation, Item item) {
+		checkItemSize(operation, InternalUtils.toAttributeValues(item));
+	}
+
+	private void recordPayload(String operation, long bytes) {
+		final RepositoryMetrics m = metrics;
+		if (m != RepositoryMetrics.NOOP) {
+			m.recordPayload(tableName(), null /*base table*/, operation, bytes);
+		}
+	}
+
+	/**
+	 * Records the sizes of the items read and written in {@link #getReadItemSizes()} and
+	 * {@link #getWrittenItemSizes()}. Measuring a read item walks all of its attributes, so reads skip it unless
+	 * the histograms or metrics are enabled. Writes always measure their items, to reject items over 400 KB before
+	 * sending them.
+	 *
+	 * @since #version#
+	 */
+	public void enableItemSizeHistograms() {
+		itemSizeHistograms = true;
+	}
+
+	/**
+	 * Stops recording item sizes in the histograms. The recorded sizes are kept.
+	 *
+	 * @since #version#
+	 */
+	public void disableItemSizeHistograms() {
+		itemSizeHistograms = false;
+	}
+
+	/**
+	 * @return the distribution of the sizes of the items read by findOne, findAll(Iterable) and getAndDelete, in
+	 * bytes as DynamoDB counts them. Empty unless {@link #enableItemSizeHistograms()} was called
+	 * @since #version#
+	 */
+	public Histogram getReadItemSizes() {
+		return readItemSizes;
+	}
+
+	/**
+	 * @return the distribution of the sizes of the items written by create, update, patch and the batched and bulk
+	 * writes, in bytes as DynamoDB counts them. Empty unless {@link #enableItemSizeHistograms()} was called
+	 * @since #version#
+	 */
+	public Histogram getWrittenItemSizes() {
+		return writtenItemSizes;
+	}
+
+	@Override
+	public E findOne(K keys) {
+		return findOne(keys, readConsistency);
+	}
+
+	/**
+	 * Reads an entity with the given consistency.
+	 *
+	 * @param keys the keys of the entity
+	 * @param consistency the consistency of the read
+	 * @return the entity, or null if it does not exist
+	 * @throws IllegalArgumentException if keys is null
+	 * @since #version#
+	 */
+	public E findOne(K keys, ReadConsistency consistency) {
+		return measured("findOne", null /*base table*/, () -> {
+			//interface specifies throw IllegalArgumentException so use checkArgument instead
+			Preconditions.checkArgument(keys != null, "keys must not be null");
+			Preconditions.checkNotNull(consistency, "consistency must not be null");
+			//just read the item and return it
+			final Item item;
+			final PrimaryKey pk = createKeys(keys);
+			final AutoBatcher<Map<String, AttributeValue>, Map<String, AttributeValue>> batcher = findOneBatcher;
+			//batches are read with the repository consistency, so reads that override it go directly
+			if (batcher != null && consistency == readConsistency) {
+				//the batch samples the key and records the item size of each item it reads
+				final Map<String, AttributeValue> rawItem =
+						await(batcher.load(InternalUtils.toAttributeValueMap(pk.getComponents())));
+				return rawItem == null ? null : convertItemToDomain(toItem(rawItem));
+			}
+			sampleKey(pk);
+			final GetItemSpec spec = new GetItemSpec().withPrimaryKey(pk)
+					.withConsistentRead(consistency.isConsistentRead())
+					.withReturnConsumedCapacity(roundTripCapacity());
+			try {
+				//TODO add projection expression for keys
+				item = retried("findOne", OperationType.GET,
+						() -> hedged("GetItem", () -> table.getItemOutcome(spec))).getItem();
+				recordRead("findOne", item);
+				return item == null ? null : convertItemToDomain(item);
+			} catch (AmazonClientException e) {
+				throw convertDynamoDBException(e, "read",
+						null /* conditionMessage is null because GetItem doesnt take a condition */);
+			}
+		});
+	}
+
+	@Override
+	public boolean exists(K keys) {
+		Preconditions.checkArgument(keys != null, "keys must not be null");
+		return null != findOne(keys);
+	}
+
+	/**
+	 * Translates low level database exceptions to application level exceptions
+	 *
+	 * @param e the low level amazon client exception
+	 * @param action crud action name
+	 * @param conditionalSupplier creates condition failed exception (context dependent)
+	 * @return a translation of the AWS/DynamoDB exception
+	 */
+	DataAccessException convertDynamoDBException(AmazonClientException e,
+												 String action,
+												 Supplier<? extends DataAccessException> conditionalSupplier) {
+
+		final String format = "unable to %s entity due to %s.";
+		if (e instanceof ConditionalCheckFailedException) {
+			return conditionalSupplier.get();
+		} else if (e instanceof ProvisionedThroughputExceededException) {
+			return new QueryTimeoutException(String.format(Locale.ENGLISH, format, action, "throttling"), e);
+		} else if (e instanceof ResourceNotFoundException) {
+			return new NonTransientDataAccessResourceException(String.format(Locale.ENGLISH, format, action,
+					"table does not exist"), e);
+		} else if (e instanceof AmazonServiceException) {
+			AmazonServiceException ase = (AmazonServiceException) e;
+			if (VALIDATION_EXCEPTION.equals(((AmazonServiceException) e).getErrorCode())) {
+				return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, action,
+						"client error"), e);
+			} else {
+				return new DynamoDbServiceException(
+						String.format(Locale.ENGLISH, format, action, "DynamoDB service error"), ase);
+			}
+		} else {
+			return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, action,
+					"client error"), e);
+		}
+	}
+
+	private Chunk<Item> getItemListForGsi(String operation, String indexName, QuerySpec spec) {
+		Preconditions.checkNotNull(spec, "spec must not be null");
+		List<Item> results = new ArrayList<>();
+		final ItemCollection<QueryOutcome> outcome;
+		try {
+			outcome = retried(operation, OperationType.QUERY, indexName, () -> {
+				final ItemCollection<QueryOutcome> collection = table.getIndex(indexName).query(spec);
+				results.clear();
+				collection.pages().forEach(p -> {
+					p.iterator().forEachRemaining(o -> results.add(o));
+				});
+				return collection;
+			});
+		} catch (AmazonServiceException e) {
+			throw convertDynamoDBException(e, "getting by spec: " + spec.toString(),
+					null /*no write condition exception*/);
+		}
+		Map<String, AttributeValue> lastEvaluatedKey =
+				outcome.getLastLowLevelResult().getQueryResult().getLastEvaluatedKey();
+		return new ChunkImpl<>(results, toPaginationToken(lastEvaluatedKey), null /*chunkable*/);
+	}
+
+	/**
+	 * gets a full item from a GSI
+	 * @param indexName name of GSI
+	 * @param spec query spec for gsi query
+	 * @param isUnique if true, the index must have at most one item matching the spec
+	 * @param consistency consistency of the base table read when the GSI does not project all attributes
+	 * @return a full item keyed at keys in the GSI. If the GSI does not project all attributes, will read the item from
+	 * the base table
+	 *
+	 * TODO, ideally, return a wrapper of the last evaluated key from the query result and the list, but since we are
+	 * not filtering on the server side, do this later.
+	 */
+	private Chunk<E> getFromGSI(String operation, String indexName, QuerySpec spec, boolean isUnique,
+								ReadConsistency consistency) {
+		Preconditions.checkNotNull(spec, "query spec was null");
+		Chunk<Item> chunk = getItemListForGsi(operation, indexName, spec);
+		//check if the index was not a unique index
+		if (isUnique) {
+			Preconditions.checkState(chunk.getContent().size() < 2,
+					"the index had more than one item at spec=" + spec.toString());
+		}
+
+		if (ProjectionType.fromValue(gsis.get(indexName).getProjection().getProjectionType()) == ProjectionType.ALL) {
+			//the GSI had the full item so return it.
+			return new ChunkImpl<>(chunk.getContent().parallelStream()
+					.map(i -> convertItemToDomain(i)).collect(Collectors.toList()), chunk.getPaginationToken(),
+					null /*chunkable*/);
+		}
+		//else read the item from the base table
+		try {
+			List<Map<String, AttributeValue>> pks = chunk.getContent().stream()
+					.map(i -> getPrimaryKeyFromItem(i))
+					.map(pk -> InternalUtils.toAttributeValueMap(pk.getComponents()))
+					.collect(Collectors.toList());
+			return new ChunkImpl<>(findAll(operation, pks, true /*useParallelBatches*/, consistency),
+					chunk.getPaginationToken(), null /*chunkable*/);
+		} catch (AmazonClientException e) {
+			throw convertDynamoDBException(e, "read", null /*condition failed exception provider*/);
+		}
+	}
+
+	@Override
+	public E getAndDelete(K key, long version) {
+		return measured("getAndDelete", null /*base table*/, () -> {
+			Preconditions.checkNotNull(key, "keys must not be null");
+			Preconditions.checkArgument(version >= -1L, "version must be greater than or equal to -1");
+			final PrimaryKey pk = createKeys(key);
+			sampleKey(pk);
+			final boolean conditioning = version >= 0;
+			final String actualCondition;
+			final Map<String, Object> valueMap;
+			final Map<String, String> nameMap;
+
+			if (conditioning) {
+				Preconditions.checkState(versionProperty != null);
+				actualCondition = String.format(Locale.ENGLISH, "%s and #version = :v", conditionalDeleteCondition);
+				valueMap = Collections.singletonMap(":v", version);
+				nameMap = Collections.singletonMap("#version", versionProperty);
+			} else {
+				actualCondition = conditionalDeleteCondition;
+				valueMap = null;
+				nameMap = null;
+			}
+			final DeleteItemSpec spec = new DeleteItemSpec().withPrimaryKey(pk).withNameMap(nameMap)
+					.withValueMap(valueMap).withConditionExpression(actualCondition)
+					.withReturnValues(ReturnValue.ALL_OLD).withReturnConsumedCapacity(roundTripCapacity());
+			final Item item;
+			try {
+				item = retried("getAndDelete", OperationType.WRITE, () -> table.deleteItem(spec)).getItem();
+				recordRead("getAndDelete", item);
+			} catch (AmazonClientException e) {
+				throw convertDynamoDBException(e, "delete",
+						() -> convertConditionalCheckFailedExceptionForDelete(e, version, key));
+			}
+			return convertItemToDomain(item);
+		});
+	}
+
+	private DataAccessException convertConditionalCheckFailedExceptionForDelete(AmazonClientException e,
+																				long version, K key) {
+		if (version == -1 || null == findOne(key, ReadConsistency.STRONG)) {
+			return getNotFoundException("didnt delete since entity didnt exist", e);
+		}
+		return new OptimisticLockingFailureException("did not delete entity because of version mismatch", e);
+	}
+
+	@Override
+	public Iterable<E> findAll(Iterable<K> ids) {
+		return findAll(ids, readConsistency);
+	}
+
+	/**
+	 * Reads entities with BatchGetItem with the given consistency.
+	 *
+	 * @param ids the keys of the entities
+	 * @param consistency the consistency of the reads
+	 * @return the entities that exist, in no particular order
+	 * @throws NullPointerException if ids is null
+	 * @since #version#
+	 */
+	public Iterable<E> findAll(Iterable<K> ids, ReadConsistency consistency) {
+		return measured("findAll.batch", null /*base table*/, () -> {
+			Preconditions.checkNotNull(ids, "ids may not be null");
+			Preconditions.checkNotNull(consistency, "consistency must not be null");
+			List<Map<String, AttributeValue>> idList = Lists.newArrayList(ids).stream()
+					.map(this::keyAttributes)
+					.collect(Collectors.toList());
+			return findAll("findAll.batch", idList, true /*useParallelBatches*/, consistency);
+		});
+	}
+
+	private List<E> findAll(String operation, Iterable<Map<String, AttributeValue>> ids, boolean useParallelBatches,
+							ReadConsistency consistency) {
+		return batchGetItems(operation, ids, useParallelBatches, consistency).stream()
+				.map(legacyItem -> toItem(legacyItem))
+				.map(item -> convertItemToDomain(item))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * reads the raw items at the keys with BatchGetItem, resubmitting unprocessed keys until all are read
+	 * @param operation the repository operation that reads the items
+	 * @param ids primary key attributes of the items to read
+	 * @param useParallelBatches if true, issue the batches in parallel
+	 * @param consistency the consistency of the reads
+	 * @return the items that exist, in no particular order
+	 */
+	private List<Map<String, AttributeValue>> batchGetItems(String operation,
+															 Iterable<Map<String, AttributeValue>> ids,
+															 boolean useParallelBatches,
+															 ReadConsistency consistency) {
+		Preconditions.checkNotNull(ids, "ids may not be null");
+		List<Map<String, AttributeValue>> idList = Lists.newArrayList(ids);
+		if (idList.isEmpty()) {
+			return new ArrayList<>();
+		}
+		if (hotKeyDetector != null) {
+			idList.forEach(this::sampleKey);
+		}
+		List<Map<String, AttributeValue>> resultantItems = Collections.synchronizedList(new ArrayList<>());
+
+		//size the batches from the items observed by previous reads
+		final int batchSize = batchGetSizer.nextBatchSize();
+		StreamSupport.stream(Iterables.partition(idList, batchSize).spliterator(), useParallelBatches).forEach(inner -> {
+			BatchGetItemRequest req = new BatchGetItemRequest();
+			KeysAndAttributes keysAndAttributes = new KeysAndAttributes();
+			keysAndAttributes.setConsistentRead(consistency.isConsistentRead());
+			keysAndAttributes.setKeys(inner);
+			String tableName = tableName();
+			req.withRequestItems(ImmutableMap.of(tableName, keysAndAttributes));
+
+			BatchGetItemResult result;
+
+			//one call, sharing its attempts and deadline between errors and unprocessed keys
+			final RetryPolicy policy = retryPolicies.get(OperationType.BATCH_GET);
+			final RetryPolicy.Backoff backoff = policy.start();
+			do {
+				try {
+					//a hedged read may still be using the previous request, so do not mutate it
+					final BatchGetItemRequest attempt = new BatchGetItemRequest()
+							.withRequestItems(req.getRequestItems())
+							.withReturnConsumedCapacity(roundTripCapacity());
+					result = policy.execute(backoff, () -> guarded(operation, OperationType.BATCH_GET,
+							null /*base table*/,
+							ThrottlingCircuitBreaker.Priority.NORMAL,
+							() -> hedged("BatchGetItem", () -> dynamoDB.batchGetItem(attempt))));
+					final List<Map<String, AttributeValue>> items = result.getResponses().get(tableName);
+					final KeysAndAttributes unprocessed = result.getUnprocessedKeys().get(tableName);
+					batchGetSizer.recordResponse(items, unprocessed == null ? 0 : unprocessed.getKeys().size());
+					items.forEach(item -> recordRead(operation, item));
+					resultantItems.addAll(items);
+					req = new BatchGetItemRequest().withRequestItems(result.getUnprocessedKeys());
+				} catch (AmazonClientException e) {
+					throw this.convertDynamoDBException(e, "batch get", null /*no conditions for reads*/);
+				}
+				if (false == result.getUnprocessedKeys().isEmpty()) {
+					recordUnprocessed();
+				}
+				if (false == result.getUnprocessedKeys().isEmpty() && false == backoff.retry()) {
+					throw new QueryTimeoutException(String.format(Locale.ENGLISH,
+							"unable to batch get entity due to throttling: %d keys unprocessed after %d attempts",
+							result.getUnprocessedKeys().get(tableName).getKeys().size(), backoff.getAttempts()));
+				}
+			} while (false == result.getUnprocessedKeys().isEmpty());
+			recordRetries(OperationType.BATCH_GET, null /*base table*/, backoff);
+		});
+
+		return new ArrayList<>(resultantItems);
+	}
+
+	/**
+	 * @param key the keys of an entity
+	 * @return the primary key attributes of the entity's item
+	 */
+	Map<String, AttributeValue> keyAttributes(K key) {
+		return InternalUtils.toAttributeValueMap(createKeys(key).getComponents());
+	}
+
+	/**
+	 * @param rawItem an item of the base table
+	 * @return the primary key attributes of the item
+	 */
+	Map<String, AttributeValue> keyAttributesOf(Map<String, AttributeValue> rawItem) {
+		final Map<String, AttributeValue> key = new HashMap<>();
+		schemata.forEach(element -> key.put(element.getAttributeName(), rawItem.get(element.getAttributeName())));
+		return key;
+	}
+
+	/**
+	 * @return the names of the primary key attributes of the base table
+	 */
+	List<String> keyAttributeNames() {
+		return schemata.stream().map(KeySchemaElement::getAttributeName).collect(Collectors.toList());
+	}
+
+	E convertRawItemToDomain(Map<String, AttributeValue> rawItem) {
+		return convertItemToDomain(toItem(rawItem));
+	}
+
+	private static Item toItem(Map<String, AttributeValue> rawItem) {
+		return Item.fromMap(InternalUtils.toSimpleMapValue(rawItem));
+	}
+
+	/**
+	 * @return TOTAL while round trip events are recorded, so that the events carry the consumed capacity. Null
+	 * otherwise, to leave the responses as small as possible
+	 */
+	private static ReturnConsumedCapacity roundTripCapacity() {
+		return FlightRecorderEvents.isRecordingRoundTrips() ? ReturnConsumedCapacity.TOTAL : null;
+	}
+
+	/**
+	 * waits for a future, rethrowing the runtime exception that failed it
+	 */
+	private static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private PrimaryKey getPrimaryKeyFromItem(Item item) {
+		KeyAttribute[] keyAttributes = schemata.stream().map(keySchemaElement -> {
+			final String attrName = keySchemaElement.getAttributeName();
+			Preconditions.checkArgument(item.hasAttribute(attrName),
+					"must provide keys with " + attrName + " field set");
+			return new KeyAttribute(attrName, item.get(attrName));
+		}).toArray(KeyAttribute[]::new);
+		return new PrimaryKey(keyAttributes);
+	}
+
+	@Override
+	public E update(K key, JsonPatch patch, boolean increment, long version) {
+		return measured("patch", null /*base table*/, () -> {
+			final PrimaryKey pk = createKeys(key);
+			sampleKey(pk);
+			Preconditions.checkNotNull(patch, "patch must not be null");
+			Preconditions.checkArgument(version >= -1);
+
+			ExpressionSpecBuilder builder = patch.get();
+
+			//add a condition on item existence
+			builder.withCondition(ExpressionSpecBuilder.attribute_exists(hashKeyName));
+			//add update expression for incrementing the version
+			if (increment && versionProperty != null) {
+				builder.addUpdate(ExpressionSpecBuilder.N(versionProperty)
+						.set(ExpressionSpecBuilder.N(versionProperty).plus(1L)));
+			}
+			//add version condition
+			if (version >= 0) {
+				Preconditions.checkState(versionProperty != null);
+				builder.withCondition(ExpressionSpecBuilder.N(versionProperty).eq(version));
+			}
+
+			UpdateItemExpressionSpec spec = builder.buildForUpdate();
+			Preconditions.checkArgument(false == Strings.isNullOrEmpty(spec.getUpdateExpression()),
+					"patch may not be empty"); // TODO add mechanism to JSON patch to allow iterating over list of ops
+			try {
+				final UpdateItemSpec updateItemSpec = new UpdateItemSpec()
+						.withExpressionSpec(spec)
+						.withPrimaryKey(pk)
+						.withReturnValues(ReturnValue.ALL_NEW)
+						.withReturnConsumedCapacity(roundTripCapacity());
+				UpdateItemOutcome updateItemOutcome =
+						retried("patch", OperationType.WRITE, () -> table.updateItem(updateItemSpec));
+				recordWritten("patch", updateItemOutcome.getItem());
+				return convertItemToDomain(updateItemOutcome.getItem());
+			} catch (AmazonClientException e) {
+				throw processUpdateItemException(key, e);
+			}
+		});
+	}
+
+	protected DataAccessException processUpdateItemException(K key, AmazonClientException e) {
+		final String format = "unable to update entity due to %s.";
+		if (e instanceof ConditionalCheckFailedException) {
+			if (null == findOne(key, ReadConsistency.STRONG)) {
+				return getNotFoundException(UPDATE_FAILED_ENTITY_NOT_FOUND, e);
+			}
+			return new OptimisticLockingFailureException(UPDATE_FAILED_NOT_FOUND_OR_BAD_VERSION, e);
+		} else if (e instanceof ProvisionedThroughputExceededException) {
+			throw new QueryTimeoutException(String.format(Locale.ENGLISH, format, "throttling"), e);
+		} else if (e instanceof AmazonServiceException) {
+			AmazonServiceException ase = (AmazonServiceException) e;
+			if (VALIDATION_EXCEPTION.equals(ase.getErrorCode())) {
+				if (EXPRESSION_REFERS_TO_NON_EXTANT_ATTRIBUTE.equals(ase.getErrorMessage())
+						&& null == findOne(key, ReadConsistency.STRONG)) {
+					// if no locking and we get a specific message, then it also means the item does not exist
+					return getNotFoundException(UPDATE_FAILED_ENTITY_NOT_FOUND, e);
+				}
+				return new InvalidDataAccessResourceUsageException(
+						String.format(Locale.ENGLISH, format, "client error"), e);
+			} else {
+				return new DynamoDbServiceException(
+						String.format(Locale.ENGLISH, format, "DynamoDB service error"), ase);
+			}
+		} else {
+			return new InvalidDataAccessResourceUsageException(String.format(Locale.ENGLISH, format, "client error"),
+					e);
+		}
+	}
+
+	<T> String convertDomainToJSON(T domain) {
+		final Class<?> type = domain == null ? null : domain.getClass();
+		return FlightRecorderEvents.serialization(tableName(), "serialize", type, null /*json*/, () -> {
+			try {
+				return objectMapper.writeValueAsString(domain);
+			} catch (JsonProcessingException e) {
+				throw new IllegalArgumentException("unable to convert domain object to JSON", e);
+			}
+		});
+	}
+
+	/**
+	 * converts a Jackson annotated domain object to a DynamoDB document (item)
+	 * @param domain the object to convert
+	 * @return a DynamoDB Document representation of the domain object
+	 */
+	<T> Item convertDomainToItem(T domain) {
+		final Item item = convertDomainToInlineItem(domain);
+		final BlobOffload offload = blobOffload;
+		return offload == null ? item : offload(item, offload);
+	}
+
+	/**
+	 * converts a domain object to an item with its attributes compressed but not offloaded
+	 * @param domain the object to convert
+	 * @return the item, holding every attribute itself
+	 */
+	private <T> Item convertDomainToInlineItem(T domain) {
+		final EntityCodec<E> codec = entityCodec;
+		final Item converted = codec != null && domain != null && domain.getClass() == clazz
+				? toItem(FlightRecorderEvents.serialization(tableName(), "encode", clazz, null /*json*/,
+						() -> codec.encode(clazz.cast(domain))))
+				: Item.fromJSON(convertDomainToJSON(domain));
+		final Item item = renamed(converted, attributeAliases);
+		final AttributeCompression compression = attributeCompression;
+		if (compression != null) {
+			compress(item, compression);
+		}
+		return item;
+	}
+
+	/**
+	 * replaces the selected attributes of an item with their compressed JSON, where that makes them smaller
+	 */
+	private void compress(Item item, AttributeCompression compression) {
+		for (Map.Entry<String, Object> attribute : item.asMap().entrySet()) {
+			final String name = attribute.getKey();
+			if (attribute.getValue() == null || isKeyOrVersion(name)) {
+				continue;
+			}
+			final byte[] json = item.getJSON(name).getBytes(StandardCharsets.UTF_8);
+			if (compression.isSelected(name, json.length)) {
+				final byte[] compressed = compression.compress(json);
+				if (compressed.length < json.length) {
+					item.withBinary(name, compressed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * moves the configured attributes of an item larger than the threshold to the blob store, largest first,
+	 * replacing each with a pointer, until the item fits
+	 * @return a copy of the item with pointers, or the item itself if it fits
+	 */
+	private Item offload(Item inline, BlobOffload offload) {
+		long size = ItemSizeCalculator.sizeOf(DynamoDbInternalUtils.toAttributeValues(inline));
+		if (size <= offload.getThresholdBytes()) {
+			return inline;
+		}
+		final Item item = Item.fromMap(inline.asMap());
+		final List<String> candidates = offload.getAttributeNames().stream()
+				.filter(name -> item.get(name) != null)
+				.sorted(Comparator.comparingLong((String name) -> ItemSizeCalculator.sizeOf(
+						DynamoDbInternalUtils.toAttributeValue(item.get(name)))).reversed())
+				.collect(Collectors.toList());
+		for (String name : candidates) {
+			// compressed attributes are offloaded as they are, others as JSON
+			final byte[] content = item.get(name) instanceof byte[]
+					? item.getBinary(name) : item.getJSON(name).getBytes(StandardCharsets.UTF_8);
+			final BlobPointer pointer = BlobPointer.of(tableName() + "." + UUID.randomUUID(), content);
+			try {
+				offload.getBlobStore().put(pointer.getBlobId(), content);
+			} catch (RuntimeException e) {
+				deleteOffloaded(item, e);
+				throw e;
+			}
+			item.withBinary(name, pointer.encode());
+			size = ItemSizeCalculator.sizeOf(DynamoDbInternalUtils.toAttributeValues(item));
+			if (size <= offload.getThresholdBytes()) {
+				break;
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * deletes the blobs of the offloaded attributes of an item that was not written. Pointers in an item converted
+	 * from an entity always refer to blobs stored for that conversion. The blobs are kept if the item may have been
+	 * written anyway, that is after client side failures such as timeouts, and after server errors
+	 * @param item the item
+	 * @param failure why the write failed
+	 */
+	private void deleteOffloaded(Item item, Throwable failure) {
+		final BlobOffload offload = blobOffload;
+		if (offload == null || false == isRejected(failure)) {
+			return;
+		}
+		for (String name : offload.getAttributeNames()) {
+			final Object value = item.get(name);
+			if (false == (value instanceof byte[] || value instanceof ByteBuffer)) {
+				continue;
+			}
+			final byte[] bytes = item.getBinary(name);
+			if (BlobPointer.isPointer(bytes)) {
+				final String blobId = BlobPointer.decode(bytes).getBlobId();
+				try {
+					offload.getBlobStore().delete(blobId);
+				} catch (RuntimeException e) {
+					log.warn("unable to delete blob {} of an item that was not written", blobId, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * deletes the blobs of the offloaded attributes of items converted from entities that a batch did not write
+	 * @param rawItems the items that were not written
+	 * @param failure why the batch failed
+	 */
+	void deleteOffloaded(List<Map<String, AttributeValue>> rawItems, Throwable failure) {
+		if (blobOffload == null || false == isRejected(failure)) {
+			return;
+		}
+		rawItems.forEach(rawItem -> deleteOffloaded(toItem(rawItem), failure));
+	}
+
+	/**
+	 * @param failure why a write failed, possibly wrapped
+	 * @return true if the write certainly did not store its item: it failed before the request was sent, or
+	 * DynamoDB rejected the request as a client error, such as a failed condition or throttling
+	 */
+	private static boolean isRejected(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof AmazonServiceException) {
+				return ((AmazonServiceException) cause).getErrorType() == AmazonServiceException.ErrorType.Client;
+			} else if (cause instanceof AmazonClientException) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return a copy of the item with the offloaded attributes the offload selects read from the blob store and the
+	 * compressed attributes the compression selects replaced by their JSON, or the item itself if it has neither
+	 */
+	private Item restore(Item item) {
+		final AttributeCompression compression = attributeCompression;
+		final BlobOffload offload = blobOffload;
+		if (compression == null && offload == null) {
+			return item;
+		}
+		Item restored = item;
+		for (Map.Entry<String, Object> attribute : item.attributes()) {
+			final Object value = attribute.getValue();
+			if (false == (value instanceof byte[] || value instanceof ByteBuffer)) {
+				continue;
+			}
+			byte[] bytes = item.getBinary(attribute.getKey());
+			final boolean offloaded = offload != null && offload.getAttributeNames().contains(attribute.getKey())
+					&& BlobPointer.isPointer(bytes);
+			if (offloaded) {
+				bytes = readBlob(offload, BlobPointer.decode(bytes));
+			}
+			final boolean compressed = compression != null && compression.selects(attribute.getKey())
+					&& false == isKeyOrVersion(attribute.getKey()) && AttributeCompression.isCompressed(bytes);
+			if (offloaded || compressed) {
+				if (restored == item) {
+					restored = Item.fromMap(item.asMap());
+				}
+				final byte[] json = compressed ? AttributeCompression.decompress(bytes) : bytes;
+				restored.withJSON(attribute.getKey(), new String(json, StandardCharsets.UTF_8));
+			}
+		}
+		return restored;
+	}
+
+	private static byte[] readBlob(BlobOffload offload, BlobPointer pointer) {
+		final byte[] content = offload.getBlobStore().get(pointer.getBlobId());
+		if (content == null) {
+			throw new DataRetrievalFailureException("offloaded attribute not found: " + pointer.getBlobId());
+		} else if (false == pointer.matches(content)) {
+			throw new DataIntegrityViolationException("checksum mismatch of offloaded attribute: "
+					+ pointer.getBlobId());
+		}
+		return content;
+	}
+
+	protected E convertItemToDomain(Item item) {
+		return convertItemToDomain(item, clazz);
+	}
+
+	protected E findOneByGsi(String gsiName, QuerySpec spec) {
+		return findOneByGsi(gsiName, spec, readConsistency);
+	}
+
+	/**
+	 * finds the only entity matching a GSI query
+	 * @param gsiName name of GSI
+	 * @param spec query spec for gsi query
+	 * @param consistency consistency of the base table read when the GSI does not project all attributes
+	 * @return the entity
+	 * @throws IncorrectResultSizeDataAccessException if no entity matches
+	 */
+	protected E findOneByGsi(String gsiName, QuerySpec spec, ReadConsistency consistency) {
+		return measured("findOneByGsi", gsiName, () -> {
+			Chunk<E> chunk = getFromGSI("findOneByGsi", gsiName, spec, true /*isUnique*/, consistency);
+			return Optional.ofNullable(chunk.getContent().isEmpty()
+					? null : Iterables.getOnlyElement(chunk.getContent()))
+					.orElseThrow(() -> new IncorrectResultSizeDataAccessException(
+							"could not find one matching record for spec:" + spec.toString(), 1 /*expected*/,
+							0 /*actual*/));
+		});
+	}
+
+	protected Chunk<E> findAllByGsi(String gsiName, QuerySpec spec) {
+		return findAllByGsi(gsiName, spec, readConsistency);
+	}
+
+	/**
+	 * finds the entities matching a GSI query
+	 * @param gsiName name of GSI
+	 * @param spec query spec for gsi query
+	 * @param consistency consistency of the base table read when the GSI does not project all attributes
+	 * @return the entities
+	 */
+	protected Chunk<E> findAllByGsi(String gsiName, QuerySpec spec, ReadConsistency consistency) {
+		return measured("findAllByGsi", gsiName, () -> {
+			return getFromGSI("findAllByGsi", gsiName, spec, false /*isUnique*/, consistency);
+		});
+	}
+
+	/**
+	 * converts a JSON document written by {@link #convertDomainToJSON(Object)} to a domain object
+	 * @param json the document
+	 * @return the domain object
+	 * @throws IllegalArgumentException if the document can not be read as a domain object
+	 */
+	E convertJSONToDomain(String json) {
+		try {
+			return objectMapper.readValue(json, clazz);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("unable to convert JSON to domain object", e);
+		}
+	}
+
+	<S extends E> S convertItemToDomain(Item item, Class<? extends S> crass) {
+		if (item == null) {
+			return null;
+		}
+		final Item restored = renamed(restore(item), attributeAliases.inverse());
+		final EntityCodec<E> codec = entityCodec;
+		if (codec != null && crass == clazz) {
+			final Map<String, AttributeValue> attributes = DynamoDbInternalUtils.toAttributeValues(restored);
+			return FlightRecorderEvents.serialization(tableName(), "decode", crass, null /*json*/,
+					() -> crass.cast(codec.decode(attributes)));
+		}
+		String json = restored.toJSON();
+		return FlightRecorderEvents.serialization(tableName(), "deserialize", crass, json, () -> {
+			try {
+				return objectMapper.readValue(json, crass);
+			} catch (IOException e) {
+				throw new IllegalStateException("unable to convert orders JSON to domain object", e);
+			}
+		});
+	}
+
+	@Override
 	public Chunk<E> findAll(Chunkable chunkable) {
+		return findAll(chunkable, readConsistency);
+	}
+
+	/**
+	 * Scans a chunk of entities with the given consistency.
+	 *
+	 * @param chunkable the chunk to read
+	 * @param consistency the consistency of the scan
+	 * @return the chunk of entities
+	 * @throws NullPointerException if chunkable is null
+	 * @since #version#
+	 */
+	public Chunk<E> findAll(Chunkable chunkable, ReadConsistency consistency) {
+		return findAll(chunkable, null /*no filter*/, consistency);
+	}
+
+	/**
+	 * Scans a chunk of entities that match a filter. The filter is evaluated by DynamoDB, so items that do not
+	 * match are neither transferred nor deserialized. A chunk may hold fewer entities than its page size, or none,
+	 * and still have a pagination token, because the page size limits the items evaluated.
+	 *
+	 * @param chunkable the chunk to read
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @return the chunk of entities
+	 * @throws NullPointerException if chunkable is null
+	 * @since #version#
+	 */
+	public Chunk<E> findAll(Chunkable chunkable, Condition filter) {
+		return findAll(chunkable, filter, readConsistency);
+	}
+
+	/**
+	 * Scans a chunk of entities that match a filter with the given consistency.
+	 *
+	 * @param chunkable the chunk to read
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param consistency the consistency of the scan
+	 * @return the chunk of entities
+	 * @throws NullPointerException if chunkable is null
+	 * @since #version#
+	 */
+	public Chunk<E> findAll(Chunkable chunkable, Condition filter, ReadConsistency consistency) {
+		return measured("findAll.scan", null /*base table*/, () -> {
+			Preconditions.checkNotNull(chunkable);
+			Preconditions.checkNotNull(consistency, "consistency must not be null");
+			Preconditions.checkArgument(Sort.Direction.DESC != chunkable.getDirection(),
+					"DynamoDB only supports scanning forwards");
+			ScanSpec spec = withFilter(new ScanSpec().withConsistentRead(consistency.isConsistentRead())
+					.withReturnConsumedCapacity(roundTripCapacity()), filter);
+			if (false == Strings.isNullOrEmpty(chunkable.getPaginationToken())) {
+				spec.withExclusiveStartKey(fromPaginationToken(chunkable.getPaginationToken()));
+			}
+			spec.withMaxPageSize(chunkable.getMaxPageSize()).withMaxResultSize(chunkable.getMaxPageSize());
+
+			final CapacityRateLimiter limiter = backgroundScanLimiter;
+			if (limiter != null) {
+				spec.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+			}
+			final List<Item> itemList = new ArrayList<>();
+			final ItemCollection<ScanOutcome> results = paced("findAll.scan", OperationType.SCAN, limiter,
+					0.0 /*paid for once read*/, "scan", () -> {
+						final ItemCollection<ScanOutcome> collection = table.scan(spec);
+						itemList.clear();
+						collection.forEach(itemList::add);
+						return collection;
+					}, collection -> CapacityRateLimiter.unitsOf(collection.getTotalConsumedCapacity()));
+			final List<E> entities = itemList.stream()
+					.map(this::convertItemToDomain) //O(n)
+					.collect(Collectors.toList()); //O(n)
+			final Map<String, AttributeValue> lastEvaluatedKey = results.getLastLowLevelResult() == null
+					? null : results.getLastLowLevelResult().getScanResult().getLastEvaluatedKey();
+			return new ChunkImpl<>(entities, toPaginationToken(lastEvaluatedKey), chunkable);
+		});
+	}
+
+	/**
+	 * Scans the whole table with {@code totalSegments} segments in parallel, passing each entity that matches the
+	 * filter to the consumer. The filter is evaluated by DynamoDB. The consumer is called from several threads at
+	 * once and in no particular order.
+	 *
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param consumer receives the matching entities
+	 * @throws IllegalArgumentException if totalSegments is out of range
+	 * @since #version#
+	 */
+	public void parallelScan(int totalSegments, Condition filter, Consumer<? super E> consumer) {
+		parallelScan(totalSegments, filter, readConsistency, consumer);
+	}
+
+	/**
+	 * Scans the whole table with {@code totalSegments} segments in parallel and the given consistency, passing each
+	 * entity that matches the filter to the consumer.
+	 *
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param consistency the consistency of the scan
+	 * @param consumer receives the matching entities
+	 * @throws IllegalArgumentException if totalSegments is out of range
+	 * @since #version#
+	 */
+	public void parallelScan(int totalSegments, Condition filter, ReadConsistency consistency,
+							 Consumer<? super E> consumer) {
+		checkTotalSegments(totalSegments);
+		Preconditions.checkNotNull(consistency, "consistency must not be null");
+		Preconditions.checkNotNull(consumer, "consumer must not be null");
+		runSegments("scan", totalSegments, segment -> {
+			scanSegment("parallelScan", segment, totalSegments, filter, consistency, consumer);
+			return null;
+		});
+	}
+
+	/**
+	 * runs a task for each segment of a parallel scan on the segment executor, or on a pool of its own
+	 * @param name names the threads of the pool
+	 * @param totalSegments the number of segments
+	 * @param task reads one segment
+	 * @param <T> the result type of a segment
+	 * @return the results of the segments, in segment order
+	 * @throws QueryTimeoutException if interrupted while waiting for the segments
+	 * @throws RuntimeException the exception of the first segment that failed. The segments still running on a
+	 * pool of its own are interrupted
+	 */
+	<T> List<T> runSegments(String name, int totalSegments, IntFunction<T> task) {
+		final Executor supplied = segmentExecutor;
+		final ExecutorService pool = supplied != null ? null : Executors.newFixedThreadPool(
+				Math.min(totalSegments, MAX_SEGMENT_THREADS),
+				AutoBatcher.daemonThreadFactory(tableName() + "-" + name));
+		try {
+			final List<CompletableFuture<T>> segments = IntStream.range(0, totalSegments)
+					.mapToObj(segment -> CompletableFuture.supplyAsync(() -> task.apply(segment),
+							supplied != null ? supplied : pool))
+					.collect(Collectors.toList());
+			final CompletableFuture<Void> failed = new CompletableFuture<>();
+			segments.forEach(segment -> segment.whenComplete((result, e) -> {
+				if (e != null) {
+					failed.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+				}
+			}));
+			CompletableFuture.anyOf(CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0])), failed)
+					.get();
+			return segments.stream().map(CompletableFuture::join).collect(Collectors.toList());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryTimeoutException("interrupted while scanning segments", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException("segment failed", e.getCause());
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * scans all entities of one segment
+	 * @param operation the repository operation that scans the segment
+	 * @param segment the segment to scan
+	 * @param totalSegments the number of segments of the scan
+	 * @param filter the filter condition, or null
+	 * @param consistency the consistency of the scan
+	 * @param consumer receives the entities of the segment
+	 */
+	void scanSegment(String operation, int segment, int totalSegments, Condition filter, ReadConsistency consistency,
+					 Consumer<? super E> consumer) {
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+		do {
+			final ScanResult page = scanSegmentPage(operation, segment, totalSegments, filter, consistency,
+					lastEvaluatedKey, null /*up to 1 MB*/, null /*background pacing if enabled*/);
+			page.getItems().forEach(item -> consumer.accept(convertRawItemToDomain(item)));
+			lastEvaluatedKey = page.getLastEvaluatedKey();
+		} while (lastEvaluatedKey != null);
+	}
+
+	/**
+	 * Counts the items of the table with a parallel scan that returns only the count of each page.
+	 *
+	 * @return the number of items
+	 * @since #version#
+	 */
+	public long count() {
+		return count(null /*no filter*/, DEFAULT_SCAN_SEGMENTS);
+	}
+
+	/**
+	 * Counts the items of the table that match a filter with a parallel scan that returns only the count of each
+	 * page. The scan still consumes read capacity for every item of the table.
+	 *
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @return the number of matching items
+	 * @throws IllegalArgumentException if totalSegments is out of range
+	 * @since #version#
+	 */
+	public long count(Condition filter, int totalSegments) {
+		return count(filter, totalSegments, readConsistency);
+	}
+
+	/**
+	 * Counts the items of the table that match a filter with a parallel scan of the given consistency that returns
+	 * only the count of each page.
+	 *
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @param consistency the consistency of the scan
+	 * @return the number of matching items
+	 * @throws IllegalArgumentException if totalSegments is out of range
+	 * @since #version#
+	 */
+	public long count(Condition filter, int totalSegments, ReadConsistency consistency) {
+		checkTotalSegments(totalSegments);
+		Preconditions.checkNotNull(consistency, "consistency must not be null");
+		return runSegments("count", totalSegments, segment -> {
+			final long[] count = new long[1];
+			scanSegmentPages("count", segment, totalSegments, filter, consistency, null /*no projection*/,
+					result -> count[0] += result.getCount());
+			return count[0];
+		}).stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * Computes the count, sum, minimum and maximum of a numeric attribute over the items that match a filter, with
+	 * a parallel scan that projects only that attribute. The partial aggregates of the segments are merged.
+	 *
+	 * @param attributeName the name of the numeric attribute
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @return the aggregate of the attribute values
+	 * @throws IllegalArgumentException if attributeName is empty or totalSegments is out of range
+	 * @since #version#
+	 */
+	public NumericAggregate aggregate(String attributeName, Condition filter, int totalSegments) {
+		return aggregate(attributeName, filter, totalSegments, readConsistency);
+	}
+
+	/**
+	 * Computes the count, sum, minimum and maximum of a numeric attribute over the items that match a filter, with
+	 * a parallel scan of the given consistency that projects only that attribute.
+	 *
+	 * @param attributeName the name of the numeric attribute
+	 * @param filter the condition the items must match, built with {@link ExpressionSpecBuilder}, or null
+	 * @param totalSegments the number of segments to split the table into, between 1 and 1000000
+	 * @param consistency the consistency of the scan
+	 * @return the aggregate of the attribute values
+	 * @throws IllegalArgumentException if attributeName is empty or totalSegments is out of range
+	 * @since #version#
+	 */
+	public NumericAggregate aggregate(String attributeName, Condition filter, int totalSegments,
+									  ReadConsistency consistency) {
+		Preconditions.checkArgument(false == Strings.isNullOrEmpty(attributeName), "attributeName must not be empty");
+		checkTotalSegments(totalSegments);
+		Preconditions.checkNotNull(consistency, "consistency must not be null");
+		return runSegments("aggregate", totalSegments, segment -> {
+			final NumericAggregate[] partial = {NumericAggregate.EMPTY};
+			scanSegmentPages("aggregate", segment, totalSegments, filter, consistency, attributeName,
+					result -> result.getItems().forEach(item -> {
+						final AttributeValue value = item.get(attributeName);
+						if (value != null && value.getN() != null) {
+							partial[0] = partial[0].add(new BigDecimal(value.getN()));
+						}
+					}));
+			return partial[0];
+		}).stream().reduce(NumericAggregate.EMPTY, NumericAggregate::merge);
+	}
+
+	private static void checkTotalSegments(int totalSegments) {
+		Preconditions.checkArgument(totalSegments >= 1 && totalSegments <= MAX_SCAN_SEGMENTS,
+				"totalSegments must be between 1 and " + MAX_SCAN_SEGMENTS);
+	}
+
+	/**
+	 * scans all pages of one segment with the low level client
+	 * @param operation the repository operation that scans the segment
+	 * @param segment the segment to scan
+	 * @param totalSegments the number of segments of the scan
+	 * @param filter the filter condition, or null
+	 * @param consistency the consistency of the scan
+	 * @param projectedAttribute the only attribute to return, or null to return only counts
+	 * @param pageConsumer receives each page
+	 */
+	private void scanSegmentPages(String operation, int segment, int totalSegments, Condition filter,
+								  ReadConsistency consistency, String projectedAttribute,
+								  Consumer<ScanResult> pageConsumer) {
+		final ScanRequest request = createSegmentScanRequest(segment, totalSegments, filter, consistency);
+		final Map<String, String> nameMap = new HashMap<>();
+		Optional.ofNullable(request.getExpressionAttributeNames()).ifPresent(nameMap::putAll);
+		if (projectedAttribute == null) {
+			request.withSelect(Select.COUNT);
+		} else {
+			nameMap.put("#projected", projectedAttribute);
+			request.withSelect(Select.SPECIFIC_ATTRIBUTES).withProjectionExpression("#projected");
+		}
+		if (false == nameMap.isEmpty()) {
+			request.withExpressionAttributeNames(nameMap);
+		}
+		final CapacityRateLimiter limiter = backgroundScanLimiter;
+		if (limiter != null || FlightRecorderEvents.isRecordingRoundTrips()) {
+			request.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+		}
+		ScanResult result;
+		do {
+			result = paced(operation, OperationType.SCAN, limiter, 0.0 /*paid for once read*/,
+					"scan segment " + segment, () -> dynamoDB.scan(request),
+					page -> CapacityRateLimiter.unitsOf(page.getConsumedCapacity()));
+			pageConsumer.accept(result);
+			request.setExclusiveStartKey(result.getLastEvaluatedKey());
+		} while (result.getLastEvaluatedKey() != null);
+	}
+
+	/**
+	 * reads one page of one segment with the low level client, for jobs that track their position in the segment
+	 * @param operation the repository operation that scans the segment
+	 * @param segment the segment to scan
+	 * @param totalSegments the number of segments of the scan
+	 * @param filter the filter condition, or null
+	 * @param consistency the consistency of the scan
+	 * @param exclusiveStartKey the LastEvaluatedKey of the previous page, or null to read the first page
+	 * @param limit the maximum number of items to evaluate, or null for up to 1 MB
+	 * @param limiter paces the page, or null to use the background scan limiter of the repository, if enabled
+	 * @return the page, with the total consumed capacity
+	 */
+	ScanResult scanSegmentPage(String operation, int segment, int totalSegments, Condition filter,
+							   ReadConsistency consistency, Map<String, AttributeValue> exclusiveStartKey,
+							   Integer limit, CapacityRateLimiter limiter) {
+		final ScanRequest request = createSegmentScanRequest(segment, totalSegments, filter, consistency)
+				.withExclusiveStartKey(exclusiveStartKey)
+				.withLimit(limit)
+				.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+		return paced(operation, OperationType.SCAN, limiter == null ? backgroundScanLimiter : limiter,
+				0.0 /*paid for once read*/, "scan segment " + segment, () -> dynamoDB.scan(request),
+				page -> CapacityRateLimiter.unitsOf(page.getConsumedCapacity()));
+	}
+
+	/**
+	 * issues a request. If a limiter is given, acquires the capacity the request is expected to consume, corrects
+	 * the limiter with the capacity it consumed, and retries the request with the limiter's backoff when it is
+	 * throttled, fails with a transient service error or is shed by the circuit breaker
+	 * @param operation the repository operation that issues the request
+	 * @param type the type of the request
+	 * @param limiter the limiter, or null to issue the request with the retry policy of its type, without pacing
+	 * @param estimatedUnits the capacity units the request is expected to consume, zero if unknown
+	 * @param action describes the request in exceptions
+	 * @param request issues the request
+	 * @param consumedUnits gets the capacity units the request consumed from its response
+	 * @param <T> the response type
+	 * @return the response
+	 */
+	<T> T paced(String operation, OperationType type, CapacityRateLimiter limiter, double estimatedUnits,
+				String action, Supplier<T> request, ToDoubleFunction<T> consumedUnits) {
+		if (limiter == null) {
+			try {
+				return retried(operation, type, request);
+			} catch (AmazonClientException e) {
+				throw convertDynamoDBException(e, action, null /* conditionMessage */);
+			}
+		}
+		for (int attempt = 0; ; attempt++) {
+			final T result;
+			try {
+				limiter.acquire(estimatedUnits);
+				result = guarded(operation, type, null /*base table*/, ThrottlingCircuitBreaker.Priority.LOW, request);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new QueryTimeoutException("interrupted while pacing " + action, e);
+			} catch (CircuitOpenException e) {
+				if (attempt + 1 >= CapacityRateLimiter.MAX_THROTTLED_ATTEMPTS) {
+					throw e;
+				}
+				backOff(limiter.throttled(estimatedUnits, attempt), action);
+				continue;
+			} catch (AmazonClientException e) {
+				if (false == RetryPolicy.isRetryable(e) || attempt + 1 >= CapacityRateLimiter.MAX_THROTTLED_ATTEMPTS) {
+					throw convertDynamoDBException(e, action, null /* conditionMessage */);
+				}
+				backOff(limiter.throttled(estimatedUnits, attempt), action);
+				continue;
+			}
+			limiter.consumed(estimatedUnits, consumedUnits.applyAsDouble(result));
+			return result;
+		}
+	}
+
+	/**
+	 * waits before retrying a paced request
+	 * @param millis the milliseconds to wait
+	 * @param action describes the request in exceptions
+	 * @throws QueryTimeoutException if interrupted while waiting
+	 */
+	static void backOff(long millis, String action) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryTimeoutException("interrupted while backing off " + action, e);
+		}
+	}
+
+	private ScanRequest createSegmentScanRequest(int segment, int totalSegments, Condition filter,
+												 ReadConsistency consistency) {
+		final ScanRequest request = new ScanRequest(table.getTableName())
+				.withSegment(segment)
+				.withTotalSegments(totalSegments)
+				.withConsistentRead(consistency.isConsistentRead());
+		if (filter != null) {
+			final ScanExpressionSpec xspec = new ExpressionSpecBuilder().withCondition(filter).buildForScan();
+			request.withFilterExpression(xspec.getFilterExpression()).withExpressionAttributeNames(xspec.getNameMap());
+			if (xspec.getValueMap() != null) {
+				request.withExpressionAttributeValues(InternalUtils.fromSimpleMap(xspec.getValueMap()));
+			}
+		}
+		return request;
+	}
+
+	/**
+	 * Queries the item collection of a hash key on the base table, ordered by range key.
+	 *
+	 * @param hashKey the hash key value shared by the items
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @return the chunk of entities
+	 * @throws IllegalStateException if the table has no range key
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByHashKey(Object hashKey, Chunkable chunkable) {
+		return findAllByHashKey(hashKey, null /*all range keys*/, chunkable);
+	}
+
+	/**
+	 * Queries the items of a hash key on the base table whose range keys match a condition, ordered by range key.
+	 * The condition is part of the key condition expression, so only matching items are read.
+	 *
+	 * @param hashKey the hash key value shared by the items
+	 * @param rangeCondition the condition on the range key, or null to read all items of the hash key
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @return the chunk of entities
+	 * @throws IllegalStateException if the table has no range key
+	 * @throws IllegalArgumentException if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByHashKey(Object hashKey, RangeCondition rangeCondition, Chunkable chunkable) {
+		return findAllByHashKey(hashKey, rangeCondition, null /*no filter*/, chunkable);
+	}
+
+	/**
+	 * Queries the items of a hash key on the base table whose range keys match a condition and that match a filter,
+	 * ordered by range key. Both are evaluated by DynamoDB. The filter can not refer to the key attributes.
+	 *
+	 * @param hashKey the hash key value shared by the items
+	 * @param rangeCondition the condition on the range key, or null to read all items of the hash key
+	 * @param filter the condition on the other attributes, built with {@link ExpressionSpecBuilder}, or null
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @return the chunk of entities
+	 * @throws IllegalStateException if the table has no range key
+	 * @throws IllegalArgumentException if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByHashKey(Object hashKey, RangeCondition rangeCondition, Condition filter,
+									 Chunkable chunkable) {
+		return findAllByHashKey(hashKey, rangeCondition, filter, chunkable, readConsistency);
+	}
+
+	/**
+	 * Queries the items of a hash key on the base table whose range keys match a condition and that match a filter,
+	 * ordered by range key, with the given consistency.
+	 *
+	 * @param hashKey the hash key value shared by the items
+	 * @param rangeCondition the condition on the range key, or null to read all items of the hash key
+	 * @param filter the condition on the other attributes, built with {@link ExpressionSpecBuilder}, or null
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @param consistency the consistency of the query
+	 * @return the chunk of entities
+	 * @throws IllegalStateException if the table has no range key
+	 * @throws IllegalArgumentException if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByHashKey(Object hashKey, RangeCondition rangeCondition, Condition filter,
+									 Chunkable chunkable, ReadConsistency consistency) {
+		return measured("findAllByHashKey", null /*base table*/, () -> {
+			Preconditions.checkNotNull(chunkable);
+			Preconditions.checkNotNull(consistency, "consistency must not be null");
+			Preconditions.checkState(rangeKeyName != null, "table has no range key");
+			final QuerySpec spec = createQuerySpec(hashKeyName, rangeKeyName, hashKey, rangeCondition, filter,
+					chunkable)
+					.withConsistentRead(consistency.isConsistentRead());
+
+			final List<Item> itemList = new ArrayList<>();
+			final ItemCollection<QueryOutcome> results;
+			try {
+				results = retried("findAllByHashKey", OperationType.QUERY, () -> {
+					final ItemCollection<QueryOutcome> collection = table.query(spec);
+					itemList.clear();
+					collection.forEach(itemList::add);
+					return collection;
+				});
+			} catch (AmazonClientException e) {
+				throw convertDynamoDBException(e, "query", null /* conditionMessage */);
+			}
+			final List<E> entities = itemList.stream()
+					.map(this::convertItemToDomain)
+					.collect(Collectors.toList());
+			final Map<String, AttributeValue> lastEvaluatedKey = results.getLastLowLevelResult() == null
+					? null : results.getLastLowLevelResult().getQueryResult().getLastEvaluatedKey();
+			return new ChunkImpl<>(entities, toPaginationToken(lastEvaluatedKey), chunkable);
+		});
+	}
+
+	/**
+	 * Queries the items of a hash key on a GSI whose range keys match a condition, ordered by the GSI range key.
+	 * If the GSI does not project all attributes, the items are read from the base table.
+	 *
+	 * @param indexName the name of the GSI
+	 * @param hashKey the GSI hash key value shared by the items
+	 * @param rangeCondition the condition on the GSI range key, or null to read all items of the hash key
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @return the chunk of entities
+	 * @throws IllegalArgumentException if the GSI does not exist, if it has no range key and a range condition was
+	 * given, or if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByGsi(String indexName, Object hashKey, RangeCondition rangeCondition,
+								 Chunkable chunkable) {
+		return findAllByGsi(indexName, hashKey, rangeCondition, null /*no filter*/, chunkable);
+	}
+
+	/**
+	 * Queries the items of a hash key on a GSI whose range keys match a condition and that match a filter, ordered
+	 * by the GSI range key. Both are evaluated by DynamoDB. The filter can not refer to the GSI key attributes.
+	 *
+	 * @param indexName the name of the GSI
+	 * @param hashKey the GSI hash key value shared by the items
+	 * @param rangeCondition the condition on the GSI range key, or null to read all items of the hash key
+	 * @param filter the condition on the projected attributes, built with {@link ExpressionSpecBuilder}, or null
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @return the chunk of entities
+	 * @throws IllegalArgumentException if the GSI does not exist, if it has no range key and a range condition was
+	 * given, or if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByGsi(String indexName, Object hashKey, RangeCondition rangeCondition, Condition filter,
+								 Chunkable chunkable) {
+		return findAllByGsi(indexName, hashKey, rangeCondition, filter, chunkable, readConsistency);
+	}
+
+	/**
+	 * Queries the items of a hash key on a GSI whose range keys match a condition and that match a filter, ordered
+	 * by the GSI range key. GSI queries are always eventually consistent; the consistency applies to the base table
+	 * reads of GSIs that do not project all attributes.
+	 *
+	 * @param indexName the name of the GSI
+	 * @param hashKey the GSI hash key value shared by the items
+	 * @param rangeCondition the condition on the GSI range key, or null to read all items of the hash key
+	 * @param filter the condition on the projected attributes, built with {@link ExpressionSpecBuilder}, or null
+	 * @param chunkable the chunk to read. Its direction selects the order of the range keys
+	 * @param consistency the consistency of the base table reads
+	 * @return the chunk of entities
+	 * @throws IllegalArgumentException if the GSI does not exist, if it has no range key and a range condition was
+	 * given, or if a key value does not have the type of its key attribute
+	 * @since #version#
+	 */
+	public Chunk<E> findAllByGsi(String indexName, Object hashKey, RangeCondition rangeCondition, Condition filter,
+								 Chunkable chunkable, ReadConsistency consistency) {
 		Preconditions.checkNotNull(chunkable);
-		Preconditions.checkArgument(Sort.Direction.DESC != chunkable.getDirection(),
-				"DynamoDB only supports scanning forwards");
-		ScanSpec spec = new ScanSpec();
+		Preconditions.checkNotNull(consistency, "consistency must not be null");
+		Preconditions.checkArgument(gsiHashKeys.containsKey(indexName), "no GSI named " + indexName);
+		final QuerySpec spec = createQuerySpec(gsiHashKeys.get(indexName), gsiRangeKeys.get(indexName), hashKey,
+				rangeCondition, filter, chunkable);
+		return findAllByGsi(indexName, spec, consistency);
+	}
+
+	/**
+	 * builds the key condition of a query. The key names are bound to the placeholders #hk and #rk, so reserved
+	 * words and names with special characters can be keys
+	 * @param hk name of the hash key
+	 * @param rk name of the range key, or null if there is none
+	 * @param hashKey hash key value
+	 * @param rangeCondition range key condition, or null
+	 * @param filter filter condition, or null
+	 * @param chunkable the pagination token, direction and limit of the query
+	 * @return the query spec
+	 */
+	private QuerySpec createQuerySpec(String hk, String rk, Object hashKey, RangeCondition rangeCondition,
+									  Condition filter, Chunkable chunkable) {
+		Preconditions.checkNotNull(hashKey, "hashKey must not be null");
+		Preconditions.checkArgument(rangeCondition == null || rk != null, "the index has no range key");
+		final Map<String, String> nameMap = new HashMap<>();
+		final Map<String, Object> valueMap = new HashMap<>();
+		nameMap.put(HASH_KEY_NAME, hk);
+		valueMap.put(HASH_KEY_VALUE, checkKeyType(hk, hashKey));
+		String keyCondition = String.format(Locale.ENGLISH, "%s = %s", HASH_KEY_NAME, HASH_KEY_VALUE);
+		if (rangeCondition != null) {
+			checkKeyType(rk, rangeCondition.getValue());
+			if (rangeCondition.getSecondValue() != null) {
+				checkKeyType(rk, rangeCondition.getSecondValue());
+			}
+			Preconditions.checkArgument(rangeCondition.getOperator() != RangeCondition.Operator.BEGINS_WITH
+					|| definitions.get(rk) != ScalarAttributeType.N, "begins_with needs a string or binary range key");
+			nameMap.put(RangeCondition.NAME, rk);
+			valueMap.putAll(rangeCondition.toValueMap());
+			keyCondition = String.format(Locale.ENGLISH, "%s and %s", keyCondition, rangeCondition.toExpression());
+		}
+		final QuerySpec spec = new QuerySpec()
+				.withKeyConditionExpression(keyCondition)
+				.withScanIndexForward(Sort.Direction.DESC != chunkable.getDirection())
+				.withReturnConsumedCapacity(roundTripCapacity());
+		if (filter != null) {
+			//the builder names its placeholders #0, :0 and so on, which do not collide with the key placeholders
+			final ScanExpressionSpec xspec = new ExpressionSpecBuilder().withCondition(filter).buildForScan();
+			spec.withFilterExpression(xspec.getFilterExpression());
+			Optional.ofNullable(xspec.getNameMap()).ifPresent(nameMap::putAll);
+			Optional.ofNullable(xspec.getValueMap()).ifPresent(valueMap::putAll);
+		}
+		spec.withNameMap(nameMap).withValueMap(valueMap);
 		if (false == Strings.isNullOrEmpty(chunkable.getPaginationToken())) {
-			spec.withExclusiveStartKey(new PrimaryKey(hashKeyName, chunkable.getPaginationToken()));
+			spec.withExclusiveStartKey(fromPaginationToken(chunkable.getPaginationToken()));
 		}
-		spec.withMaxPageSize(chunkable.getMaxPageSize()).withMaxResultSize(chunkable.getMaxPageSize());
+		return spec.withMaxPageSize(chunkable.getMaxPageSize()).withMaxResultSize(chunkable.getMaxPageSize());
+	}
 
-		final ItemCollection<ScanOutcome> results = table.scan(spec);
+	/**
+	 * adds a filter expression to a scan
+	 * @param spec the scan spec
+	 * @param filter the filter condition, or null
+	 * @return the scan spec
+	 */
+	static ScanSpec withFilter(ScanSpec spec, Condition filter) {
+		if (filter == null) {
+			return spec;
+		}
+		final ScanExpressionSpec xspec = new ExpressionSpecBuilder().withCondition(filter).buildForScan();
+		spec.withFilterExpression(xspec.getFilterExpression()).withNameMap(xspec.getNameMap());
+		if (xspec.getValueMap() != null) {
+			spec.withValueMap(xspec.getValueMap());
+		}
+		return spec;
+	}
 
-		final List<Item> itemList;
-		try {
-			itemList = Lists.newArrayList(results.iterator());
-		} catch (AmazonClientException e) {
-			throw convertDynamoDBException(e, "scan", null /* conditionMessage */);
+	/**
+	 * @param lastEvaluatedKey the LastEvaluatedKey of a scan or query result, or null
+	 * @return the key as a JSON object, or null if the result was the last page
+	 */
+	static String toPaginationToken(Map<String, AttributeValue> lastEvaluatedKey) {
+		return lastEvaluatedKey == null ? null : toItem(lastEvaluatedKey).toJSON();
+	}
+
+	/**
+	 * @param paginationToken a token created by {@link #toPaginationToken(Map)}
+	 * @return the ExclusiveStartKey to continue the scan or query at
+	 */
+	PrimaryKey fromPaginationToken(String paginationToken) {
+		if (false == paginationToken.startsWith("{")) {
+			//tokens issued before composite key support were the bare string hash key
+			return new PrimaryKey(hashKeyName, paginationToken);
 		}
-		final List<E> entities = itemList.stream()
-				.map(this::convertItemToDomain) //O(n)
-				.collect(Collectors.toList()); //O(n)
-		final Map<String, AttributeValue> lastEvaluatedKey = results.getLastLowLevelResult() == null
-				? null : results.getLastLowLevelResult().getScanResult().getLastEvaluatedKey();
-		final String paginationToken = lastEvaluatedKey == null ? null : lastEvaluatedKey.get(hashKeyName).getS();
-		return new ChunkImpl<>(entities, paginationToken, chunkable);
+		final Item item = Item.fromJSON(paginationToken);
+		return new PrimaryKey(StreamSupport.stream(item.attributes().spliterator(), false)
+				.map(attribute -> new KeyAttribute(attribute.getKey(), attribute.getValue()))
+				.toArray(KeyAttribute[]::new));
 	}
 
 	private PrimaryKey createKeys(K key) {
-		return createKeys(hashKeyName, definitions.get(hashKeyName), key);
+		Preconditions.checkNotNull(key);
+		if (rangeKeyName == null) {
+			return createKeys(hashKeyName, definitions.get(hashKeyName), key);
+		}
+		Preconditions.checkArgument(key instanceof CompositeKey,
+				"keys of a table with a range key must be a CompositeKey");
+		final CompositeKey compositeKey = (CompositeKey) key;
+		return createKeys(hashKeyName, definitions.get(hashKeyName), compositeKey.getHashKey())
+				.addComponent(rangeKeyName, checkKeyType(rangeKeyName, compositeKey.getRangeKey()));
+	}
+
+	private Object checkKeyType(String keyName, Object value) {
+		Preconditions.checkArgument(definitions.get(keyName) == scalarAttributeType(value),
+				"key " + keyName + " must be of type " + definitions.get(keyName));
+		return value;
 	}
 
-	private static <K extends Serializable> PrimaryKey createKeys(String hashKeyName,
-																  ScalarAttributeType hashKeyType,
-																  K key) {
+	private static PrimaryKey createKeys(String hashKeyName,
+										 ScalarAttributeType hashKeyType,
+										 Object key) {
 		Preconditions.checkNotNull(key);
 		Preconditions.checkArgument(hashKeyType == scalarAttributeType(key));
 
-		//hash key only
 		return new PrimaryKey().addComponent(hashKeyName, key);
 	}
 
@@ -744,6 +2595,86 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 				.withConditionExpression(conditionalCreateCondition);
 	}
 
+	/**
+	 * Enables {@link #updateBatched(Object)} and {@link #deleteBatched(Serializable)}, which group the writes of
+	 * independent threads into BatchWriteItem requests.
+	 *
+	 * @param lingerMicros how long the first write of a batch waits for other writes to join it
+	 * @param maxBatchSize number of writes that dispatches a batch immediately, at most 25 (BatchWriteItem limit)
+	 * @param maxInFlightBatches maximum number of concurrent BatchWriteItem requests
+	 * @since #version#
+	 */
+	public void enableWriteBatching(long lingerMicros, int maxBatchSize, int maxInFlightBatches) {
+		disableWriteBatching();
+		writeBatcher = new WriteBatcher(tableName(), keyAttributeNames(), dynamoDB,
+				e -> convertDynamoDBException(e, "batch write", null /*no conditions for batch writes*/),
+				lingerMicros, maxBatchSize, maxInFlightBatches, retryPolicies.get(OperationType.BATCH_WRITE));
+	}
+
+	/**
+	 * Disables write batching. Writes that were already enqueued are still written.
+	 *
+	 * @since #version#
+	 */
+	public void disableWriteBatching() {
+		final WriteBatcher batcher = writeBatcher;
+		writeBatcher = null;
+		if (batcher != null) {
+			batcher.shutdown();
+		}
+	}
+
+	/**
+	 * Enqueues an unconditional put of the domain object into the next BatchWriteItem request.
+	 * Unlike {@link #update(Object)}, the item is written whether or not it already exists, and its version is
+	 * not checked.
+	 *
+	 * @param domain the domain object to write
+	 * @param <S> the type of the domain object
+	 * @return a future completed with the domain object once it is written
+	 * @throws IllegalStateException if write batching is not enabled
+	 * @since #version#
+	 */
+	public <S extends E> CompletableFuture<S> updateBatched(S domain) {
+		Preconditions.checkNotNull(domain, "domain must not be null");
+		final WriteBatcher batcher = writeBatcher;
+		Preconditions.checkState(batcher != null, "write batching is not enabled");
+		final Item domainItem = convertDomainToItem(domain);
+		try {
+			Preconditions.checkArgument(domainItem.hasAttribute(hashKeyName),
+					"hash key must be set in domain object when updating: " + hashKeyName);
+			final Map<String, AttributeValue> rawItem = DynamoDbInternalUtils.toAttributeValues(domainItem);
+			checkItemSize("updateBatched", rawItem);
+			sampleKey(rawItem);
+			return batcher.put(rawItem).whenComplete((ignored, e) -> {
+				if (e != null) {
+					deleteOffloaded(domainItem, e);
+				}
+			}).thenApply(ignored -> domain);
+		} catch (RuntimeException e) {
+			deleteOffloaded(domainItem, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Enqueues an unconditional delete into the next BatchWriteItem request.
+	 * Unlike {@link #delete(Serializable)}, deleting an entity that does not exist succeeds.
+	 *
+	 * @param keys the keys of the entity to delete
+	 * @return a future completed once the entity is deleted
+	 * @throws IllegalStateException if write batching is not enabled
+	 * @since #version#
+	 */
+	public CompletableFuture<Void> deleteBatched(K keys) {
+		Preconditions.checkArgument(keys != null, "keys may not be null");
+		final WriteBatcher batcher = writeBatcher;
+		Preconditions.checkState(batcher != null, "write batching is not enabled");
+		final Map<String, AttributeValue> key = keyAttributes(keys);
+		sampleKey(key);
+		return batcher.delete(key);
+	}
+
 	@Override
 	public void delete(E entity) {
 		Preconditions.checkArgument(entity != null, "cannot delete null entity");
@@ -797,26 +2728,37 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 
 	@Override
 	public <S extends E> S update(S domain, VersionCondition condition) {
-		Preconditions.checkNotNull(domain, "domain must not be null");
-		final Item domainItem = convertDomainToItem(domain);
-		Preconditions.checkArgument(domainItem.hasAttribute(hashKeyName),
-				"hash key must be set in domain object when updating: " + hashKeyName);
-
-		ExpressionSpecBuilder builder = new ExpressionSpecBuilder();
-		builder.withCondition(ExpressionSpecBuilder.S(hashKeyName).exists());
-		if (condition != null) {
-			Preconditions.checkState(versionProperty != null);
-			builder.withCondition(ExpressionSpecBuilder.N(versionProperty).eq(condition.getVersion()));
-		}
-		PutItemExpressionSpec xSpec = builder.buildForPut();
-		PutItemSpec spec = new PutItemSpec().withItem(domainItem).withExpressionSpec(xSpec);
-		try {
-			table.putItem(spec);
-		} catch (AmazonClientException e) {
-			throw processUpdateItemException(getId(domain), e);
-		}
-		// PutItem does not accept ReturnValue.ALL_NEW
-		return domain;
+		return measured("update", null /*base table*/, () -> {
+			Preconditions.checkNotNull(domain, "domain must not be null");
+			final Item domainItem = convertDomainToItem(domain);
+			try {
+				Preconditions.checkArgument(domainItem.hasAttribute(hashKeyName),
+						"hash key must be set in domain object when updating: " + hashKeyName);
+
+				ExpressionSpecBuilder builder = new ExpressionSpecBuilder();
+				builder.withCondition(ExpressionSpecBuilder.S(hashKeyName).exists());
+				if (condition != null) {
+					Preconditions.checkState(versionProperty != null);
+					builder.withCondition(ExpressionSpecBuilder.N(versionProperty).eq(condition.getVersion()));
+				}
+				PutItemExpressionSpec xSpec = builder.buildForPut();
+				PutItemSpec spec = new PutItemSpec().withItem(domainItem).withExpressionSpec(xSpec)
+						.withReturnConsumedCapacity(roundTripCapacity());
+				checkItemSize("update", domainItem);
+				if (hotKeyDetector != null) {
+					sampleKey(getPrimaryKeyFromItem(domainItem));
+				}
+				retried("update", OperationType.WRITE, () -> table.putItem(spec));
+			} catch (AmazonClientException e) {
+				deleteOffloaded(domainItem, e);
+				throw processUpdateItemException(getId(domain), e);
+			} catch (RuntimeException e) {
+				deleteOffloaded(domainItem, e);
+				throw e;
+			}
+			// PutItem does not accept ReturnValue.ALL_NEW
+			return domain;
+		});
 	}
 
 	private IncorrectResultSizeDataAccessException getNotFoundException(String msg, Throwable e) {
@@ -830,23 +2772,32 @@ public abstract class DynamoDbRepository<E, K extends Serializable> implements I
 
 	@Override
 	public <S extends E> S create(S domain) {
-		if (domain == null) {
-			return null;
-		}
-		final Item domainItem = convertDomainToItem(domain);
-
-		// stackoverflow.com/questions/4460580/java-generics-why-someobject-getclass-doesnt-return-class-extends-t
-		@SuppressWarnings("unchecked")
-		final Class<? extends S> domainClass = (Class<? extends S>) domain.getClass();
-		Item itemCreated = DynamoDbInternalUtils.cloneItem(domainItem, true /*filterEmptyStrings*/);
-		PutItemSpec spec = putItemSpec(itemCreated);
-		try {
-			table.putItem(spec);
-		} catch (AmazonClientException e) {
-			throw convertDynamoDBException(e, "create",
-					() -> new DuplicateKeyException("uuid " + getId(domain) + " already exists", e));
-		}
-		return convertItemToDomain(itemCreated, domainClass);
+		return measured("create", null /*base table*/, () -> {
+			if (domain == null) {
+				return null;
+			}
+			// stackoverflow.com/questions/4460580/java-generics-why-someobject-getclass-doesnt-return-class-extends-t
+			@SuppressWarnings("unchecked")
+			final Class<? extends S> domainClass = (Class<? extends S>) domain.getClass();
+			// the entity returned is read from the item before offload, so that it needs no blob store reads
+			final Item inlineItem = DynamoDbInternalUtils.cloneItem(convertDomainToInlineItem(domain),
+					true /*filterEmptyStrings*/);
+			final BlobOffload offload = blobOffload;
+			final Item itemCreated = offload == null ? inlineItem : offload(inlineItem, offload);
+			PutItemSpec spec = putItemSpec(itemCreated).withReturnConsumedCapacity(roundTripCapacity());
+			try {
+				checkItemSize("create", itemCreated);
+				retried("create", OperationType.WRITE, () -> table.putItem(spec));
+			} catch (AmazonClientException e) {
+				deleteOffloaded(itemCreated, e);
+				throw convertDynamoDBException(e, "create",
+						() -> new DuplicateKeyException("uuid " + getId(domain) + " already exists", e));
+			} catch (RuntimeException e) {
+				deleteOffloaded(itemCreated, e);
+				throw e;
+			}
+			return convertItemToDomain(inlineItem, domainClass);
+		});
 	}
 
 	@Override
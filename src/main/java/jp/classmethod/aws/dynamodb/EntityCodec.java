@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Converts entities to DynamoDB items and back without reflection. Implementations are usually generated by the
+ * {@link EntityCodecProcessor} for classes annotated with {@link DynamoDbEntity}, and must be thread safe.
+ *
+ * <p>Attributes are named by the property names of the entity. The repository applies
+ * {@link AttributeAlias aliases}, compression and blob offload on top of the codec.</p>
+ *
+ * @param <E> the entity type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public interface EntityCodec<E> {
+
+	/**
+	 * @param entity the entity to convert
+	 * @return the attributes of the entity. Null properties are omitted
+	 */
+	Map<String, AttributeValue> encode(E entity);
+
+	/**
+	 * @param item the attributes of an item
+	 * @return the entity. Properties without an attribute keep the value set by the constructor
+	 */
+	E decode(Map<String, AttributeValue> item);
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates an {@link EntityCodec} for each class annotated with {@link DynamoDbEntity}. The codec of
+ * {@code com.example.Book} is {@code com.example.BookDynamoDbCodec}.
+ *
+ * <p>Registered as a service, so it runs whenever this library is on the annotation processor path of javac.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@SupportedAnnotationTypes("jp.classmethod.aws.dynamodb.DynamoDbEntity")
+public class EntityCodecProcessor extends AbstractProcessor {
+
+	private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+
+	private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+
+	private static final String JSON_INCLUDE = "com.fasterxml.jackson.annotation.JsonInclude";
+
+	private static final String JACKSON_PACKAGE = "com.fasterxml.jackson.";
+
+	private static final String CODECS = EntityCodecs.class.getName();
+
+	private static final String ATTRIBUTE_VALUE = "com.amazonaws.services.dynamodbv2.model.AttributeValue";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(DynamoDbEntity.class)) {
+			if (element.getKind() == ElementKind.CLASS) {
+				generate((TypeElement) element);
+			}
+		}
+		return true;
+	}
+
+	private void generate(TypeElement entity) {
+		if (entity.getNestingKind() != NestingKind.TOP_LEVEL || entity.getModifiers().contains(Modifier.ABSTRACT)
+				|| false == entity.getTypeParameters().isEmpty()
+				|| false == Object.class.getName().equals(entity.getSuperclass().toString())) {
+			skip(entity, "entity must be a concrete, non-generic top level class that extends Object");
+			return;
+		}
+		if (false == hasNoArgConstructor(entity)) {
+			skip(entity, "entity must have a non-private constructor without parameters");
+			return;
+		}
+		final String unsupported = unsupportedAnnotationOf(entity);
+		if (unsupported != null) {
+			skip(entity, "Jackson annotation " + unsupported + " is not supported");
+			return;
+		}
+		final List<ExecutableElement> methods = ElementFilter.methodsIn(entity.getEnclosedElements());
+		final List<Property> properties = new ArrayList<>();
+		for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+			final Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+					|| isIgnored(field)) {
+				continue;
+			}
+			final Property property = propertyOf(field);
+			if (property == null) {
+				skip(field, "type " + field.asType() + " of " + field.getSimpleName() + " is not supported");
+				return;
+			}
+			if (property.accessor != null && false == hasAccessors(methods, field, property.accessor)) {
+				skip(field, "private field " + field.getSimpleName() + " needs a non-private getter and setter");
+				return;
+			}
+			properties.add(property);
+		}
+		final String getter = unconvertedGetterOf(entity, methods);
+		if (getter != null) {
+			skip(entity, "public getter " + getter + " does not read a field");
+			return;
+		}
+		final String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+		final String entityName = entity.getSimpleName().toString();
+		final String codecName = entityName + EntityCodecs.CODEC_SUFFIX;
+		try (Writer writer = processingEnv.getFiler()
+				.createSourceFile(entity.getQualifiedName() + EntityCodecs.CODEC_SUFFIX, entity).openWriter();
+			 PrintWriter out = new PrintWriter(writer)) {
+			write(out, packageName, entityName, codecName, properties);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"unable to write " + codecName + ": " + e.getMessage(), entity);
+		}
+	}
+
+	private void skip(Element element, String reason) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+				"no DynamoDB codec generated, the repository will use Jackson: " + reason, element);
+	}
+
+	private static void write(PrintWriter out, String packageName, String entityName, String codecName,
+							  List<Property> properties) {
+		if (false == packageName.isEmpty()) {
+			out.printf(Locale.ENGLISH, "package %s;%n%n", packageName);
+		}
+		out.println("// generated by " + EntityCodecProcessor.class.getName() + ", do not edit");
+		out.printf(Locale.ENGLISH, "public final class %s implements %s<%s> {%n%n", codecName,
+				EntityCodec.class.getName(), entityName);
+		out.println("\t@Override");
+		out.printf(Locale.ENGLISH, "\tpublic java.util.Map<String, %s> encode(%s entity) {%n", ATTRIBUTE_VALUE,
+				entityName);
+		out.printf(Locale.ENGLISH, "\t\tfinal java.util.Map<String, %s> item = new java.util.LinkedHashMap<>();%n",
+				ATTRIBUTE_VALUE);
+		for (Property property : properties) {
+			out.printf(Locale.ENGLISH, "\t\t%s.put%s(item, %s, entity.%s);%n", CODECS, property.kind,
+					literal(property.name), property.read);
+		}
+		out.println("\t\treturn item;");
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.printf(Locale.ENGLISH, "\tpublic %s decode(java.util.Map<String, %s> item) {%n", entityName,
+				ATTRIBUTE_VALUE);
+		out.printf(Locale.ENGLISH, "\t\tfinal %s entity = new %s();%n", entityName, entityName);
+		for (int i = 0; i < properties.size(); i++) {
+			final Property property = properties.get(i);
+			out.printf(Locale.ENGLISH, "\t\tfinal %s value%d = %s.get%s(item, %s%s);%n", property.boxedType, i,
+					CODECS, property.getter, literal(property.name),
+					property.kind.equals("Enum") ? ", " + property.boxedType + ".class" : "");
+			out.printf(Locale.ENGLISH, "\t\tif (value%d != null) {%n", i);
+			out.printf(Locale.ENGLISH, "\t\t\tentity.%s;%n", property.write.replace("%s", "value" + i));
+			out.println("\t\t}");
+		}
+		out.println("\t\treturn entity;");
+		out.println("\t}");
+		out.println("}");
+	}
+
+	private static boolean hasNoArgConstructor(TypeElement entity) {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(entity.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()
+					&& false == constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the entity declares the non-private getter and setter the generated codec calls for a field
+	 */
+	private boolean hasAccessors(List<ExecutableElement> methods, VariableElement field, String accessor) {
+		final String getter = (field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get") + accessor;
+		final String setter = "set" + accessor;
+		boolean readable = false;
+		boolean writable = false;
+		for (ExecutableElement method : methods) {
+			final Set<Modifier> modifiers = method.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+				continue;
+			}
+			final String name = method.getSimpleName().toString();
+			if (name.equals(getter) && method.getParameters().isEmpty()
+					&& processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+				readable = true;
+			} else if (name.equals(setter) && method.getParameters().size() == 1
+					&& processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(),
+							field.asType())) {
+				writable = true;
+			}
+		}
+		return readable && writable;
+	}
+
+	/**
+	 * Jackson also writes the properties of public getters without a field, and of transient fields with a getter.
+	 *
+	 * @return the name of the first public getter that Jackson would write but the codec would not, or null
+	 */
+	private static String unconvertedGetterOf(TypeElement entity, List<ExecutableElement> methods) {
+		final Set<String> fields = new HashSet<>();
+		for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+			if (false == field.getModifiers().contains(Modifier.STATIC)
+					&& false == field.getModifiers().contains(Modifier.TRANSIENT)) {
+				final String name = field.getSimpleName().toString();
+				fields.add(Character.toUpperCase(name.charAt(0)) + name.substring(1));
+			}
+		}
+		for (ExecutableElement method : methods) {
+			final Set<Modifier> modifiers = method.getModifiers();
+			if (false == modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+					|| false == method.getParameters().isEmpty()) {
+				continue;
+			}
+			final String name = method.getSimpleName().toString();
+			final TypeKind returned = method.getReturnType().getKind();
+			final String property;
+			if (name.startsWith("get") && name.length() > 3 && returned != TypeKind.VOID) {
+				property = name.substring(3);
+			} else if (name.startsWith("is") && name.length() > 2 && returned == TypeKind.BOOLEAN) {
+				property = name.substring(2);
+			} else {
+				continue;
+			}
+			if (false == fields.contains(property)) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Jackson annotations change the JSON of an entity in ways the generated codec does not follow. The codec only
+	 * follows {@code @JsonInclude} on the class and {@code @JsonProperty} and {@code @JsonIgnore} on fields.
+	 *
+	 * @return the first Jackson annotation of the entity, its constructors or methods that the codec does not
+	 * follow, or null if there is none
+	 */
+	private static String unsupportedAnnotationOf(TypeElement entity) {
+		for (AnnotationMirror annotation : entity.getAnnotationMirrors()) {
+			final String type = annotation.getAnnotationType().toString();
+			if (type.startsWith(JACKSON_PACKAGE) && false == type.equals(JSON_INCLUDE)) {
+				return type;
+			}
+		}
+		for (Element member : entity.getEnclosedElements()) {
+			final boolean field = member.getKind() == ElementKind.FIELD;
+			for (AnnotationMirror annotation : member.getAnnotationMirrors()) {
+				final String type = annotation.getAnnotationType().toString();
+				if (type.startsWith(JACKSON_PACKAGE)
+						&& (false == field || false == (type.equals(JSON_PROPERTY) || type.equals(JSON_IGNORE)))) {
+					return type;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the enum or one of its constants or methods carries a Jackson annotation, such as
+	 * {@code @JsonValue} or {@code @JsonProperty}, that makes Jackson write it other than by its name
+	 */
+	private static boolean isAnnotatedEnum(TypeElement type) {
+		if (hasJacksonAnnotation(type)) {
+			return true;
+		}
+		for (Element member : type.getEnclosedElements()) {
+			if (hasJacksonAnnotation(member)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasJacksonAnnotation(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (annotation.getAnnotationType().toString().startsWith(JACKSON_PACKAGE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String literal(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	/**
+	 * @return the property of a field, or null if the type of the field is not supported
+	 */
+	private Property propertyOf(VariableElement field) {
+		final TypeMirror type = field.asType();
+		final String typeName;
+		if (type.getKind().isPrimitive()) {
+			typeName = processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+					.getQualifiedName().toString();
+		} else if (type.getKind() == TypeKind.DECLARED) {
+			typeName = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		} else {
+			return null;
+		}
+		final String kind;
+		final String getter;
+		switch (typeName) {
+			case "java.lang.String":
+				kind = "String";
+				getter = "String";
+				break;
+			case "java.lang.Boolean":
+				kind = "Boolean";
+				getter = "Boolean";
+				break;
+			case "java.lang.Long":
+			case "java.lang.Integer":
+			case "java.lang.Short":
+			case "java.lang.Byte":
+			case "java.lang.Double":
+			case "java.lang.Float":
+			case "java.math.BigDecimal":
+			case "java.math.BigInteger":
+				kind = "Number";
+				getter = typeName.substring(typeName.lastIndexOf('.') + 1);
+				break;
+			default:
+				final TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+				if (element.getKind() != ElementKind.ENUM || isAnnotatedEnum(element)) {
+					return null;
+				}
+				kind = "Enum";
+				getter = "Enum";
+		}
+		final String fieldName = field.getSimpleName().toString();
+		final String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+		final boolean direct = false == field.getModifiers().contains(Modifier.PRIVATE);
+		final String read = direct ? fieldName
+				: (type.getKind() == TypeKind.BOOLEAN ? "is" : "get") + capitalized + "()";
+		final String write = direct ? fieldName + " = %s" : "set" + capitalized + "(%s)";
+		return new Property(nameOf(field), kind, getter, typeName, read, write, direct ? null : capitalized);
+	}
+
+	private static String nameOf(VariableElement field) {
+		for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+			if (annotation.getAnnotationType().toString().equals(JSON_PROPERTY)) {
+				final String value = stringValue(annotation, "value");
+				if (value != null && false == value.isEmpty()) {
+					return value;
+				}
+			}
+		}
+		return field.getSimpleName().toString();
+	}
+
+	private static boolean isIgnored(VariableElement field) {
+		for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+			if (annotation.getAnnotationType().toString().equals(JSON_IGNORE)) {
+				return false == "false".equals(stringValue(annotation, "value"));
+			}
+		}
+		return false;
+	}
+
+	private static String stringValue(AnnotationMirror annotation, String name) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+				: annotation.getElementValues().entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return String.valueOf(entry.getValue().getValue());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * a converted field of an entity
+	 */
+	private static final class Property {
+
+		/**the attribute name**/
+		private final String name;
+
+		/**the suffix of the EntityCodecs put method**/
+		private final String kind;
+
+		/**the suffix of the EntityCodecs get method**/
+		private final String getter;
+
+		/**the boxed type of the field**/
+		private final String boxedType;
+
+		/**the expression that reads the field from the entity**/
+		private final String read;
+
+		/**the format of the statement that writes the field of the entity**/
+		private final String write;
+
+		/**the capitalized field name of the accessors, or null if the field is accessed directly**/
+		private final String accessor;
+
+		private Property(String name, String kind, String getter, String boxedType, String read, String write,
+						 String accessor) {
+			this.name = name;
+			this.kind = kind;
+			this.getter = getter;
+			this.boxedType = boxedType;
+			this.read = read;
+			this.write = write;
+			this.accessor = accessor;
+		}
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Preconditions;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Reads and writes the attribute values of the scalar types supported by generated {@link EntityCodec codecs}.
+ * Values are written the way the Document API writes the JSON of an {@code ObjectMapper} with its default
+ * configuration, and null values are omitted as with {@code @JsonInclude(NON_NULL)}. Items written by a codec and
+ * by Jackson are interchangeable only as long as the object mapper of the repository keeps that configuration.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public final class EntityCodecs {
+
+	/**suffix of the names of generated codecs**/
+	static final String CODEC_SUFFIX = "DynamoDbCodec";
+
+	/**largest value Jackson reads into a byte, as an unsigned byte**/
+	private static final int UNSIGNED_BYTE_MAX = 255;
+
+	private EntityCodecs() {
+	}
+
+	/**
+	 * @param entityClass the entity class
+	 * @param <E> the entity type
+	 * @return a new instance of the codec generated for the class, or null if none was generated
+	 * @throws IllegalStateException if the generated codec can not be instantiated
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> EntityCodec<E> generatedCodecOf(Class<E> entityClass) {
+		if (entityClass == null) {
+			return null;
+		}
+		final Class<?> codecClass;
+		try {
+			codecClass = Class.forName(entityClass.getName() + CODEC_SUFFIX, true, entityClass.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		if (false == EntityCodec.class.isAssignableFrom(codecClass)) {
+			return null;
+		}
+		try {
+			return (EntityCodec<E>) codecClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("unable to instantiate codec " + codecClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Writes a string attribute.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @param value the value, or null to omit the attribute
+	 */
+	public static void putString(Map<String, AttributeValue> item, String name, String value) {
+		if (value != null) {
+			item.put(name, new AttributeValue().withS(value));
+		}
+	}
+
+	/**
+	 * Writes a number attribute, in plain notation.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @param value the value, or null to omit the attribute
+	 */
+	public static void putNumber(Map<String, AttributeValue> item, String name, Number value) {
+		if (value == null) {
+			return;
+		}
+		final String number;
+		if (value instanceof BigDecimal) {
+			number = ((BigDecimal) value).toPlainString();
+		} else if (value instanceof Double || value instanceof Float) {
+			number = new BigDecimal(value.toString()).toPlainString();
+		} else {
+			number = value.toString();
+		}
+		item.put(name, new AttributeValue().withN(number));
+	}
+
+	/**
+	 * Writes a boolean attribute.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @param value the value, or null to omit the attribute
+	 */
+	public static void putBoolean(Map<String, AttributeValue> item, String name, Boolean value) {
+		if (value != null) {
+			item.put(name, new AttributeValue().withBOOL(value));
+		}
+	}
+
+	/**
+	 * Writes an enum as a string attribute holding its name.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @param value the value, or null to omit the attribute
+	 */
+	public static void putEnum(Map<String, AttributeValue> item, String name, Enum<?> value) {
+		if (value != null) {
+			item.put(name, new AttributeValue().withS(value.name()));
+		}
+	}
+
+	/**
+	 * Reads an attribute as a string. Like Jackson, numbers and booleans read as their text, and binary values as
+	 * their Base64 text.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is a list, a map or a set
+	 */
+	public static String getString(Map<String, AttributeValue> item, String name) {
+		final AttributeValue value = item.get(name);
+		if (value == null || value.getS() != null) {
+			return value == null ? null : value.getS();
+		} else if (value.getN() != null) {
+			return new BigDecimal(value.getN()).toString();
+		} else if (value.getBOOL() != null) {
+			return value.getBOOL().toString();
+		} else if (value.getB() != null) {
+			final ByteBuffer buffer = value.getB().duplicate();
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return BaseEncoding.base64().encode(bytes);
+		} else if (Boolean.TRUE.equals(value.getNULL())) {
+			return null;
+		}
+		throw mismatch(name, value, "String");
+	}
+
+	/**
+	 * Reads an attribute as a decimal. Like Jackson, strings are parsed, and empty strings read as null.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is neither a number nor a string holding a number
+	 */
+	public static BigDecimal getBigDecimal(Map<String, AttributeValue> item, String name) {
+		final AttributeValue value = item.get(name);
+		if (value == null || value.getN() != null) {
+			return value == null ? null : new BigDecimal(value.getN());
+		}
+		final String text = textOf(name, value, "BigDecimal");
+		try {
+			return text == null ? null : new BigDecimal(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("attribute " + name + " is not a valid BigDecimal: " + text, e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as an integer. Like Jackson, the fraction of a number is truncated, strings holding an
+	 * integer are parsed, and empty strings read as null.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is neither a number nor a string holding an integer
+	 */
+	public static BigInteger getBigInteger(Map<String, AttributeValue> item, String name) {
+		final AttributeValue value = item.get(name);
+		if (value == null || value.getN() != null) {
+			return value == null ? null : new BigDecimal(value.getN()).toBigInteger();
+		}
+		final String text = textOf(name, value, "BigInteger");
+		try {
+			return text == null ? null : new BigInteger(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("attribute " + name + " is not a valid BigInteger: " + text, e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as a long, like {@link #getBigInteger(Map, String)}.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is not an integer, or is out of the range of a long
+	 */
+	public static Long getLong(Map<String, AttributeValue> item, String name) {
+		final BigInteger value = getBigInteger(item, name);
+		try {
+			return value == null ? null : value.longValueExact();
+		} catch (ArithmeticException e) {
+			throw outOfRange(name, value, "Long", e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as an int, like {@link #getBigInteger(Map, String)}.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is not an integer, or is out of the range of an int
+	 */
+	public static Integer getInteger(Map<String, AttributeValue> item, String name) {
+		final BigInteger value = getBigInteger(item, name);
+		try {
+			return value == null ? null : value.intValueExact();
+		} catch (ArithmeticException e) {
+			throw outOfRange(name, value, "Integer", e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as a short, like {@link #getBigInteger(Map, String)}.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is not an integer, or is out of the range of a short
+	 */
+	public static Short getShort(Map<String, AttributeValue> item, String name) {
+		final BigInteger value = getBigInteger(item, name);
+		try {
+			return value == null ? null : value.shortValueExact();
+		} catch (ArithmeticException e) {
+			throw outOfRange(name, value, "Short", e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as a byte, like {@link #getBigInteger(Map, String)}. Like Jackson, values from 128 to 255
+	 * are read as unsigned bytes.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is not an integer, or is out of the range from -128 to 255
+	 */
+	public static Byte getByte(Map<String, AttributeValue> item, String name) {
+		final BigInteger value = getBigInteger(item, name);
+		if (value == null) {
+			return null;
+		} else if (value.compareTo(BigInteger.valueOf(Byte.MIN_VALUE)) < 0
+				|| value.compareTo(BigInteger.valueOf(UNSIGNED_BYTE_MAX)) > 0) {
+			throw outOfRange(name, value, "Byte", null);
+		}
+		return (byte) value.intValue();
+	}
+
+	/**
+	 * Reads an attribute as a double. Like Jackson, strings are parsed, including {@code NaN} and
+	 * {@code Infinity}, and empty strings read as null.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is neither a number nor a string holding a number
+	 */
+	public static Double getDouble(Map<String, AttributeValue> item, String name) {
+		final AttributeValue value = item.get(name);
+		if (value == null || value.getN() != null) {
+			return value == null ? null : Double.valueOf(value.getN());
+		}
+		final String text = textOf(name, value, "Double");
+		try {
+			return text == null ? null : Double.valueOf(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("attribute " + name + " is not a valid Double: " + text, e);
+		}
+	}
+
+	/**
+	 * Reads an attribute as a float, like {@link #getDouble(Map, String)}.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute is neither a number nor a string holding a number
+	 */
+	public static Float getFloat(Map<String, AttributeValue> item, String name) {
+		final Double value = getDouble(item, name);
+		return value == null ? null : value.floatValue();
+	}
+
+	/**
+	 * Reads an attribute as a boolean. Like Jackson, the strings {@code true}, {@code True}, {@code false} and
+	 * {@code False} are parsed, empty strings read as null, and integers read as true unless they are zero.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute can not be read as a boolean
+	 */
+	public static Boolean getBoolean(Map<String, AttributeValue> item, String name) {
+		final AttributeValue value = item.get(name);
+		if (value == null || value.getBOOL() != null) {
+			return value == null ? null : value.getBOOL();
+		} else if (value.getN() != null) {
+			final BigDecimal number = new BigDecimal(value.getN());
+			if (number.scale() > 0) {
+				throw mismatch(name, value, "Boolean");
+			}
+			return number.signum() != 0;
+		} else if (Boolean.TRUE.equals(value.getNULL())) {
+			return null;
+		} else if (value.getS() == null) {
+			throw mismatch(name, value, "Boolean");
+		}
+		final String text = value.getS().trim();
+		if ("true".equals(text) || "True".equals(text)) {
+			return Boolean.TRUE;
+		} else if ("false".equals(text) || "False".equals(text)) {
+			return Boolean.FALSE;
+		} else if (text.isEmpty() || "null".equals(text)) {
+			return null;
+		}
+		throw new IllegalArgumentException("attribute " + name + " is not a valid Boolean: " + text);
+	}
+
+	/**
+	 * Reads an attribute as an enum constant. Like Jackson, strings are read by constant name and numbers by
+	 * ordinal.
+	 *
+	 * @param item the attributes of the item
+	 * @param name the attribute name
+	 * @param type the enum class
+	 * @param <T> the enum type
+	 * @return the value, or null if the attribute is absent or null
+	 * @throws IllegalArgumentException if the attribute names no constant of the enum
+	 */
+	public static <T extends Enum<T>> T getEnum(Map<String, AttributeValue> item, String name, Class<T> type) {
+		final AttributeValue value = item.get(name);
+		if (value == null) {
+			return null;
+		} else if (value.getS() != null) {
+			try {
+				return Enum.valueOf(type, value.getS());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(
+						"attribute " + name + " is not a constant of " + type.getSimpleName() + ": " + value.getS(), e);
+			}
+		} else if (value.getN() != null) {
+			final T[] constants = type.getEnumConstants();
+			final Integer ordinal = getInteger(item, name);
+			Preconditions.checkArgument(ordinal >= 0 && ordinal < constants.length,
+					"attribute %s is not an ordinal of %s: %s", name, type.getSimpleName(), ordinal);
+			return constants[ordinal];
+		} else if (Boolean.TRUE.equals(value.getNULL())) {
+			return null;
+		}
+		throw mismatch(name, value, type.getSimpleName());
+	}
+
+	/**
+	 * @return the trimmed string of an attribute read as a number, null for null attributes, empty strings and the
+	 * string {@code null}
+	 * @throws IllegalArgumentException if the attribute is not a string
+	 */
+	private static String textOf(String name, AttributeValue value, String type) {
+		if (Boolean.TRUE.equals(value.getNULL())) {
+			return null;
+		} else if (value.getS() == null) {
+			throw mismatch(name, value, type);
+		}
+		final String text = value.getS().trim();
+		return text.isEmpty() || "null".equals(text) ? null : text;
+	}
+
+	private static IllegalArgumentException mismatch(String name, AttributeValue value, String type) {
+		return new IllegalArgumentException("attribute " + name + " can not be read as " + type + ": " + value);
+	}
+
+	private static IllegalArgumentException outOfRange(String name, BigInteger value, String type,
+													   ArithmeticException cause) {
+		return new IllegalArgumentException("attribute " + name + " is out of the range of " + type + ": " + value,
+				cause);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+
+/**
+ * Stores each checkpoint as a small JSON file in a local directory, named {@code <jobId>.<segment>.checkpoint}.
+ * Files are replaced atomically, so a crash leaves either the previous or the new checkpoint.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+	private static final String EXTENSION = ".checkpoint";
+
+	private static final Pattern JOB_ID = Pattern.compile("[A-Za-z0-9_\\-]+");
+
+	private final Path directory;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param directory the directory to keep the checkpoint files in. Created if it does not exist
+	 * @since #version#
+	 */
+	public FileCheckpointStore(Path directory) {
+		Preconditions.checkNotNull(directory, "directory must not be null");
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to create checkpoint directory " + directory, e);
+		}
+	}
+
+	@Override
+	public SegmentCheckpoint load(String jobId, int segment) {
+		final Path file = fileOf(jobId, segment);
+		if (false == Files.exists(file)) {
+			return null;
+		}
+		try {
+			return objectMapper.readValue(file.toFile(), SegmentCheckpoint.class);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to read checkpoint " + file, e);
+		}
+	}
+
+	@Override
+	public void save(String jobId, SegmentCheckpoint checkpoint) {
+		Preconditions.checkNotNull(checkpoint, "checkpoint must not be null");
+		final Path file = fileOf(jobId, checkpoint.getSegment());
+		try {
+			final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			Files.write(temp, objectMapper.writeValueAsBytes(checkpoint));
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to write checkpoint " + file, e);
+		}
+	}
+
+	@Override
+	public void clear(String jobId) {
+		checkJobId(jobId);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, jobId + ".*" + EXTENSION)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to clear checkpoints of " + jobId, e);
+		}
+	}
+
+	private Path fileOf(String jobId, int segment) {
+		checkJobId(jobId);
+		return directory.resolve(String.format(Locale.ENGLISH, "%s.%d%s", jobId, segment, EXTENSION));
+	}
+
+	private static void checkJobId(String jobId) {
+		Preconditions.checkArgument(jobId != null && JOB_ID.matcher(jobId).matches(),
+				"jobId must consist of letters, digits, underscores and hyphens");
+	}
+}
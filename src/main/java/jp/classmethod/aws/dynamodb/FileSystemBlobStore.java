@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Stores each blob as a file in a local directory, named {@code <blobId>.blob}. Files are written atomically, so a
+ * reader never sees a partially written blob. Intended for tests and single host deployments.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+	private static final String EXTENSION = ".blob";
+
+	private static final Pattern BLOB_ID = Pattern.compile("[A-Za-z0-9_\\-][A-Za-z0-9_.\\-]*");
+
+	private final Path directory;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param directory the directory to keep the blob files in. Created if it does not exist
+	 * @since #version#
+	 */
+	public FileSystemBlobStore(Path directory) {
+		Preconditions.checkNotNull(directory, "directory must not be null");
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to create blob directory " + directory, e);
+		}
+	}
+
+	@Override
+	public void put(String blobId, byte[] content) {
+		Preconditions.checkNotNull(content, "content must not be null");
+		final Path file = fileOf(blobId);
+		try {
+			final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			Files.write(temp, content);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to write blob " + file, e);
+		}
+	}
+
+	@Override
+	public byte[] get(String blobId) {
+		final Path file = fileOf(blobId);
+		try {
+			return Files.readAllBytes(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to read blob " + file, e);
+		}
+	}
+
+	@Override
+	public void delete(String blobId) {
+		final Path file = fileOf(blobId);
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new DataAccessResourceFailureException("unable to delete blob " + file, e);
+		}
+	}
+
+	private Path fileOf(String blobId) {
+		Preconditions.checkArgument(blobId != null && BLOB_ID.matcher(blobId).matches(),
+				"blobId must consist of letters, digits, underscores, hyphens and dots");
+		return directory.resolve(blobId + EXTENSION);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.function.Supplier;
+
+/**
+ * Emits the Java Flight Recorder events of repositories: a {@link RoundTripEvent} per DynamoDB request and a
+ * {@link SerializationEvent} per conversion between entities and JSON. Events cost a disabled-check when no recording
+ * is running. On JVMs without the {@code jdk.jfr} module the event classes are never loaded and calls go straight
+ * through.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+final class FlightRecorderEvents {
+
+	private static final boolean AVAILABLE = isAvailable();
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * issues a DynamoDB request, recording it as a round trip event
+	 * @param tableName the table of the request
+	 * @param indexName the GSI of the request, or null for the base table
+	 * @param operation the repository operation that issued the request
+	 * @param request issues the request, consuming all pages of lazy results
+	 * @param <T> the result type
+	 * @return the result of the request
+	 */
+	static <T> T roundTrip(String tableName, String indexName, String operation, Supplier<T> request) {
+		return AVAILABLE ? RoundTripEvent.time(tableName, indexName, operation, request) : request.get();
+	}
+
+	/**
+	 * @return true while a recording enables round trip events. Requests then ask for their consumed capacity, so
+	 * that the events carry it
+	 */
+	static boolean isRecordingRoundTrips() {
+		return AVAILABLE && RoundTripEvent.isRecording();
+	}
+
+	/**
+	 * converts between an entity and JSON, recording the conversion as a serialization event
+	 * @param tableName the table of the repository
+	 * @param step serialize or deserialize
+	 * @param type the entity class
+	 * @param json the JSON document, for deserialization. Null for serialization
+	 * @param conversion the conversion
+	 * @param <T> the result type, the entity or the JSON document
+	 * @return the result of the conversion
+	 */
+	static <T> T serialization(String tableName, String step, Class<?> type, String json, Supplier<T> conversion) {
+		return AVAILABLE ? SerializationEvent.time(tableName, step, type, json, conversion) : conversion.get();
+	}
+}
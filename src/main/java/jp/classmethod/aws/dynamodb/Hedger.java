@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Issues idempotent reads according to a {@link HedgingPolicy}, keeping one latency {@link Histogram} per operation.
+ *
+ * <p>The hedge budget is a token bucket: every read adds {@code maxHedgeRatio} tokens and every hedge takes one,
+ * so hedges never exceed that fraction of reads plus a small burst.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+class Hedger {
+
+	/**maximum burst of hedges, in tokens**/
+	private static final long MAX_BUDGET_MILLITOKENS = 10_000L;
+
+	@Getter
+	private final HedgingPolicy policy;
+
+	private final ConcurrentMap<String, Histogram> histograms;
+
+	private final ExecutorService executor;
+
+	/**hedge budget in thousandths of a hedge**/
+	private final AtomicLong budget = new AtomicLong();
+
+	private final long millitokensPerRead;
+
+	@Getter
+	private final AtomicLong hedgeCount = new AtomicLong();
+
+
+	Hedger(String name, HedgingPolicy policy, ConcurrentMap<String, Histogram> histograms) {
+		Preconditions.checkNotNull(policy, "policy must not be null");
+		this.policy = policy;
+		this.histograms = histograms;
+		this.millitokensPerRead = Math.round(policy.getMaxHedgeRatio() * 1000);
+		this.executor = Executors.newCachedThreadPool(AutoBatcher.daemonThreadFactory(name + "-hedge"));
+	}
+
+	static Histogram histogramFor(ConcurrentMap<String, Histogram> histograms, String operation) {
+		return histograms.computeIfAbsent(operation, ignored -> new Histogram(100_000L /*decayThreshold*/));
+	}
+
+	/**
+	 * Runs the read, and runs it again if the first attempt is slower than the policy's latency quantile.
+	 *
+	 * @param operation name of the operation, which selects the latency histogram
+	 * @param read the idempotent read. Must be safe to run twice concurrently
+	 * @param <T> the result type
+	 * @return the result of the first attempt that succeeds
+	 */
+	<T> T call(String operation, Supplier<T> read) {
+		final Histogram histogram = histogramFor(histograms, operation);
+		addBudget();
+		final CompletableFuture<T> primary = submit(read, histogram);
+		if (histogram.getCount() < policy.getMinSamples()) {
+			return await(primary);
+		}
+		final long delayNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(policy.getMinDelayMicros()),
+				Math.min(TimeUnit.MICROSECONDS.toNanos(policy.getMaxDelayMicros()),
+						histogram.getValueAtQuantile(policy.getQuantile())));
+		try {
+			return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			if (false == tryTakeBudget()) {
+				return await(primary);
+			}
+			hedgeCount.incrementAndGet();
+			return await(firstSuccessful(primary, submit(read, histogram)));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new CompletionException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for read", e);
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(Supplier<T> read, Histogram histogram) {
+		final long start = System.nanoTime();
+		return CompletableFuture.supplyAsync(read, executor)
+				.whenComplete((result, failure) -> histogram.record(System.nanoTime() - start));
+	}
+
+	private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+		final CompletableFuture<T> winner = new CompletableFuture<>();
+		final AtomicInteger failures = new AtomicInteger();
+		final CompletableFuture<?>[] attempts = {a, b};
+		for (CompletableFuture<?> attempt : attempts) {
+			@SuppressWarnings("unchecked")
+			final CompletableFuture<T> typed = (CompletableFuture<T>) attempt;
+			typed.whenComplete((result, failure) -> {
+				if (failure == null) {
+					winner.complete(result);
+				} else if (failures.incrementAndGet() == attempts.length) {
+					winner.completeExceptionally(failure);
+				}
+			});
+		}
+		return winner;
+	}
+
+	private void addBudget() {
+		long current;
+		do {
+			current = budget.get();
+			if (current >= MAX_BUDGET_MILLITOKENS) {
+				return;
+			}
+		} while (false == budget.compareAndSet(current, Math.min(MAX_BUDGET_MILLITOKENS, current + millitokensPerRead)));
+	}
+
+	private boolean tryTakeBudget() {
+		long current;
+		do {
+			current = budget.get();
+			if (current < 1000L) {
+				return false;
+			}
+		} while (false == budget.compareAndSet(current, current - 1000L));
+		return true;
+	}
+
+	private static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Configures hedged reads: if a read has not completed after a delay taken from the observed latency distribution,
+ * the same read is issued again and the first successful answer wins.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+public class HedgingPolicy {
+
+	/**
+	 * @return a policy that hedges after the 95th percentile latency, between 5ms and 1s, for at most 5% of reads,
+	 * once 100 latencies have been observed
+	 */
+	public static HedgingPolicy defaultPolicy() {
+		return new HedgingPolicy(0.95, 5_000L, 1_000_000L, 0.05, 100L);
+	}
+
+	/**latency quantile after which a read is hedged**/
+	@Getter
+	private final double quantile;
+
+	/**lower bound of the hedging delay**/
+	@Getter
+	private final long minDelayMicros;
+
+	/**upper bound of the hedging delay**/
+	@Getter
+	private final long maxDelayMicros;
+
+	/**maximum number of hedges per read issued, between 0 and 1**/
+	@Getter
+	private final double maxHedgeRatio;
+
+	/**number of latencies to observe before hedging**/
+	@Getter
+	private final long minSamples;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param quantile latency quantile after which a read is hedged, for example 0.95
+	 * @param minDelayMicros lower bound of the hedging delay
+	 * @param maxDelayMicros upper bound of the hedging delay
+	 * @param maxHedgeRatio budget of hedges per read issued, for example 0.05 to add at most 5% extra reads
+	 * @param minSamples number of latencies to observe before hedging
+	 * @since #version#
+	 */
+	public HedgingPolicy(double quantile, long minDelayMicros, long maxDelayMicros, double maxHedgeRatio,
+						 long minSamples) {
+		Preconditions.checkArgument(quantile > 0.0 && quantile < 1.0, "quantile must be between 0 and 1");
+		Preconditions.checkArgument(minDelayMicros >= 0, "minDelayMicros must not be negative");
+		Preconditions.checkArgument(maxDelayMicros >= minDelayMicros, "maxDelayMicros must be >= minDelayMicros");
+		Preconditions.checkArgument(maxHedgeRatio >= 0.0 && maxHedgeRatio <= 1.0,
+				"maxHedgeRatio must be between 0 and 1");
+		Preconditions.checkArgument(minSamples >= 0, "minSamples must not be negative");
+		this.quantile = quantile;
+		this.minDelayMicros = minDelayMicros;
+		this.maxDelayMicros = maxDelayMicros;
+		this.maxHedgeRatio = maxHedgeRatio;
+		this.minSamples = minSamples;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Lock-free log-linear histogram of non-negative long values, such as latencies in nanoseconds or sizes in bytes.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so a reported percentile is within
+ * 12.5% of the recorded value. When {@code decayThreshold} values have been recorded, all counts are halved so the
+ * distribution follows recent values.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final long decayThreshold;
+
+
+	/**
+	 * Create instance that never decays.
+	 *
+	 * @since #version#
+	 */
+	public Histogram() {
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create instance.
+	 *
+	 * @param decayThreshold number of recorded values after which all counts are halved
+	 * @since #version#
+	 */
+	public Histogram(long decayThreshold) {
+		Preconditions.checkArgument(decayThreshold > 1, "decayThreshold must be greater than one");
+		this.decayThreshold = decayThreshold;
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int shift = magnitude - SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	/**
+	 * Records one value. Negative values are recorded as zero.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		final long v = Math.max(0L, value);
+		counts.incrementAndGet(bucketOf(v));
+		sum.addAndGet(v);
+		if (count.incrementAndGet() >= decayThreshold) {
+			decay();
+		}
+	}
+
+	private synchronized void decay() {
+		if (count.get() < decayThreshold) {
+			//another thread decayed already
+			return;
+		}
+		long remaining = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long c;
+			do {
+				c = counts.get(i);
+			} while (false == counts.compareAndSet(i, c, c / 2));
+			remaining += c / 2;
+		}
+		final long before = count.getAndSet(remaining);
+		sum.set(before == 0 ? 0 : sum.get() / before * remaining);
+	}
+
+	/**
+	 * @return the number of values currently represented by the histogram
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the mean of the values currently represented by the histogram, or zero if it is empty
+	 */
+	public double getMean() {
+		final long c = count.get();
+		return c == 0 ? 0.0 : (double) sum.get() / c;
+	}
+
+	/**
+	 * Returns an upper bound of the value at a quantile.
+	 *
+	 * @param quantile the quantile between 0 and 1, for example 0.99 for the 99th percentile
+	 * @return the upper bound of the bucket containing the quantile, or zero if the histogram is empty
+	 */
+	public long getValueAtQuantile(double quantile) {
+		Preconditions.checkArgument(quantile >= 0.0 && quantile <= 1.0, "quantile must be between 0 and 1");
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return upperBoundOf(i);
+			}
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0L);
+		}
+		count.set(0L);
+		sum.set(0L);
+	}
+}
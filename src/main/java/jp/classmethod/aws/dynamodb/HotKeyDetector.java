@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Finds the most accessed keys of a table from a sample of its accesses: sampled keys feed a
+ * {@link CountMinSketch}, and the keys with the highest estimates are kept as top-K heavy hitter candidates.
+ * Accesses are counted in windows; {@link #rotate()} closes the current window and returns its snapshot.
+ *
+ * <p>Recording a key is lock-free unless its estimate is high enough to enter a full candidate set, which then
+ * briefly locks to evict the smallest candidate.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class HotKeyDetector {
+
+	/**sketch width, bounding the overestimate to about 0.07% of the window's sampled accesses**/
+	private static final int SKETCH_WIDTH = 4096;
+
+	/**sketch depth, bounding the probability of a larger overestimate to about 1%**/
+	private static final int SKETCH_DEPTH = 5;
+
+	@Getter
+	private final String tableName;
+
+	/**fraction of the accesses that are recorded, between 0 and 1**/
+	@Getter
+	private final double sampleRate;
+
+	/**number of hot keys to keep per window**/
+	@Getter
+	private final int topK;
+
+	private volatile Window window = new Window();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param tableName the table whose accesses are recorded
+	 * @param sampleRate fraction of the accesses to record, in (0, 1]
+	 * @param topK number of hot keys to keep per window
+	 * @since #version#
+	 */
+	public HotKeyDetector(String tableName, double sampleRate, int topK) {
+		Preconditions.checkNotNull(tableName, "tableName must not be null");
+		Preconditions.checkArgument(sampleRate > 0.0 && sampleRate <= 1.0, "sampleRate must be in (0, 1]");
+		Preconditions.checkArgument(topK > 0, "topK must be positive");
+		this.tableName = tableName;
+		this.sampleRate = sampleRate;
+		this.topK = topK;
+	}
+
+	/**
+	 * @return true if the caller should record the current access
+	 */
+	public boolean sample() {
+		return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+	}
+
+	/**
+	 * Records a sampled access.
+	 *
+	 * @param key the accessed key
+	 */
+	public void record(String key) {
+		window.record(key);
+	}
+
+	/**
+	 * @return the snapshot of the current window, which stays open
+	 */
+	public HotKeySnapshot peek() {
+		return window.snapshot(System.currentTimeMillis());
+	}
+
+	/**
+	 * Closes the current window and opens a new one.
+	 *
+	 * @return the snapshot of the closed window
+	 */
+	public synchronized HotKeySnapshot rotate() {
+		final Window closed = window;
+		window = new Window();
+		return closed.snapshot(System.currentTimeMillis());
+	}
+
+	private final class Window {
+
+		private final long startMillis = System.currentTimeMillis();
+
+		private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+
+		private final LongAdder sampled = new LongAdder();
+
+		/**heavy hitter candidates and their latest estimates**/
+		private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+
+		/**smallest estimate in a full candidate set, zero while it is not full**/
+		private volatile long threshold;
+
+		void record(String key) {
+			sampled.increment();
+			final long estimate = sketch.add(key);
+			if (candidates.computeIfPresent(key, (k, previous) -> Math.max(previous, estimate)) != null
+					|| estimate <= threshold) {
+				return;
+			}
+			synchronized (this) {
+				candidates.put(key, estimate);
+				if (candidates.size() > topK) {
+					candidates.entrySet().stream()
+							.min(Map.Entry.comparingByValue())
+							.ifPresent(smallest -> candidates.remove(smallest.getKey()));
+				}
+				if (candidates.size() >= topK) {
+					threshold = candidates.values().stream().mapToLong(Long::longValue).min().orElse(0L);
+				}
+			}
+		}
+
+		HotKeySnapshot snapshot(long endMillis) {
+			final long total = sampled.sum();
+			final List<HotKeySnapshot.HotKey> hotKeys = new ArrayList<>();
+			candidates.forEach((key, estimate) -> hotKeys.add(new HotKeySnapshot.HotKey(key, estimate,
+					Math.round(estimate / sampleRate), total == 0 ? 0.0 : (double) estimate / total)));
+			hotKeys.sort(Comparator.comparingLong(HotKeySnapshot.HotKey::getSampledAccesses).reversed());
+			return new HotKeySnapshot(tableName, startMillis, endMillis, total, hotKeys);
+		}
+	}
+}
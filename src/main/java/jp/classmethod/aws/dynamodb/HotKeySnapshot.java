@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * The most accessed keys of a table during one window of a {@link HotKeyDetector}.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class HotKeySnapshot {
+
+	/**
+	 * A frequently accessed key.
+	 */
+	@Getter
+	@ToString
+	@EqualsAndHashCode
+	@RequiredArgsConstructor
+	public static class HotKey {
+
+		/**the primary key attributes, rendered as name=value pairs**/
+		private final String key;
+
+		/**estimated number of sampled accesses, never below the true number**/
+		private final long sampledAccesses;
+
+		/**estimated number of accesses, scaled up by the sample rate**/
+		private final long estimatedAccesses;
+
+		/**share of the sampled accesses of the window that went to the key**/
+		private final double share;
+	}
+
+
+	private final String tableName;
+
+	/**start of the window, in epoch milliseconds**/
+	private final long windowStartMillis;
+
+	/**end of the window, in epoch milliseconds**/
+	private final long windowEndMillis;
+
+	/**number of accesses sampled during the window**/
+	private final long sampledAccesses;
+
+	/**the most accessed keys, most accessed first**/
+	private final List<HotKey> hotKeys;
+
+
+	HotKeySnapshot(String tableName, long windowStartMillis, long windowEndMillis, long sampledAccesses,
+				   List<HotKey> hotKeys) {
+		this.tableName = tableName;
+		this.windowStartMillis = windowStartMillis;
+		this.windowEndMillis = windowEndMillis;
+		this.sampledAccesses = sampledAccesses;
+		this.hotKeys = Collections.unmodifiableList(hotKeys);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Utf8;
+
+/**
+ * Computes the size of items with the rules DynamoDB uses for the 400 KB item limit and for capacity units:
+ *
+ * <ul>
+ * <li>an attribute name counts its UTF-8 length</li>
+ * <li>strings count their UTF-8 length, binaries their length</li>
+ * <li>numbers count one byte per two significant digits plus one byte</li>
+ * <li>booleans and nulls count one byte</li>
+ * <li>lists and maps count three bytes, plus one byte and the size of each element. Map keys count their UTF-8
+ * length</li>
+ * <li>sets count the sizes of their elements</li>
+ * </ul>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public final class ItemSizeCalculator {
+
+	/**maximum size of a DynamoDB item**/
+	public static final long MAX_ITEM_BYTES = 400L * 1024;
+
+	private static final int LIST_OR_MAP_OVERHEAD = 3;
+
+	private static final int ELEMENT_OVERHEAD = 1;
+
+	private ItemSizeCalculator() {
+	}
+
+	/**
+	 * @param item the attributes of an item
+	 * @return the size of the item in bytes
+	 */
+	public static long sizeOf(Map<String, AttributeValue> item) {
+		long size = 0;
+		for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+			size += Utf8.encodedLength(entry.getKey()) + sizeOf(entry.getValue());
+		}
+		return size;
+	}
+
+	/**
+	 * @param value an attribute value
+	 * @return the size of the value in bytes, without its attribute name
+	 */
+	public static long sizeOf(AttributeValue value) {
+		if (value == null) {
+			return 0;
+		} else if (value.getS() != null) {
+			return Utf8.encodedLength(value.getS());
+		} else if (value.getN() != null) {
+			return sizeOfNumber(value.getN());
+		} else if (value.getB() != null) {
+			return value.getB().remaining();
+		} else if (value.getSS() != null) {
+			return value.getSS().stream().mapToLong(Utf8::encodedLength).sum();
+		} else if (value.getNS() != null) {
+			return value.getNS().stream().mapToLong(ItemSizeCalculator::sizeOfNumber).sum();
+		} else if (value.getBS() != null) {
+			return value.getBS().stream().mapToLong(ByteBuffer::remaining).sum();
+		} else if (value.getL() != null) {
+			return sizeOfList(value.getL());
+		} else if (value.getM() != null) {
+			long size = LIST_OR_MAP_OVERHEAD;
+			for (Map.Entry<String, AttributeValue> entry : value.getM().entrySet()) {
+				size += ELEMENT_OVERHEAD + Utf8.encodedLength(entry.getKey()) + sizeOf(entry.getValue());
+			}
+			return size;
+		}
+		//BOOL and NULL
+		return 1;
+	}
+
+	private static long sizeOfList(List<AttributeValue> list) {
+		long size = LIST_OR_MAP_OVERHEAD;
+		for (AttributeValue element : list) {
+			size += ELEMENT_OVERHEAD + sizeOf(element);
+		}
+		return size;
+	}
+
+	/**one byte per two significant digits, leading and trailing zeroes trimmed, plus one byte**/
+	static long sizeOfNumber(String number) {
+		final BigDecimal decimal = new BigDecimal(number);
+		final int digits = decimal.signum() == 0 ? 1 : decimal.stripTrailingZeros().precision();
+		return (digits + 1) / 2 + 1;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Publishes repository measurements to a Micrometer {@link MeterRegistry}:
+ *
+ * <ul>
+ * <li>{@code dynamodb.repository.operation}, a timer tagged with table, index, operation and outcome</li>
+ * <li>{@code dynamodb.repository.items}, a distribution of the entities per successful operation</li>
+ * <li>{@code dynamodb.repository.payload}, a distribution of the estimated item sizes in bytes</li>
+ * <li>{@code dynamodb.repository.retries}, a counter tagged with table, index and operation type</li>
+ * </ul>
+ *
+ * <p>The index tag is {@value #BASE_TABLE} for the base table. Micrometer is an optional dependency, needed only
+ * by applications that use this class.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class MicrometerRepositoryMetrics implements RepositoryMetrics {
+
+	/**index tag of the base table**/
+	public static final String BASE_TABLE = "none";
+
+	private static final String PREFIX = "dynamodb.repository.";
+
+	private final MeterRegistry registry;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param registry the registry to publish to
+	 * @since #version#
+	 */
+	public MicrometerRepositoryMetrics(MeterRegistry registry) {
+		Preconditions.checkNotNull(registry, "registry must not be null");
+		this.registry = registry;
+	}
+
+	@Override
+	public void recordOperation(String tableName, String indexName, String operation, String outcome,
+								long durationNanos, long items) {
+		final Tags tags = tags(tableName, indexName).and("operation", operation);
+		Timer.builder(PREFIX + "operation")
+				.tags(tags.and("outcome", outcome))
+				.register(registry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+		if (SUCCESS.equals(outcome)) {
+			DistributionSummary.builder(PREFIX + "items")
+					.tags(tags)
+					.register(registry)
+					.record(items);
+		}
+	}
+
+	@Override
+	public void recordPayload(String tableName, String indexName, String operation, long bytes) {
+		DistributionSummary.builder(PREFIX + "payload")
+				.baseUnit("bytes")
+				.tags(tags(tableName, indexName).and("operation", operation))
+				.register(registry)
+				.record(bytes);
+	}
+
+	@Override
+	public void recordRetries(String tableName, String indexName, String operationType, int retries) {
+		Counter.builder(PREFIX + "retries")
+				.tags(tags(tableName, indexName).and("operation_type", operationType))
+				.register(registry)
+				.increment(retries);
+	}
+
+	private static Tags tags(String tableName, String indexName) {
+		return Tags.of("table", tableName, "index", indexName == null ? BASE_TABLE : indexName);
+	}
+}
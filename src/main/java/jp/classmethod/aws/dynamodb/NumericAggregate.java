@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Count, sum, minimum and maximum of a numeric attribute over the items of a scan. Items without the attribute,
+ * or whose attribute is not a number, are not counted.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class NumericAggregate {
+
+	/**the aggregate of no values**/
+	public static final NumericAggregate EMPTY = new NumericAggregate(0L, BigDecimal.ZERO, null, null);
+
+	/**number of values**/
+	private final long count;
+
+	/**sum of the values**/
+	private final BigDecimal sum;
+
+	/**smallest value. Null if there are no values**/
+	private final BigDecimal min;
+
+	/**largest value. Null if there are no values**/
+	private final BigDecimal max;
+
+
+	private NumericAggregate(long count, BigDecimal sum, BigDecimal min, BigDecimal max) {
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @return the mean of the values, or null if there are no values
+	 */
+	public BigDecimal getAverage() {
+		return count == 0 ? null : sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+	}
+
+	/**
+	 * @param value a value to add
+	 * @return the aggregate of the values of this aggregate and the value
+	 */
+	NumericAggregate add(BigDecimal value) {
+		return merge(new NumericAggregate(1L, value, value, value));
+	}
+
+	/**
+	 * @param other the aggregate of other values, for example of another scan segment
+	 * @return the aggregate of the values of both aggregates
+	 */
+	NumericAggregate merge(NumericAggregate other) {
+		if (other.count == 0) {
+			return this;
+		} else if (count == 0) {
+			return other;
+		}
+		return new NumericAggregate(count + other.count, sum.add(other.sum),
+				min.compareTo(other.min) <= 0 ? min : other.min,
+				max.compareTo(other.max) >= 0 ? max : other.max);
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+/**
+ * Kinds of DynamoDB requests a repository issues, each with its own {@link RetryPolicy}.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public enum OperationType {
+
+	/**GetItem**/
+	GET,
+
+	/**Query on the base table or a GSI**/
+	QUERY,
+
+	/**Scan pages that are not paced as background scans**/
+	SCAN,
+
+	/**PutItem, UpdateItem and DeleteItem**/
+	WRITE,
+
+	/**BatchGetItem, including the resubmission of unprocessed keys**/
+	BATCH_GET,
+
+	/**BatchWriteItem, including the resubmission of unprocessed items**/
+	BATCH_WRITE
+}
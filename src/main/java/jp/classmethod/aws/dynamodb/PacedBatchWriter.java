@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Puts items into the table of a repository with BatchWriteItem requests paced by a {@link CapacityRateLimiter}.
+ * Throttled requests and unprocessed items slow the limiter down and are retried after its backoff. Used by the
+ * bulk import and copy tools.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+class PacedBatchWriter {
+
+	private static final double WRITE_UNIT_BYTES = 1024.0;
+
+	private final DynamoDbRepository<?, ?> repository;
+
+	/**the operation that writes, in metrics and flight recorder events**/
+	private final String operation;
+
+	private final CapacityRateLimiter limiter;
+
+
+	PacedBatchWriter(DynamoDbRepository<?, ?> repository, String operation, CapacityRateLimiter limiter) {
+		this.repository = repository;
+		this.operation = operation;
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Puts items unconditionally, in requests of up to 25 items without repeated keys. Of two items with the same
+	 * key, the later one is written last.
+	 *
+	 * <p>When the put fails, the blobs offloaded for the items that were certainly not written are deleted.</p>
+	 *
+	 * @param items the items to put
+	 * @return the number of items written
+	 * @throws QueryTimeoutException if items remain unprocessed because of throttling
+	 * @throws org.springframework.dao.InvalidDataAccessResourceUsageException if an item exceeds 400 KB. The items
+	 * before it may have been written
+	 */
+	long putAll(List<Map<String, AttributeValue>> items) {
+		final List<String> keyNames = repository.keyAttributeNames();
+		final List<Map<String, AttributeValue>> batch = new ArrayList<>(WriteBatcher.MAX_BATCH_WRITE_ITEMS);
+		final Set<Map<String, AttributeValue>> keys = new HashSet<>();
+		long written = 0;
+		//index of the first item not yet passed to a request
+		int unsent = 0;
+		try {
+			for (int i = 0; i < items.size(); i++) {
+				final Map<String, AttributeValue> item = items.get(i);
+				repository.checkItemSize(operation, item);
+				final Map<String, AttributeValue> key = new HashMap<>();
+				keyNames.forEach(name -> key.put(name, item.get(name)));
+				//BatchWriteItem rejects two requests for the same item
+				if (keys.contains(key) || batch.size() == WriteBatcher.MAX_BATCH_WRITE_ITEMS) {
+					unsent = i;
+					written += write(batch);
+					batch.clear();
+					keys.clear();
+				}
+				batch.add(item);
+				keys.add(key);
+			}
+			if (false == batch.isEmpty()) {
+				unsent = items.size();
+				written += write(batch);
+			}
+		} catch (RuntimeException e) {
+			//a failed request deletes the blobs of its own unwritten items
+			repository.deleteOffloaded(items.subList(unsent, items.size()), e);
+			throw e;
+		}
+		return written;
+	}
+
+	private int write(List<Map<String, AttributeValue>> items) {
+		final String tableName = repository.tableName();
+		List<WriteRequest> requests = new ArrayList<>(items.size());
+		for (Map<String, AttributeValue> item : items) {
+			requests.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+		}
+		//unprocessed items back off with the limiter, like throttled requests
+		try {
+			for (int attempt = 0; ; attempt++) {
+				final double estimated = estimateWriteUnits(requests);
+				final BatchWriteItemRequest request = new BatchWriteItemRequest()
+						.withRequestItems(ImmutableMap.of(tableName, requests))
+						.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+				final BatchWriteItemResult result = repository.paced(operation, OperationType.BATCH_WRITE, limiter,
+						estimated, "batch write", () -> repository.dynamoDB.batchWriteItem(request),
+						response -> response.getConsumedCapacity() == null ? estimated : response.getConsumedCapacity()
+								.stream().mapToDouble(CapacityRateLimiter::unitsOf).sum());
+				final List<WriteRequest> unprocessed = result.getUnprocessedItems() == null
+						? null : result.getUnprocessedItems().get(tableName);
+				if (unprocessed == null || unprocessed.isEmpty()) {
+					return items.size();
+				}
+				requests = unprocessed;
+				repository.recordUnprocessed();
+				if (attempt + 1 >= CapacityRateLimiter.MAX_THROTTLED_ATTEMPTS) {
+					throw new QueryTimeoutException(String.format(Locale.ENGLISH,
+							"unable to batch write items due to throttling. %d items unprocessed after %d attempts",
+							requests.size(), attempt + 1));
+				}
+				DynamoDbRepository.backOff(limiter.throttled(0.0 /*consumption already corrected*/, attempt),
+						"batch write");
+			}
+		} catch (RuntimeException e) {
+			//the items processed by earlier attempts were written, the others certainly not if the write was rejected
+			repository.deleteOffloaded(requests.stream()
+					.map(writeRequest -> writeRequest.getPutRequest().getItem())
+					.collect(Collectors.toList()), e);
+			throw e;
+		}
+	}
+
+	private static double estimateWriteUnits(List<WriteRequest> requests) {
+		double units = 0;
+		for (WriteRequest request : requests) {
+			units += Math.ceil(ItemSizeCalculator.sizeOf(request.getPutRequest().getItem()) / WRITE_UNIT_BYTES);
+		}
+		return units;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A condition on the range (sort) key of a Query, evaluated by DynamoDB as part of the key condition expression.
+ *
+ * <pre>
+ * Chunk&lt;Chapter&gt; chapters = repository.findAllByHashKey(bookId, RangeCondition.between(3, 7), chunkable);
+ * </pre>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+@EqualsAndHashCode
+public class RangeCondition {
+
+	/**
+	 * Operators of key condition expressions on the range key.
+	 */
+	public enum Operator {
+		EQ, LT, LE, GT, GE, BETWEEN, BEGINS_WITH
+	}
+
+	/**
+	 * @param value the value the range key must equal
+	 * @return the condition
+	 */
+	public static RangeCondition eq(Object value) {
+		return new RangeCondition(Operator.EQ, value, null);
+	}
+
+	/**
+	 * @param value the value the range key must be less than
+	 * @return the condition
+	 */
+	public static RangeCondition lt(Object value) {
+		return new RangeCondition(Operator.LT, value, null);
+	}
+
+	/**
+	 * @param value the value the range key must be less than or equal to
+	 * @return the condition
+	 */
+	public static RangeCondition le(Object value) {
+		return new RangeCondition(Operator.LE, value, null);
+	}
+
+	/**
+	 * @param value the value the range key must be greater than
+	 * @return the condition
+	 */
+	public static RangeCondition gt(Object value) {
+		return new RangeCondition(Operator.GT, value, null);
+	}
+
+	/**
+	 * @param value the value the range key must be greater than or equal to
+	 * @return the condition
+	 */
+	public static RangeCondition ge(Object value) {
+		return new RangeCondition(Operator.GE, value, null);
+	}
+
+	/**
+	 * @param low the inclusive lower bound of the range key
+	 * @param high the inclusive upper bound of the range key
+	 * @return the condition
+	 */
+	public static RangeCondition between(Object low, Object high) {
+		Preconditions.checkNotNull(high, "high must not be null");
+		return new RangeCondition(Operator.BETWEEN, low, high);
+	}
+
+	/**
+	 * @param prefix the prefix of a string or binary range key
+	 * @return the condition
+	 */
+	public static RangeCondition beginsWith(Object prefix) {
+		return new RangeCondition(Operator.BEGINS_WITH, prefix, null);
+	}
+
+
+	@Getter
+	private final Operator operator;
+
+	/**the operand, or the lower bound of BETWEEN**/
+	@Getter
+	private final Object value;
+
+	/**the upper bound of BETWEEN. Null for other operators**/
+	@Getter
+	private final Object secondValue;
+
+	/**
+	 * name placeholder of the range key. Attribute names are never written into expressions, so reserved words
+	 * and names with special characters can be range keys
+	 */
+	static final String NAME = "#rk";
+
+	/**value placeholder of the operand**/
+	static final String VALUE = ":rk";
+
+	/**value placeholder of the upper bound of BETWEEN**/
+	static final String HIGH_VALUE = ":rk_high";
+
+	private RangeCondition(Operator operator, Object value, Object secondValue) {
+		Preconditions.checkNotNull(value, "value must not be null");
+		this.operator = operator;
+		this.value = value;
+		this.secondValue = secondValue;
+	}
+
+	/**
+	 * @return the clause of the key condition expression. It names the range key with {@link #NAME} and its values
+	 * with the placeholders of {@link #toValueMap()}
+	 */
+	String toExpression() {
+		switch (operator) {
+			case EQ:
+				return String.format(Locale.ENGLISH, "%s = %s", NAME, VALUE);
+			case LT:
+				return String.format(Locale.ENGLISH, "%s < %s", NAME, VALUE);
+			case LE:
+				return String.format(Locale.ENGLISH, "%s <= %s", NAME, VALUE);
+			case GT:
+				return String.format(Locale.ENGLISH, "%s > %s", NAME, VALUE);
+			case GE:
+				return String.format(Locale.ENGLISH, "%s >= %s", NAME, VALUE);
+			case BETWEEN:
+				return String.format(Locale.ENGLISH, "%s between %s and %s", NAME, VALUE, HIGH_VALUE);
+			case BEGINS_WITH:
+				return String.format(Locale.ENGLISH, "begins_with(%s, %s)", NAME, VALUE);
+			default:
+				throw new IllegalStateException("unknown operator " + operator);
+		}
+	}
+
+	/**
+	 * @return the values of the placeholders in {@link #toExpression()}
+	 */
+	Map<String, Object> toValueMap() {
+		final Map<String, Object> values = new HashMap<>();
+		values.put(VALUE, value);
+		if (operator == Operator.BETWEEN) {
+			values.put(HIGH_VALUE, secondValue);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Consistency of a DynamoDB read. Strongly consistent reads cost twice the read capacity of eventually consistent
+ * reads, and are not supported on global secondary indexes.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@RequiredArgsConstructor
+public enum ReadConsistency {
+
+	/**the read may not reflect writes completed shortly before it**/
+	EVENTUAL(false),
+
+	/**the read reflects all writes that completed before it**/
+	STRONG(true);
+
+	/**the value of the ConsistentRead request parameter**/
+	@Getter
+	private final boolean consistentRead;
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+/**
+ * Receives measurements of the operations of a {@link DynamoDbRepository}. Every measurement is tagged with the
+ * table name, and with the GSI name for operations on an index (null for the base table). Implementations must be
+ * thread safe and should return quickly, since they are called on the caller's thread.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ * @see MicrometerRepositoryMetrics
+ */
+public interface RepositoryMetrics {
+
+	/**outcome of operations that completed without an exception**/
+	String SUCCESS = "success";
+
+	/**discards all measurements. Repositories using it do not measure at all**/
+	RepositoryMetrics NOOP = new RepositoryMetrics() {
+	};
+
+	/**
+	 * Records a completed operation.
+	 *
+	 * @param tableName the table of the repository
+	 * @param indexName the GSI the operation read, or null for the base table
+	 * @param operation the repository operation, for example findOne or findAll.scan
+	 * @param outcome {@link #SUCCESS}, or the simple class name of the exception the operation threw
+	 * @param durationNanos the latency of the operation
+	 * @param items the number of entities returned or written
+	 */
+	default void recordOperation(String tableName, String indexName, String operation, String outcome,
+								 long durationNanos, long items) {
+		// do nothing
+	}
+
+	/**
+	 * Records the estimated size of an item read or written.
+	 *
+	 * @param tableName the table of the repository
+	 * @param indexName the GSI the item was read from, or null for the base table
+	 * @param operation the repository operation
+	 * @param bytes the estimated item size
+	 */
+	default void recordPayload(String tableName, String indexName, String operation, long bytes) {
+		// do nothing
+	}
+
+	/**
+	 * Records the retries of a request by the {@link RetryPolicy} of its operation type.
+	 *
+	 * @param tableName the table of the repository
+	 * @param indexName the GSI of the request, or null for the base table
+	 * @param operationType the name of the {@link OperationType}
+	 * @param retries the number of retries, at least 1
+	 */
+	default void recordRetries(String tableName, String indexName, String operationType, int retries) {
+		// do nothing
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.google.common.base.Preconditions;
+
+/**
+ * Retries DynamoDB requests that were throttled, that failed with a transient service error, or whose batch left
+ * items unprocessed. Waits between attempts grow exponentially with full jitter: before retry {@code n}, a
+ * random time between zero and {@code min(maxDelayMillis, baseDelayMillis * 2^n)}. A call stops retrying after
+ * {@code maxAttempts} attempts, or when the next attempt would start after its deadline.
+ *
+ * <p>These retries come on top of the retries of the SDK client.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class RetryPolicy {
+
+	private static final Set<String> THROTTLING_ERROR_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"ProvisionedThroughputExceededException", "ThrottlingException", "RequestLimitExceeded",
+			"TransactionInProgressException")));
+
+	private static final RetryPolicy NONE = new RetryPolicy(1, 0L, 0L, 0L);
+
+	private static final RetryPolicy DEFAULT_BATCH = new RetryPolicy(8, 25L, 1_000L, 10_000L);
+
+	/**
+	 * @return a policy that makes a single attempt, leaving retries to the SDK client
+	 */
+	public static RetryPolicy none() {
+		return NONE;
+	}
+
+	/**
+	 * @return the default policy of batch operations: 8 attempts, waits from 25 ms up to 1 s, 10 s deadline
+	 */
+	public static RetryPolicy defaultBatchPolicy() {
+		return DEFAULT_BATCH;
+	}
+
+	/**
+	 * @param e an exception thrown by the client
+	 * @return true if the request was throttled or failed with a server error, so that trying again may succeed
+	 */
+	public static boolean isRetryable(AmazonClientException e) {
+		if (false == e instanceof AmazonServiceException) {
+			//the client already retried network errors
+			return false;
+		}
+		final AmazonServiceException ase = (AmazonServiceException) e;
+		return THROTTLING_ERROR_CODES.contains(ase.getErrorCode()) || ase.getStatusCode() >= 500
+				|| ase.getErrorType() == AmazonServiceException.ErrorType.Service;
+	}
+
+
+	/**maximum number of attempts of a call, including the first**/
+	private final int maxAttempts;
+
+	/**upper bound of the wait before the first retry**/
+	private final long baseDelayMillis;
+
+	/**upper bound of any wait**/
+	private final long maxDelayMillis;
+
+	/**time after the start of a call after which no retry starts. Zero for no deadline**/
+	private final long deadlineMillis;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param maxAttempts maximum number of attempts of a call, including the first, at least 1
+	 * @param baseDelayMillis upper bound of the wait before the first retry
+	 * @param maxDelayMillis upper bound of any wait
+	 * @param deadlineMillis time after the start of a call after which no retry starts, or zero for no deadline
+	 * @since #version#
+	 */
+	public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long deadlineMillis) {
+		Preconditions.checkArgument(maxAttempts >= 1, "maxAttempts must be at least 1");
+		Preconditions.checkArgument(baseDelayMillis >= 0, "baseDelayMillis must not be negative");
+		Preconditions.checkArgument(maxDelayMillis >= baseDelayMillis,
+				"maxDelayMillis must be at least baseDelayMillis");
+		Preconditions.checkArgument(deadlineMillis >= 0, "deadlineMillis must not be negative");
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.deadlineMillis = deadlineMillis;
+	}
+
+	/**
+	 * @param retry the number of the retry, starting at zero
+	 * @return a random wait before the retry, between zero and the capped exponential delay
+	 */
+	long delayMillis(int retry) {
+		final long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(retry, 30));
+		return ceiling <= 0 ? 0L : ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	/**
+	 * @return the attempts of a new call
+	 */
+	public Backoff start() {
+		return new Backoff();
+	}
+
+	/**
+	 * Calls the supplier, retrying retryable exceptions.
+	 *
+	 * @param call the request
+	 * @param <T> the result type
+	 * @return the result of the first successful attempt
+	 * @throws AmazonClientException of the last attempt if no attempt succeeded
+	 */
+	public <T> T execute(Supplier<T> call) {
+		return execute(start(), call);
+	}
+
+	/**
+	 * Calls the supplier, retrying retryable exceptions within the attempts of a call already started.
+	 *
+	 * @param backoff the attempts of the call
+	 * @param call the request
+	 * @param <T> the result type
+	 * @return the result of the first successful attempt
+	 * @throws AmazonClientException of the last attempt if no attempt succeeded
+	 */
+	public <T> T execute(Backoff backoff, Supplier<T> call) {
+		while (true) {
+			try {
+				return call.get();
+			} catch (AmazonClientException e) {
+				if (false == isRetryable(e) || false == backoff.retry()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The attempts of one call. Not thread safe.
+	 */
+	public final class Backoff {
+
+		private final long startedAtNanos = System.nanoTime();
+
+		/**number of attempts made so far**/
+		@Getter
+		private int attempts = 1;
+
+		private Backoff() {
+		}
+
+		/**
+		 * Waits before the next attempt, if the policy allows another one.
+		 *
+		 * @return true if the caller should make another attempt, false if the attempts are exhausted, the
+		 * deadline would pass, or the thread was interrupted while waiting (the interrupt flag is then set)
+		 */
+		public boolean retry() {
+			if (attempts >= maxAttempts) {
+				return false;
+			}
+			final long delay = delayMillis(attempts - 1);
+			if (deadlineMillis > 0 && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos) + delay
+					> deadlineMillis) {
+				return false;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			attempts++;
+			return true;
+		}
+	}
+}
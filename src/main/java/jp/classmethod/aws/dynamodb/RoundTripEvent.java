@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import com.amazonaws.services.dynamodbv2.document.DeleteItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.GetItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.ItemCollection;
+import com.amazonaws.services.dynamodbv2.document.PutItemOutcome;
+import com.amazonaws.services.dynamodbv2.document.UpdateItemOutcome;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ * JFR event of one DynamoDB request, including the retries of the SDK client and the pages of lazy results.
+ * Only loaded through {@link FlightRecorderEvents}.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Name("jp.classmethod.aws.dynamodb.RoundTrip")
+@Label("DynamoDB Round Trip")
+@Description("A DynamoDB request issued by a repository")
+@Category({"DynamoDB", "Repository"})
+class RoundTripEvent extends Event {
+
+	@Label("Table")
+	String table;
+
+	@Label("Index")
+	String index;
+
+	@Label("Operation")
+	@Description("The repository operation that issued the request")
+	String operation;
+
+	@Label("Outcome")
+	String outcome;
+
+	@Label("Item Count")
+	long itemCount;
+
+	@Label("Bytes")
+	@Description("Estimated size of the items returned, zero if unknown")
+	@DataAmount
+	long bytes;
+
+	@Label("Consumed Capacity")
+	@Description("Capacity units consumed. Repositories ask for them while this event is enabled")
+	double consumedCapacity;
+
+	private static final EventType TYPE = EventType.getEventType(RoundTripEvent.class);
+
+	static boolean isRecording() {
+		return TYPE.isEnabled();
+	}
+
+	static <T> T time(String tableName, String indexName, String operation, Supplier<T> request) {
+		final RoundTripEvent event = new RoundTripEvent();
+		if (false == event.isEnabled()) {
+			return request.get();
+		}
+		event.begin();
+		final T result;
+		try {
+			result = request.get();
+		} catch (RuntimeException e) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.describe(tableName, indexName, operation, e.getClass().getSimpleName());
+				event.commit();
+			}
+			throw e;
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.describe(tableName, indexName, operation, RepositoryMetrics.SUCCESS);
+			event.measure(result);
+			event.commit();
+		}
+		return result;
+	}
+
+	private void describe(String tableName, String indexName, String operationName, String result) {
+		table = tableName;
+		index = indexName;
+		operation = operationName;
+		outcome = result;
+	}
+
+	private void measure(Object result) {
+		if (result instanceof GetItemOutcome) {
+			final GetItemOutcome outcome = (GetItemOutcome) result;
+			addItem(outcome.getGetItemResult().getItem());
+			addCapacity(outcome.getGetItemResult().getConsumedCapacity());
+		} else if (result instanceof PutItemOutcome) {
+			addCapacity(((PutItemOutcome) result).getPutItemResult().getConsumedCapacity());
+		} else if (result instanceof UpdateItemOutcome) {
+			final UpdateItemOutcome outcome = (UpdateItemOutcome) result;
+			addItem(outcome.getUpdateItemResult().getAttributes());
+			addCapacity(outcome.getUpdateItemResult().getConsumedCapacity());
+		} else if (result instanceof DeleteItemOutcome) {
+			final DeleteItemOutcome outcome = (DeleteItemOutcome) result;
+			addItem(outcome.getDeleteItemResult().getAttributes());
+			addCapacity(outcome.getDeleteItemResult().getConsumedCapacity());
+		} else if (result instanceof ItemCollection) {
+			final ItemCollection<?> collection = (ItemCollection<?>) result;
+			itemCount = collection.getAccumulatedItemCount();
+			addCapacity(collection.getTotalConsumedCapacity());
+		} else if (result instanceof ScanResult) {
+			final ScanResult scan = (ScanResult) result;
+			addItems(scan.getItems());
+			if (scan.getItems() == null && scan.getCount() != null) {
+				itemCount = scan.getCount();
+			}
+			addCapacity(scan.getConsumedCapacity());
+		} else if (result instanceof BatchGetItemResult) {
+			final BatchGetItemResult batch = (BatchGetItemResult) result;
+			batch.getResponses().values().forEach(this::addItems);
+			addCapacities(batch.getConsumedCapacity());
+		} else if (result instanceof BatchWriteItemResult) {
+			addCapacities(((BatchWriteItemResult) result).getConsumedCapacity());
+		}
+	}
+
+	private void addItems(List<Map<String, AttributeValue>> items) {
+		if (items != null) {
+			items.forEach(this::addItem);
+		}
+	}
+
+	private void addItem(Map<String, AttributeValue> item) {
+		if (item != null) {
+			itemCount++;
+			bytes += ItemSizeCalculator.sizeOf(item);
+		}
+	}
+
+	private void addCapacities(Collection<ConsumedCapacity> capacities) {
+		if (capacities != null) {
+			capacities.forEach(this::addCapacity);
+		}
+	}
+
+	private void addCapacity(ConsumedCapacity capacity) {
+		if (capacity != null && capacity.getCapacityUnits() != null) {
+			consumedCapacity += capacity.getCapacityUnits();
+		}
+	}
+}
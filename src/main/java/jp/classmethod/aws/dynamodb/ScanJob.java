@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.xspec.Condition;
+import com.google.common.base.Preconditions;
+
+/**
+ * A long running parallel scan that can resume after a failure.
+ *
+ * <pre>
+ * ScanJob&lt;Book&gt; job = new ScanJob&lt;&gt;(bookRepository, "reindex-books", 16);
+ * job.run(book -&gt; index(book));
+ * </pre>
+ *
+ * <p>Each segment saves its position to a {@link CheckpointStore} at most every {@code checkpointIntervalMillis},
+ * and when it completes. A checkpoint is only saved after the entities before it were handled, so running the job
+ * again with the same id handles each entity at least once. Completed segments are skipped.</p>
+ *
+ * <p>The segments run on the segment executor of the repository, see
+ * {@link DynamoDbRepository#setSegmentExecutor(java.util.concurrent.Executor)}.</p>
+ *
+ * <p>Reads are paced so that the job consumes at most a fraction of the provisioned read capacity of the table,
+ * using the consumed capacity each page reports. Throttled pages slow the job down and are retried.</p>
+ *
+ * @param <E> the entity type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ScanJob<E> {
+
+	/**directory of the checkpoint files of jobs that do not specify a store**/
+	public static final Path DEFAULT_CHECKPOINT_DIRECTORY =
+			Paths.get(System.getProperty("user.dir"), ".dynamodb-checkpoints");
+
+	/**fraction of the provisioned read capacity jobs consume if they do not specify one**/
+	public static final double DEFAULT_READ_CAPACITY_FRACTION = 0.25;
+
+	/**time between the checkpoints of a segment if a job does not specify one**/
+	public static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 10_000L;
+
+	private final DynamoDbRepository<E, ?> repository;
+
+	@Getter
+	private final String jobId;
+
+	@Getter
+	private final int totalSegments;
+
+	private final CheckpointStore checkpointStore;
+
+	/**paces the pages of all segments and backs off when they are throttled**/
+	private final CapacityRateLimiter limiter;
+
+	private final long checkpointIntervalNanos;
+
+	/**condition the scanned items must match. Null to scan all items**/
+	@Getter
+	@Setter
+	private volatile Condition filter;
+
+	/**progress of the running or last run. Null before the first run**/
+	@Getter
+	private volatile ScanProgress progress;
+
+
+	/**
+	 * Create an instance that keeps its checkpoints in {@link #DEFAULT_CHECKPOINT_DIRECTORY} and consumes at most
+	 * {@link #DEFAULT_READ_CAPACITY_FRACTION} of the provisioned read capacity.
+	 *
+	 * @param repository the repository to scan
+	 * @param jobId identifies the checkpoints of the job
+	 * @param totalSegments the number of segments to scan in parallel
+	 * @since #version#
+	 */
+	public ScanJob(DynamoDbRepository<E, ?> repository, String jobId, int totalSegments) {
+		this(repository, jobId, totalSegments, new FileCheckpointStore(DEFAULT_CHECKPOINT_DIRECTORY),
+				DEFAULT_READ_CAPACITY_FRACTION, DEFAULT_CHECKPOINT_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Create instance.
+	 *
+	 * @param repository the repository to scan
+	 * @param jobId identifies the checkpoints of the job
+	 * @param totalSegments the number of segments to scan in parallel
+	 * @param checkpointStore stores the position of each segment
+	 * @param readCapacityFraction the fraction of the provisioned read capacity of the table to consume, greater
+	 *                             than 0 and at most 1
+	 * @param checkpointIntervalMillis the minimum time between two checkpoints of a segment. Zero saves a
+	 *                                 checkpoint after every page
+	 * @throws IllegalStateException if the table has no provisioned read capacity
+	 * @since #version#
+	 */
+	public ScanJob(DynamoDbRepository<E, ?> repository, String jobId, int totalSegments,
+				   CheckpointStore checkpointStore, double readCapacityFraction, long checkpointIntervalMillis) {
+		this(repository, jobId, totalSegments, checkpointStore, checkpointIntervalMillis,
+				new CapacityRateLimiter(checkFraction(readCapacityFraction) * repository.provisionedReadCapacity()));
+	}
+
+	ScanJob(DynamoDbRepository<E, ?> repository, String jobId, int totalSegments, CheckpointStore checkpointStore,
+			long checkpointIntervalMillis, CapacityRateLimiter limiter) {
+		Preconditions.checkNotNull(repository, "repository must not be null");
+		Preconditions.checkNotNull(jobId, "jobId must not be null");
+		Preconditions.checkArgument(totalSegments >= 1 && totalSegments <= DynamoDbRepository.MAX_SCAN_SEGMENTS,
+				"totalSegments must be between 1 and " + DynamoDbRepository.MAX_SCAN_SEGMENTS);
+		Preconditions.checkNotNull(checkpointStore, "checkpointStore must not be null");
+		Preconditions.checkArgument(checkpointIntervalMillis >= 0, "checkpointIntervalMillis must not be negative");
+		this.repository = repository;
+		this.jobId = jobId;
+		this.totalSegments = totalSegments;
+		this.checkpointStore = checkpointStore;
+		this.limiter = limiter;
+		this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+	}
+
+	private static double checkFraction(double readCapacityFraction) {
+		Preconditions.checkArgument(readCapacityFraction > 0 && readCapacityFraction <= 1,
+				"readCapacityFraction must be greater than 0 and at most 1");
+		return readCapacityFraction;
+	}
+
+	/**
+	 * Runs or resumes the job, passing each entity to the consumer. The consumer is called from several threads.
+	 *
+	 * @param consumer handles the entities
+	 * @return the progress of this run, complete
+	 * @throws IllegalStateException if the checkpoints of the job were saved with another number of segments
+	 * @throws QueryTimeoutException if interrupted
+	 */
+	public ScanProgress run(Consumer<? super E> consumer) {
+		Preconditions.checkNotNull(consumer, "consumer must not be null");
+		return runPages(page -> page.forEach(consumer));
+	}
+
+	/**
+	 * Runs or resumes the job, passing the entities of each page to the handler. The handler is called from
+	 * several threads, once per page of each segment.
+	 *
+	 * @param pageHandler handles the entities of a page
+	 * @return the progress of this run, complete
+	 * @throws IllegalStateException if the checkpoints of the job were saved with another number of segments
+	 * @throws QueryTimeoutException if interrupted
+	 */
+	public ScanProgress runPages(Consumer<? super List<E>> pageHandler) {
+		return runPages(pageHandler, new ScanProgress(totalSegments));
+	}
+
+	ScanProgress runPages(Consumer<? super List<E>> pageHandler, ScanProgress current) {
+		Preconditions.checkNotNull(pageHandler, "pageHandler must not be null");
+		progress = current;
+		repository.runSegments(jobId, totalSegments, segment -> {
+			runSegment(segment, pageHandler, current);
+			return null;
+		});
+		return current;
+	}
+
+	/**
+	 * Removes the checkpoints of the job, so that the next run starts over.
+	 */
+	public void reset() {
+		checkpointStore.clear(jobId);
+	}
+
+	private void runSegment(int segment, Consumer<? super List<E>> pageHandler, ScanProgress current) {
+		SegmentCheckpoint checkpoint = checkpointStore.load(jobId, segment);
+		if (checkpoint == null) {
+			checkpoint = SegmentCheckpoint.start(segment, totalSegments);
+		}
+		Preconditions.checkState(checkpoint.getTotalSegments() == totalSegments,
+				"job " + jobId + " was started with " + checkpoint.getTotalSegments() + " segments");
+		long savedAtNanos = System.nanoTime();
+		while (false == checkpoint.isComplete()) {
+			final Map<String, AttributeValue> startKey = checkpoint.getPosition() == null ? null
+					: InternalUtils.toAttributeValueMap(repository.fromPaginationToken(checkpoint.getPosition())
+					.getComponents());
+			final ScanResult page = repository.scanSegmentPage("ScanJob", segment, totalSegments, filter,
+					repository.getReadConsistency(), startKey, null /*up to 1 MB*/, limiter);
+			final List<E> entities = new ArrayList<>(page.getItems().size());
+			page.getItems().forEach(item -> entities.add(repository.convertRawItemToDomain(item)));
+			pageHandler.accept(entities);
+			current.pageRead(entities.size(), CapacityRateLimiter.unitsOf(page.getConsumedCapacity()));
+			checkpoint = checkpoint.advance(DynamoDbRepository.toPaginationToken(page.getLastEvaluatedKey()),
+					entities.size());
+			if (checkpoint.isComplete() || System.nanoTime() - savedAtNanos >= checkpointIntervalNanos) {
+				checkpointStore.save(jobId, checkpoint);
+				savedAtNanos = System.nanoTime();
+			}
+		}
+		current.segmentCompleted();
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import lombok.Getter;
+
+/**
+ * Progress of a {@link ScanJob} run. Updated by the scanning threads and safe to read from any thread.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ScanProgress {
+
+	@Getter
+	private final int totalSegments;
+
+	private final long startedAtNanos = System.nanoTime();
+
+	private final AtomicInteger segmentsCompleted = new AtomicInteger();
+
+	private final AtomicLong itemsRead = new AtomicLong();
+
+	private final DoubleAdder readUnits = new DoubleAdder();
+
+
+	ScanProgress(int totalSegments) {
+		this.totalSegments = totalSegments;
+	}
+
+	/**
+	 * @return the number of segments scanned completely, including segments completed by earlier runs
+	 */
+	public int getSegmentsCompleted() {
+		return segmentsCompleted.get();
+	}
+
+	/**
+	 * @return the number of items read by this run
+	 */
+	public long getItemsRead() {
+		return itemsRead.get();
+	}
+
+	/**
+	 * @return the read capacity units consumed by this run
+	 */
+	public double getReadUnits() {
+		return readUnits.sum();
+	}
+
+	/**
+	 * @return the items read per second since this run started
+	 */
+	public double getItemsReadPerSecond() {
+		final long elapsed = System.nanoTime() - startedAtNanos;
+		return elapsed <= 0 ? 0.0 : itemsRead.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+	}
+
+	void segmentCompleted() {
+		segmentsCompleted.incrementAndGet();
+	}
+
+	void pageRead(int items, double consumedReadUnits) {
+		itemsRead.addAndGet(items);
+		readUnits.add(consumedReadUnits);
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Position of a job in one segment of a parallel scan.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SegmentCheckpoint {
+
+	/**
+	 * @param segment the segment
+	 * @param totalSegments the number of segments of the scan
+	 * @return the checkpoint of a segment that has not been read yet
+	 */
+	public static SegmentCheckpoint start(int segment, int totalSegments) {
+		return new SegmentCheckpoint(segment, totalSegments, null, false, 0L);
+	}
+
+
+	@JsonProperty("segment")
+	private final int segment;
+
+	@JsonProperty("total_segments")
+	private final int totalSegments;
+
+	/**the LastEvaluatedKey of the last page processed, as a pagination token. Null before the first page**/
+	@JsonProperty("position")
+	private final String position;
+
+	/**true if the whole segment was processed**/
+	@JsonProperty("complete")
+	private final boolean complete;
+
+	/**number of items processed in the segment so far**/
+	@JsonProperty("item_count")
+	private final long itemCount;
+
+
+	@JsonCreator
+	SegmentCheckpoint(@JsonProperty("segment") int segment, @JsonProperty("total_segments") int totalSegments,
+					  @JsonProperty("position") String position, @JsonProperty("complete") boolean complete,
+					  @JsonProperty("item_count") long itemCount) {
+		this.segment = segment;
+		this.totalSegments = totalSegments;
+		this.position = position;
+		this.complete = complete;
+		this.itemCount = itemCount;
+	}
+
+	/**
+	 * @param lastEvaluatedKeyToken the pagination token of the LastEvaluatedKey of the processed page, or null if
+	 *                              it was the last page
+	 * @param items the number of items processed in the page
+	 * @return the checkpoint after the page
+	 */
+	public SegmentCheckpoint advance(String lastEvaluatedKeyToken, long items) {
+		return new SegmentCheckpoint(segment, totalSegments, lastEvaluatedKeyToken, lastEvaluatedKeyToken == null,
+				itemCount + items);
+	}
+}
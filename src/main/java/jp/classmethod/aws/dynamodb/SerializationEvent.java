@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one conversion between an entity and its JSON document. Only loaded through
+ * {@link FlightRecorderEvents}.
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Name("jp.classmethod.aws.dynamodb.Serialization")
+@Label("DynamoDB Entity Serialization")
+@Description("A conversion between an entity and the JSON document of its item")
+@Category({"DynamoDB", "Repository"})
+class SerializationEvent extends Event {
+
+	@Label("Table")
+	String table;
+
+	@Label("Step")
+	@Description("serialize or deserialize")
+	String step;
+
+	@Label("Entity Class")
+	Class<?> entityClass;
+
+	@Label("Item Count")
+	long itemCount;
+
+	@Label("Bytes")
+	@Description("Length of the JSON document")
+	@DataAmount
+	long bytes;
+
+	static <T> T time(String tableName, String step, Class<?> type, String json, Supplier<T> conversion) {
+		final SerializationEvent event = new SerializationEvent();
+		if (false == event.isEnabled()) {
+			return conversion.get();
+		}
+		event.begin();
+		final T result = conversion.get();
+		event.end();
+		if (event.shouldCommit()) {
+			event.table = tableName;
+			event.step = step;
+			event.entityClass = type;
+			event.itemCount = 1;
+			final String document = json != null ? json : result instanceof String ? (String) result : null;
+			event.bytes = document == null ? 0L : document.length();
+			event.commit();
+		}
+		return result;
+	}
+}
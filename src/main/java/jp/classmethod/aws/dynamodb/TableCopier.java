@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Preconditions;
+
+/**
+ * Copies the entities of one repository's table into another's, for example to move to a new key schema or GSI
+ * layout. The source is read with a parallel scan, each entity is transformed, and the results are put into the
+ * target with paced BatchWriteItem requests.
+ *
+ * <p>The source is read by a {@link ScanJob}. After each page, the position of its segment is saved to a
+ * {@link CheckpointStore}. Running a job again with the same job id resumes each segment after its last saved
+ * page, so items of a page that was being copied when the job failed may be written twice.
+ * Copies are unconditional puts, so writing an item again is harmless.</p>
+ *
+ * @param <S> the source entity type
+ * @param <T> the target entity type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class TableCopier<S, T> {
+
+	private final DynamoDbRepository<S, ?> source;
+
+	private final DynamoDbRepository<T, ?> target;
+
+	private final Function<? super S, ? extends T> transform;
+
+	private final CheckpointStore checkpointStore;
+
+	private final double readUnitsPerSecond;
+
+	private final PacedBatchWriter writer;
+
+	private volatile CopyProgress progress;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param source the repository to copy from
+	 * @param target the repository to copy to
+	 * @param transform converts a source entity to the target entity, or to null to skip it
+	 * @param checkpointStore stores the position of each segment
+	 * @param readUnitsPerSecond the read capacity units per second to consume on the source
+	 * @param writeUnitsPerSecond the write capacity units per second to consume on the target
+	 * @since #version#
+	 */
+	public TableCopier(DynamoDbRepository<S, ?> source, DynamoDbRepository<T, ?> target,
+					   Function<? super S, ? extends T> transform, CheckpointStore checkpointStore,
+					   double readUnitsPerSecond, double writeUnitsPerSecond) {
+		Preconditions.checkNotNull(source, "source must not be null");
+		Preconditions.checkNotNull(target, "target must not be null");
+		Preconditions.checkNotNull(transform, "transform must not be null");
+		Preconditions.checkNotNull(checkpointStore, "checkpointStore must not be null");
+		this.source = source;
+		this.target = target;
+		this.transform = transform;
+		this.checkpointStore = checkpointStore;
+		Preconditions.checkArgument(readUnitsPerSecond > 0, "readUnitsPerSecond must be positive");
+		this.readUnitsPerSecond = readUnitsPerSecond;
+		this.writer = new PacedBatchWriter(target, "copy", new CapacityRateLimiter(writeUnitsPerSecond));
+	}
+
+	/**
+	 * Copies the source table, or resumes a previous run of the same job.
+	 *
+	 * @param jobId identifies the checkpoints of the job
+	 * @param totalSegments the number of segments to scan in parallel. Must match the previous runs of the job
+	 * @return the progress of this run, complete
+	 * @throws IllegalStateException if the checkpoints of the job were saved with another number of segments
+	 * @throws QueryTimeoutException if interrupted, or if writes remain unprocessed because of throttling
+	 */
+	public CopyProgress copy(String jobId, int totalSegments) {
+		final ScanJob<S> job = new ScanJob<>(source, jobId, totalSegments, checkpointStore,
+				0L /*checkpoint after every page*/, new CapacityRateLimiter(readUnitsPerSecond));
+		final ScanProgress scanProgress = new ScanProgress(totalSegments);
+		final CopyProgress current = new CopyProgress(scanProgress);
+		progress = current;
+		job.runPages(page -> {
+			final List<Map<String, AttributeValue>> items = new ArrayList<>(page.size());
+			try {
+				for (S entity : page) {
+					final T transformed = transform.apply(entity);
+					if (transformed != null) {
+						items.add(DynamoDbInternalUtils.toAttributeValues(target.convertDomainToItem(transformed)));
+					}
+				}
+			} catch (RuntimeException e) {
+				target.deleteOffloaded(items, e);
+				throw e;
+			}
+			//the writer deletes the blobs of the items it fails to write
+			current.pageCopied(page.size(), writer.putAll(items));
+		}, scanProgress);
+		return current;
+	}
+
+	/**
+	 * @return the progress of the running or last run, or null if the copier has not run
+	 */
+	public CopyProgress getProgress() {
+		return progress;
+	}
+}
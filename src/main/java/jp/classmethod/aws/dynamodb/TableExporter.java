@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.Getter;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.amazonaws.services.dynamodbv2.xspec.Condition;
+import com.google.common.base.Preconditions;
+
+/**
+ * Exports the entities of a repository to newline delimited JSON files, one file per segment of a parallel scan.
+ * Each line is an entity written with the repository's ObjectMapper, so the files hold the same documents the
+ * application writes, and {@link TableImporter} can read them back.
+ *
+ * @param <E> the entity type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class TableExporter<E> {
+
+	/**file name extension of uncompressed exports**/
+	public static final String NDJSON_EXTENSION = ".ndjson";
+
+	/**file name extension of gzip compressed exports**/
+	public static final String GZIP_EXTENSION = ".gz";
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final byte NEWLINE = '\n';
+
+	private final DynamoDbRepository<E, ?> repository;
+
+	@Getter
+	private final boolean gzip;
+
+	/**number of entities written by the last export**/
+	private final AtomicLong exported = new AtomicLong();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param repository the repository to scan and whose ObjectMapper writes the documents
+	 * @param gzip true to gzip compress the files
+	 * @since #version#
+	 */
+	public TableExporter(DynamoDbRepository<E, ?> repository, boolean gzip) {
+		Preconditions.checkNotNull(repository, "repository must not be null");
+		this.repository = repository;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Scans the table with {@code totalSegments} segments in parallel, on the segment executor of the repository,
+	 * and writes the entities of each segment to
+	 * {@code <baseName>-<segment>.ndjson}, or {@code .ndjson.gz} when compressing. Existing files are replaced.
+	 *
+	 * @param directory the directory to write the files to
+	 * @param baseName the prefix of the file names
+	 * @param totalSegments the number of segments, and of files
+	 * @param filter the condition the exported items must match, or null to export all items
+	 * @return the files written, in segment order
+	 * @throws DataAccessResourceFailureException if a file can not be written
+	 */
+	public List<Path> export(Path directory, String baseName, int totalSegments, Condition filter) {
+		Preconditions.checkNotNull(directory, "directory must not be null");
+		Preconditions.checkNotNull(baseName, "baseName must not be null");
+		Preconditions.checkArgument(totalSegments >= 1 && totalSegments <= DynamoDbRepository.MAX_SCAN_SEGMENTS,
+				"totalSegments must be between 1 and " + DynamoDbRepository.MAX_SCAN_SEGMENTS);
+		exported.set(0L);
+		final List<Path> files = IntStream.range(0, totalSegments)
+				.mapToObj(segment -> directory.resolve(fileName(baseName, segment)))
+				.collect(Collectors.toList());
+		try {
+			repository.runSegments("export", totalSegments, segment -> {
+				exportSegment(files.get(segment), segment, totalSegments, filter);
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw new DataAccessResourceFailureException("unable to write export file", e.getCause());
+		}
+		return files;
+	}
+
+	/**
+	 * @return the number of entities written by the last export
+	 */
+	public long getExportedCount() {
+		return exported.get();
+	}
+
+	String fileName(String baseName, int segment) {
+		return String.format(Locale.ENGLISH, "%s-%05d%s%s", baseName, segment, NDJSON_EXTENSION,
+				gzip ? GZIP_EXTENSION : "");
+	}
+
+	private void exportSegment(Path file, int segment, int totalSegments, Condition filter) {
+		final ReadConsistency consistency = repository.getReadConsistency();
+		try (OutputStream out = open(file)) {
+			repository.scanSegment("export", segment, totalSegments, filter, consistency, entity -> {
+				try {
+					out.write(repository.convertDomainToJSON(entity).getBytes(StandardCharsets.UTF_8));
+					out.write(NEWLINE);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				exported.incrementAndGet();
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private OutputStream open(Path file) throws IOException {
+		final OutputStream channel = Channels.newOutputStream(FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+		return new BufferedOutputStream(gzip ? new GZIPOutputStream(channel, BUFFER_SIZE) : channel, BUFFER_SIZE);
+	}
+}
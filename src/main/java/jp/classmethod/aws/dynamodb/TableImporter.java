@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+/**
+ * Imports newline delimited JSON files, as written by {@link TableExporter}, into the table of a repository with
+ * BatchWriteItem requests paced by a {@link CapacityRateLimiter}.
+ *
+ * <p>Each line is read as an entity with the repository's ObjectMapper and converted to an item the same way
+ * the repository converts entities it writes. Items are put unconditionally, replacing existing items with the
+ * same key. Gzip compressed files are recognized by their header. Files are imported in parallel.</p>
+ *
+ * @param <E> the entity type
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class TableImporter<E> {
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private final DynamoDbRepository<E, ?> repository;
+
+	private final PacedBatchWriter writer;
+
+	/**number of items written by the last import**/
+	private final AtomicLong imported = new AtomicLong();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param repository the repository whose table to write to and whose ObjectMapper reads the documents
+	 * @param writeUnitsPerSecond the write capacity units per second the import may consume
+	 * @since #version#
+	 */
+	public TableImporter(DynamoDbRepository<E, ?> repository, double writeUnitsPerSecond) {
+		Preconditions.checkNotNull(repository, "repository must not be null");
+		this.repository = repository;
+		this.writer = new PacedBatchWriter(repository, "import", new CapacityRateLimiter(writeUnitsPerSecond));
+	}
+
+	/**
+	 * Imports the files in parallel, on the segment executor of the repository, or on a pool of their own.
+	 *
+	 * @param files the files to import
+	 * @return the number of items written
+	 * @throws DataAccessResourceFailureException if a file can not be read
+	 * @throws IllegalArgumentException if a line can not be read as an entity
+	 * @throws QueryTimeoutException if items remain unprocessed because of throttling
+	 */
+	public long importFiles(List<Path> files) {
+		Preconditions.checkNotNull(files, "files must not be null");
+		imported.set(0L);
+		if (files.isEmpty()) {
+			return 0L;
+		}
+		try {
+			repository.runSegments("import", files.size(), file -> {
+				importFile(files.get(file));
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw new DataAccessResourceFailureException("unable to read import file", e.getCause());
+		}
+		return imported.get();
+	}
+
+	private void importFile(Path file) {
+		final List<Map<String, AttributeValue>> batch = new ArrayList<>(WriteBatcher.MAX_BATCH_WRITE_ITEMS);
+		try (BufferedReader reader = open(file)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (Strings.isNullOrEmpty(line.trim())) {
+					continue;
+				}
+				batch.add(DynamoDbInternalUtils.toAttributeValues(
+						repository.convertDomainToItem(repository.convertJSONToDomain(line))));
+				if (batch.size() == WriteBatcher.MAX_BATCH_WRITE_ITEMS) {
+					putAll(batch);
+				}
+			}
+			if (false == batch.isEmpty()) {
+				putAll(batch);
+			}
+		} catch (IOException e) {
+			repository.deleteOffloaded(batch, e);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			//the blobs of items converted but not yet passed to the writer
+			repository.deleteOffloaded(batch, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * writes the batch and empties it. The writer deletes the blobs of the items it fails to write
+	 */
+	private void putAll(List<Map<String, AttributeValue>> batch) {
+		final List<Map<String, AttributeValue>> items = new ArrayList<>(batch);
+		batch.clear();
+		imported.addAndGet(writer.putAll(items));
+	}
+
+	private static BufferedReader open(Path file) throws IOException {
+		final InputStream in = new BufferedInputStream(Channels.newInputStream(
+				FileChannel.open(file, StandardOpenOption.READ)), TableExporter.BUFFER_SIZE);
+		in.mark(2);
+		final int magic = in.read() | (in.read() << 8);
+		in.reset();
+		final InputStream decoded = magic == GZIP_MAGIC ? new GZIPInputStream(in, TableExporter.BUFFER_SIZE) : in;
+		return new BufferedReader(new InputStreamReader(decoded, StandardCharsets.UTF_8), TableExporter.BUFFER_SIZE);
+	}
+}
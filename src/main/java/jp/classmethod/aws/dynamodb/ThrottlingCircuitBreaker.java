@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.google.common.base.Preconditions;
+
+/**
+ * Stops sending requests to a table or index that keeps throttling them, to give it time to recover and to keep
+ * callers from piling up on it.
+ *
+ * <p>While {@link State#CLOSED closed}, the breaker counts requests and throttled requests in windows of
+ * {@code windowMillis}. When the share of throttled requests in a window reaches the threshold, the breaker opens.
+ * While {@link State#OPEN open}, requests fail fast with {@link CircuitOpenException}. After {@code openMillis}
+ * the breaker becomes {@link State#HALF_OPEN half open} and admits up to {@code trialRequests} normal priority
+ * requests at a time as trials. A throttled trial opens the breaker again; {@code trialRequests} successful trials
+ * close it. {@link Priority#LOW Low priority} requests are shed until the breaker is closed again.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ThrottlingCircuitBreaker {
+
+	/**
+	 * States of a breaker
+	 */
+	public enum State {
+
+		/**requests pass, throttling is counted**/
+		CLOSED,
+
+		/**requests fail fast**/
+		OPEN,
+
+		/**a few normal priority requests pass as trials**/
+		HALF_OPEN
+	}
+
+	/**
+	 * Priorities of requests
+	 */
+	public enum Priority {
+
+		/**requests of callers waiting for an answer**/
+		NORMAL,
+
+		/**background work such as paced scans and bulk writes, shed first**/
+		LOW
+	}
+
+	/**
+	 * @param e an exception thrown by the client
+	 * @return true if the request was rejected because of throughput limits
+	 */
+	static boolean isThrottling(AmazonClientException e) {
+		if (e instanceof ProvisionedThroughputExceededException) {
+			return true;
+		}
+		return e instanceof AmazonServiceException
+				&& ("ThrottlingException".equals(((AmazonServiceException) e).getErrorCode())
+				|| "RequestLimitExceeded".equals(((AmazonServiceException) e).getErrorCode()));
+	}
+
+
+	/**the table or index, for exception messages**/
+	@Getter
+	private final String name;
+
+	@Getter
+	private final CircuitBreakerPolicy policy;
+
+	private final LongSupplier nanoClock;
+
+	/**guarded by this**/
+	private State state = State.CLOSED;
+
+	private long windowStartNanos;
+
+	private int windowRequests;
+
+	private int windowThrottled;
+
+	private long openedAtNanos;
+
+	/**trial requests in flight while half open**/
+	private int trialsInFlight;
+
+	/**successful trial requests since the breaker became half open**/
+	private int trialSuccesses;
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param name the table or index the breaker protects
+	 * @param policy the thresholds of the breaker
+	 * @since #version#
+	 */
+	public ThrottlingCircuitBreaker(String name, CircuitBreakerPolicy policy) {
+		this(name, policy, System::nanoTime);
+	}
+
+	ThrottlingCircuitBreaker(String name, CircuitBreakerPolicy policy, LongSupplier nanoClock) {
+		Preconditions.checkNotNull(name, "name must not be null");
+		Preconditions.checkNotNull(policy, "policy must not be null");
+		this.name = name;
+		this.policy = policy;
+		this.nanoClock = nanoClock;
+		this.windowStartNanos = nanoClock.getAsLong();
+	}
+
+	/**
+	 * @return the current state of the breaker
+	 */
+	public synchronized State getState() {
+		refresh(nanoClock.getAsLong());
+		return state;
+	}
+
+	/**
+	 * Issues a request if the breaker admits it, and records whether it was throttled.
+	 *
+	 * @param priority the priority of the request
+	 * @param request issues the request
+	 * @param <T> the result type
+	 * @return the result of the request
+	 * @throws CircuitOpenException if the breaker does not admit the request
+	 */
+	public <T> T call(Priority priority, Supplier<T> request) {
+		final boolean trial = admit(priority);
+		final T result;
+		try {
+			result = request.get();
+		} catch (AmazonClientException e) {
+			record(trial, isThrottling(e));
+			throw e;
+		} catch (RuntimeException | Error e) {
+			record(trial, false);
+			throw e;
+		}
+		record(trial, false);
+		return result;
+	}
+
+	/**
+	 * Records a response that carried unprocessed batch items, as throttling of an admitted request.
+	 */
+	public synchronized void recordPartialThrottling() {
+		final long now = nanoClock.getAsLong();
+		refresh(now);
+		if (state == State.CLOSED) {
+			windowThrottled = Math.min(windowRequests, windowThrottled + 1);
+			tripIfNeeded(now);
+		}
+	}
+
+	/**
+	 * @return true if the request is a half open trial
+	 * @throws CircuitOpenException if the request is not admitted
+	 */
+	private synchronized boolean admit(Priority priority) {
+		final long now = nanoClock.getAsLong();
+		refresh(now);
+		switch (state) {
+		case CLOSED:
+			return false;
+		case HALF_OPEN:
+			if (priority == Priority.NORMAL && trialsInFlight < policy.getTrialRequests()) {
+				trialsInFlight++;
+				return true;
+			}
+			throw new CircuitOpenException(String.format(Locale.ENGLISH,
+					"throttling circuit of %s is half open, %s priority request shed", name, priority));
+		default:
+			throw new CircuitOpenException(String.format(Locale.ENGLISH,
+					"throttling circuit of %s is open for another %d ms", name,
+					TimeUnit.NANOSECONDS.toMillis(openedAtNanos + openNanos() - now)));
+		}
+	}
+
+	private synchronized void record(boolean trial, boolean throttled) {
+		final long now = nanoClock.getAsLong();
+		if (trial) {
+			trialsInFlight--;
+			if (state != State.HALF_OPEN) {
+				//another trial already decided the outcome
+				return;
+			}
+			if (throttled) {
+				open(now);
+			} else if (++trialSuccesses >= policy.getTrialRequests()) {
+				state = State.CLOSED;
+				startWindow(now);
+			}
+			return;
+		}
+		refresh(now);
+		if (state == State.CLOSED) {
+			windowRequests++;
+			if (throttled) {
+				windowThrottled++;
+			}
+			tripIfNeeded(now);
+		}
+	}
+
+	private void tripIfNeeded(long now) {
+		if (windowRequests >= policy.getMinimumRequests()
+				&& windowThrottled >= policy.getThrottledRatioThreshold() * windowRequests) {
+			open(now);
+		}
+	}
+
+	private void open(long now) {
+		state = State.OPEN;
+		openedAtNanos = now;
+		trialSuccesses = 0;
+	}
+
+	/**moves from open to half open after the open period, and starts new windows while closed**/
+	private void refresh(long now) {
+		if (state == State.OPEN && now - openedAtNanos >= openNanos()) {
+			state = State.HALF_OPEN;
+			trialSuccesses = 0;
+		} else if (state == State.CLOSED && now - windowStartNanos >= TimeUnit.MILLISECONDS.toNanos(
+				policy.getWindowMillis())) {
+			startWindow(now);
+		}
+	}
+
+	private void startWindow(long now) {
+		windowStartNanos = now;
+		windowRequests = 0;
+		windowThrottled = 0;
+	}
+
+	private long openNanos() {
+		return TimeUnit.MILLISECONDS.toNanos(policy.getOpenMillis());
+	}
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Groups unconditional puts and deletes enqueued by independent threads into BatchWriteItem requests.
+ *
+ * <p>A batch is dispatched when it reaches {@code maxBatchSize} items or when {@code lingerMicros} have passed since
+ * its first item was enqueued. At most {@code maxInFlightBatches} batches are written at a time; enqueuing threads
+ * block while that limit is reached. A key that is already waiting in the current batch seals it, because
+ * BatchWriteItem rejects two requests for the same item.</p>
+ *
+ * <p>Writes to the same key are applied in the order they were enqueued: a batch starts only after every earlier
+ * batch holding one of its keys has finished, including the resubmissions of its unprocessed items.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class WriteBatcher {
+
+	/**maximum number of requests in one BatchWriteItem request**/
+	public static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+	private final String tableName;
+
+	private final List<String> keyNames;
+
+	private final AmazonDynamoDB dynamoDB;
+
+	private final Function<AmazonClientException, DataAccessException> exceptionTranslator;
+
+	@Getter
+	private final long lingerMicros;
+
+	@Getter
+	private final int maxBatchSize;
+
+	@Getter
+	private final int maxInFlightBatches;
+
+	/**bounds the attempts of each batch, including resubmissions of unprocessed items**/
+	@Getter
+	private final RetryPolicy retryPolicy;
+
+	private final Semaphore inFlight;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final ExecutorService dispatcher;
+
+	/**guards pending, tails and shutDown**/
+	private final Object lock = new Object();
+
+	private Batch pending = new Batch();
+
+	/**true once shutdown was called. Entries enqueued later fail**/
+	private boolean shutDown;
+
+	/**completion of the last sealed batch holding each key, until that batch finishes**/
+	private final Map<Map<String, AttributeValue>, CompletableFuture<Void>> tails = new HashMap<>();
+
+
+	/**
+	 * Create instance.
+	 *
+	 * @param tableName the table to write to
+	 * @param keyNames names of the primary key attributes of the table
+	 * @param dynamoDB dynamodb client
+	 * @param exceptionTranslator translates client exceptions into the exceptions callers' futures fail with
+	 * @param lingerMicros how long the first item of a batch waits for other items to join it
+	 * @param maxBatchSize the number of items that causes a batch to be dispatched immediately, at most 25
+	 * @param maxInFlightBatches the maximum number of concurrent BatchWriteItem requests
+	 * @since #version#
+	 */
+	public WriteBatcher(String tableName, List<String> keyNames, AmazonDynamoDB dynamoDB,
+						Function<AmazonClientException, DataAccessException> exceptionTranslator,
+						long lingerMicros, int maxBatchSize, int maxInFlightBatches) {
+		this(tableName, keyNames, dynamoDB, exceptionTranslator, lingerMicros, maxBatchSize, maxInFlightBatches,
+				RetryPolicy.defaultBatchPolicy());
+	}
+
+	/**
+	 * Create instance.
+	 *
+	 * @param tableName the table to write to
+	 * @param keyNames names of the primary key attributes of the table
+	 * @param dynamoDB dynamodb client
+	 * @param exceptionTranslator translates client exceptions into the exceptions callers' futures fail with
+	 * @param lingerMicros how long the first item of a batch waits for other items to join it
+	 * @param maxBatchSize the number of items that causes a batch to be dispatched immediately, at most 25
+	 * @param maxInFlightBatches the maximum number of concurrent BatchWriteItem requests
+	 * @param retryPolicy retries throttled and failed requests and resubmits unprocessed items of each batch
+	 * @since #version#
+	 */
+	public WriteBatcher(String tableName, List<String> keyNames, AmazonDynamoDB dynamoDB,
+						Function<AmazonClientException, DataAccessException> exceptionTranslator,
+						long lingerMicros, int maxBatchSize, int maxInFlightBatches, RetryPolicy retryPolicy) {
+		Preconditions.checkNotNull(tableName, "tableName must not be null");
+		Preconditions.checkNotNull(dynamoDB, "dynamoDB must not be null");
+		Preconditions.checkNotNull(exceptionTranslator, "exceptionTranslator must not be null");
+		Preconditions.checkArgument(lingerMicros >= 0, "lingerMicros must not be negative");
+		Preconditions.checkArgument(maxBatchSize > 0 && maxBatchSize <= MAX_BATCH_WRITE_ITEMS,
+				"maxBatchSize must be between 1 and " + MAX_BATCH_WRITE_ITEMS);
+		Preconditions.checkArgument(maxInFlightBatches > 0, "maxInFlightBatches must be positive");
+		Preconditions.checkArgument(keyNames != null && false == keyNames.isEmpty(), "keyNames must not be empty");
+		Preconditions.checkNotNull(retryPolicy, "retryPolicy must not be null");
+		this.tableName = tableName;
+		this.keyNames = new ArrayList<>(keyNames);
+		this.dynamoDB = dynamoDB;
+		this.exceptionTranslator = exceptionTranslator;
+		this.lingerMicros = lingerMicros;
+		this.maxBatchSize = maxBatchSize;
+		this.maxInFlightBatches = maxInFlightBatches;
+		this.retryPolicy = retryPolicy;
+		this.inFlight = new Semaphore(maxInFlightBatches);
+		this.scheduler =
+				Executors.newSingleThreadScheduledExecutor(AutoBatcher.daemonThreadFactory(tableName + "-write-timer"));
+		this.dispatcher = Executors.newCachedThreadPool(AutoBatcher.daemonThreadFactory(tableName + "-write"));
+	}
+
+	/**
+	 * Enqueues an unconditional put.
+	 *
+	 * @param item the full item to put, including its primary key attributes
+	 * @return a future completed when the item was written, or exceptionally with a translated exception
+	 */
+	public CompletableFuture<Void> put(Map<String, AttributeValue> item) {
+		Preconditions.checkNotNull(item, "item must not be null");
+		final WriteRequest request = new WriteRequest().withPutRequest(new PutRequest().withItem(item));
+		final Map<String, AttributeValue> key = keyOf(request);
+		Preconditions.checkArgument(false == key.containsValue(null), "item must contain its keys " + keyNames);
+		return enqueue(key, request);
+	}
+
+	/**
+	 * Enqueues an unconditional delete. Deleting an item that does not exist succeeds.
+	 *
+	 * @param key the primary key attributes of the item
+	 * @return a future completed when the item was deleted, or exceptionally with a translated exception
+	 */
+	public CompletableFuture<Void> delete(Map<String, AttributeValue> key) {
+		Preconditions.checkNotNull(key, "key must not be null");
+		return enqueue(new HashMap<>(key), new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
+	}
+
+	private CompletableFuture<Void> enqueue(Map<String, AttributeValue> key, WriteRequest request) {
+		Preconditions.checkNotNull(key, "key must not be null");
+		final Entry entry = new Entry(key, request, new CompletableFuture<>());
+		final List<Batch> sealed = new ArrayList<>(2);
+		Batch started = null;
+		synchronized (lock) {
+			if (shutDown) {
+				entry.future.completeExceptionally(new IllegalStateException("batcher was shut down"));
+				return entry.future;
+			}
+			if (pending.keys.contains(key)) {
+				sealed.add(seal());
+			}
+			pending.add(entry);
+			if (pending.entries.size() >= maxBatchSize) {
+				sealed.add(seal());
+			} else if (pending.entries.size() == 1) {
+				started = pending;
+			}
+		}
+		sealed.forEach(this::dispatch);
+		if (started != null) {
+			final Batch batch = started;
+			try {
+				scheduler.schedule(() -> flushIfPending(batch), lingerMicros, TimeUnit.MICROSECONDS);
+			} catch (RejectedExecutionException e) {
+				//shut down after the entry was added, so the batch was already dispatched by shutdown
+				flushIfPending(batch);
+			}
+		}
+		return entry.future;
+	}
+
+	private void flushIfPending(Batch batch) {
+		synchronized (lock) {
+			if (pending != batch) {
+				//already dispatched because it filled up or a key repeated
+				return;
+			}
+			seal();
+		}
+		dispatch(batch);
+	}
+
+	/**
+	 * replaces the pending batch, making it the tail of its keys. Must be called holding the lock
+	 * @return the sealed batch, which waits for the previous tails of its keys
+	 */
+	private Batch seal() {
+		final Batch batch = pending;
+		pending = new Batch();
+		for (Map<String, AttributeValue> key : batch.keys) {
+			final CompletableFuture<Void> previous = tails.put(key, batch.done);
+			if (previous != null) {
+				batch.predecessors.add(previous);
+			}
+		}
+		return batch;
+	}
+
+	private void dispatch(Batch batch) {
+		if (batch.predecessors.isEmpty()) {
+			start(batch);
+		} else {
+			CompletableFuture.allOf(batch.predecessors.toArray(new CompletableFuture<?>[0]))
+					.whenComplete((ignored, e) -> start(batch));
+		}
+	}
+
+	private void start(Batch batch) {
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			batch.entries.forEach(entry -> entry.future.completeExceptionally(e));
+			finished(batch);
+			return;
+		}
+		try {
+			dispatcher.execute(() -> {
+				try {
+					write(batch);
+				} finally {
+					inFlight.release();
+					finished(batch);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlight.release();
+			batch.entries.forEach(entry -> entry.future.completeExceptionally(e));
+			finished(batch);
+		}
+	}
+
+	/**
+	 * releases the batches waiting for this one
+	 */
+	private void finished(Batch batch) {
+		synchronized (lock) {
+			batch.keys.forEach(key -> tails.remove(key, batch.done));
+		}
+		batch.done.complete(null);
+	}
+
+	private void write(Batch batch) {
+		final Map<Map<String, AttributeValue>, Entry> remaining = new HashMap<>();
+		batch.entries.forEach(entry -> remaining.put(entry.key, entry));
+		List<WriteRequest> requests = batch.requests();
+		final RetryPolicy.Backoff backoff = retryPolicy.start();
+		try {
+			do {
+				final BatchWriteItemRequest request = new BatchWriteItemRequest()
+						.withRequestItems(ImmutableMap.of(tableName, requests));
+				if (FlightRecorderEvents.isRecordingRoundTrips()) {
+					request.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+				}
+				final BatchWriteItemResult result = retryPolicy.execute(backoff,
+						() -> FlightRecorderEvents.roundTrip(tableName, null /*base table*/, "WriteBatcher.write",
+								() -> dynamoDB.batchWriteItem(request)));
+				final List<WriteRequest> unprocessed = result.getUnprocessedItems() == null
+						? null : result.getUnprocessedItems().get(tableName);
+				final Set<Map<String, AttributeValue>> unprocessedKeys = new HashSet<>();
+				requests = unprocessed == null ? new ArrayList<>() : unprocessed;
+				requests.forEach(request -> unprocessedKeys.add(keyOf(request)));
+				remaining.entrySet().removeIf(e -> {
+					if (unprocessedKeys.contains(e.getKey())) {
+						return false;
+					}
+					e.getValue().future.complete(null);
+					return true;
+				});
+			} while (false == requests.isEmpty() && backoff.retry());
+		} catch (AmazonClientException e) {
+			Throwable failure;
+			try {
+				failure = exceptionTranslator.apply(e);
+			} catch (RuntimeException | Error t) { //NOPMD - the futures must complete whatever the translator throws
+				failure = t;
+			}
+			fail(remaining, failure);
+			return;
+		} catch (RuntimeException | Error e) { //NOPMD - the futures must complete whatever the write throws
+			fail(remaining, e);
+			return;
+		}
+		if (false == remaining.isEmpty()) {
+			final QueryTimeoutException throttled = new QueryTimeoutException(String.format(Locale.ENGLISH,
+					"unable to batch write entity due to throttling. %d items unprocessed after %d attempts",
+					remaining.size(), backoff.getAttempts()));
+			remaining.values().forEach(entry -> entry.future.completeExceptionally(throttled));
+		}
+	}
+
+	private static void fail(Map<Map<String, AttributeValue>, Entry> remaining, Throwable failure) {
+		remaining.values().forEach(entry -> entry.future.completeExceptionally(failure));
+	}
+
+	private Map<String, AttributeValue> keyOf(WriteRequest request) {
+		if (request.getDeleteRequest() != null) {
+			return request.getDeleteRequest().getKey();
+		}
+		final Map<String, AttributeValue> item = request.getPutRequest().getItem();
+		final Map<String, AttributeValue> key = new HashMap<>();
+		keyNames.forEach(name -> key.put(name, item.get(name)));
+		return key;
+	}
+
+	/**
+	 * Dispatches the pending batch, then stops the threads of this batcher after every sealed batch, including those
+	 * still waiting for earlier batches of their keys, has finished. Entries enqueued afterwards fail with
+	 * {@link IllegalStateException}.
+	 */
+	public void shutdown() {
+		final Batch last;
+		final CompletableFuture<?>[] unfinished;
+		synchronized (lock) {
+			shutDown = true;
+			last = seal();
+			//the tail of each key waits for every earlier batch holding that key
+			unfinished = tails.values().toArray(new CompletableFuture<?>[0]);
+		}
+		if (false == last.entries.isEmpty()) {
+			dispatch(last);
+		}
+		scheduler.shutdownNow();
+		CompletableFuture.allOf(unfinished).whenComplete((ignored, e) -> dispatcher.shutdown());
+	}
+
+	@RequiredArgsConstructor
+	private static class Entry {
+
+		private final Map<String, AttributeValue> key;
+
+		private final WriteRequest request;
+
+		private final CompletableFuture<Void> future;
+	}
+
+	private static class Batch {
+
+		private final List<Entry> entries = new ArrayList<>();
+
+		private final Set<Map<String, AttributeValue>> keys = new HashSet<>();
+
+		/**batches holding one of the keys of this batch that must finish before it starts**/
+		private final List<CompletableFuture<Void>> predecessors = new ArrayList<>();
+
+		/**completed when this batch has finished, successfully or not**/
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		void add(Entry entry) {
+			entries.add(entry);
+			keys.add(entry.key);
+		}
+
+		List<WriteRequest> requests() {
+			final List<WriteRequest> requests = new ArrayList<>(entries.size());
+			entries.forEach(entry -> requests.add(entry.request));
+			return requests;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+import jp.classmethod.aws.model.Book;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Functional tests of attribute name aliases
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class AttributeAliasTest extends AbstractDynamoDbTest {
+
+	static class Chapter {
+		@AttributeAlias("t")
+		@JsonProperty("chapter_title")
+		private String title;
+
+		@JsonProperty("page_count")
+		private int pageCount;
+
+		public String getTitle() {
+			return title;
+		}
+
+		public int getPageCount() {
+			return pageCount;
+		}
+	}
+
+	@Test
+	public void testAliasedPropertyIsStoredUnderAlias() {
+		Book legacy = sut.create(new Book("legacy"));
+		sut.setAttributeAliases(ImmutableMap.of("name", "n"));
+		Book book = sut.create(new Book("The Great Gatsby"));
+
+		Map<String, AttributeValue> raw = sut.dynamoDB.getItem(sut.tableName(),
+				Collections.singletonMap(Book.BOOK_ID, new AttributeValue(book.getBookId()))).getItem();
+		assertThat(raw.get("n").getS(), is("The Great Gatsby"));
+		assertThat(raw.get("name"), is(nullValue()));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+		// the property of items written before the alias is not read
+		assertThat(sut.findOne(legacy.getBookId()).getName(), is(nullValue()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAliasOfKey() {
+		sut.setAttributeAliases(ImmutableMap.of(Book.BOOK_ID, "id"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSharedAlias() {
+		sut.setAttributeAliases(ImmutableMap.of("name", "n", "subtitle", "n"));
+	}
+
+	@Test
+	public void testAnnotatedAliases() {
+		assertThat(DynamoDbRepository.annotatedAliases(new DynamoDbObjectMapper(), Chapter.class),
+				is(Collections.singletonMap("chapter_title", "t")));
+		assertThat(sut.getAttributeAliases().isEmpty(), is(true));
+	}
+}
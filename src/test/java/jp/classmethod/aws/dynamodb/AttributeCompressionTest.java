@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests of the attribute compression codec
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class AttributeCompressionTest {
+
+	private static final byte[] JSON = ("{\"chapters\":[\"" + Strings.repeat("lorem ipsum ", 100) + "\"]}")
+			.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	public void testRoundTrip() {
+		for (AttributeCompression.Algorithm algorithm : AttributeCompression.Algorithm.values()) {
+			AttributeCompression compression = new AttributeCompression(algorithm, Collections.emptySet(), 0);
+			byte[] compressed = compression.compress(JSON);
+			assertThat(compressed.length < JSON.length, is(true));
+			assertThat(AttributeCompression.isCompressed(compressed), is(true));
+			assertThat(AttributeCompression.decompress(compressed), is(JSON));
+		}
+	}
+
+	@Test
+	public void testLegacyBinaryIsNotCompressed() {
+		assertThat(AttributeCompression.isCompressed(new byte[] {1, 2, 3, 4, 5}), is(false));
+		assertThat(AttributeCompression.isCompressed(new byte[] {0, 0x44, 0x5A}), is(false));
+		assertThat(AttributeCompression.isCompressed(null), is(false));
+	}
+
+	@Test
+	public void testSelection() {
+		AttributeCompression named = AttributeCompression.forAttributes("details");
+		assertThat(named.isSelected("details", 1), is(true));
+		assertThat(named.isSelected("name", 1_000), is(false));
+
+		AttributeCompression threshold = AttributeCompression.aboveThreshold(100);
+		assertThat(threshold.isSelected("name", 99), is(false));
+		assertThat(threshold.isSelected("name", 100), is(true));
+		assertThat(threshold.selects("name"), is(true));
+		assertThat(named.selects("name"), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCorruptValue() {
+		AttributeCompression.decompress(new byte[] {0, 0x44, 0x5A, 1, 2, 3});
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the completion of batched loads when loading fails
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class AutoBatcherTest {
+
+	@Test
+	public void testLoaderErrorCompletesFutures() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		AutoBatcher<String, String> sut = new AutoBatcher<>("test", keys -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new AssertionError("loader failed");
+			}
+			return Collections.singletonMap(keys.get(0), "value");
+		}, 0L, 1);
+		try {
+			CompletableFuture<String> failed = sut.load("key");
+			try {
+				failed.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (ExecutionException e) {
+				assertThat(e.getCause(), instanceOf(AssertionError.class));
+			}
+			//the failed key is no longer in flight, so it is loaded again
+			assertThat(sut.load("key").get(5, TimeUnit.SECONDS), is("value"));
+		} finally {
+			sut.shutdown();
+		}
+	}
+
+	@Test
+	public void testRejectedBatchCompletesFutures() {
+		AutoBatcher<String, String> sut = new AutoBatcher<>("test", keys -> Collections.emptyMap(), 1_000L, 1);
+		sut.shutdown();
+		try {
+			sut.load("key").join();
+			fail();
+		} catch (CompletionException e) {
+			assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+		}
+	}
+}
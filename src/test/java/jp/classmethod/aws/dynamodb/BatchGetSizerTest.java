@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests of the adaptive BatchGetItem sizing
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class BatchGetSizerTest {
+
+	private static List<Map<String, AttributeValue>> itemsOfSize(int bytes) {
+		return Collections.singletonList(ImmutableMap.of("v", new AttributeValue(Strings.repeat("x", bytes - 1))));
+	}
+
+	@Test
+	public void testSmallItemsUseServiceLimit() {
+		BatchGetSizer sizer = new BatchGetSizer();
+		assertThat(sizer.nextBatchSize(), is(BatchGetSizer.MAX_KEYS));
+		sizer.recordResponse(itemsOfSize(1000), 0 /*unprocessedKeys*/);
+		assertThat(sizer.nextBatchSize(), is(BatchGetSizer.MAX_KEYS));
+	}
+
+	@Test
+	public void testLargeItemsShrinkBatches() {
+		BatchGetSizer sizer = new BatchGetSizer();
+		sizer.recordResponse(itemsOfSize(400 * 1024), 0 /*unprocessedKeys*/);
+		assertThat(sizer.nextBatchSize(), is((int) (BatchGetSizer.TARGET_RESPONSE_BYTES / (400 * 1024))));
+	}
+
+	@Test
+	public void testUnprocessedKeysHalveAndRecover() {
+		BatchGetSizer sizer = new BatchGetSizer();
+		sizer.recordResponse(itemsOfSize(10), 10 /*unprocessedKeys*/);
+		assertThat(sizer.nextBatchSize(), is(BatchGetSizer.MAX_KEYS / 2));
+		sizer.recordResponse(itemsOfSize(10), 0 /*unprocessedKeys*/);
+		assertThat(sizer.nextBatchSize(), is(BatchGetSizer.MAX_KEYS / 2 + 1));
+	}
+}
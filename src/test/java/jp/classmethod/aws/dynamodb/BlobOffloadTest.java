@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Strings;
+import jp.classmethod.aws.model.Book;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Functional tests of the offload of large attributes to a blob store
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class BlobOffloadTest extends AbstractDynamoDbTest {
+	private static final String LONG_NAME = Strings.repeat("The Great Gatsby", 100);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public TemporaryFolder importFolder = new TemporaryFolder();
+
+	private FileSystemBlobStore blobStore;
+
+	@Before
+	public void setUpBlobStore() {
+		blobStore = new FileSystemBlobStore(folder.getRoot().toPath());
+		sut.setBlobOffload(new BlobOffload(blobStore, Collections.singleton("name"), 512L));
+	}
+
+	@Test
+	public void testSmallItemIsNotOffloaded() {
+		Book book = sut.create(new Book("short"));
+		assertThat(rawItem(book).get("name").getS(), is("short"));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+	}
+
+	@Test
+	public void testLargeAttributeIsOffloaded() {
+		Book book = sut.create(new Book(LONG_NAME));
+		Map<String, AttributeValue> raw = rawItem(book);
+		assertThat(raw.get("name").getS(), is(nullValue()));
+		assertThat(ItemSizeCalculator.sizeOf(raw) <= 512L, is(true));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+	}
+
+	@Test
+	public void testCompressedAttributeIsOffloaded() {
+		sut.setAttributeCompression(AttributeCompression.forAttributes("name"));
+		sut.setBlobOffload(new BlobOffload(blobStore, Collections.singleton("name"), 64L));
+		Book book = sut.create(new Book(LONG_NAME));
+		assertThat(BlobPointer.isPointer(rawItem(book).get("name").getB().array()), is(true));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+	}
+
+	@Test
+	public void testPointersOfUnselectedAttributesAreNotResolved() {
+		Book book = sut.create(new Book(LONG_NAME));
+		sut.setBlobOffload(new BlobOffload(blobStore, Collections.singleton("other"), 512L));
+		assertThat(sut.findOne(book.getBookId()).getName(), is(not(LONG_NAME)));
+		sut.setBlobOffload(null);
+		assertThat(sut.findOne(book.getBookId()).getName(), is(not(LONG_NAME)));
+	}
+
+	@Test(expected = DataIntegrityViolationException.class)
+	public void testTamperedBlob() {
+		Book book = sut.create(new Book(LONG_NAME));
+		blobStore.put(pointerOf(book).getBlobId(), "\"tampered\"".getBytes());
+		sut.findOne(book.getBookId());
+	}
+
+	@Test(expected = DataRetrievalFailureException.class)
+	public void testMissingBlob() {
+		Book book = sut.create(new Book(LONG_NAME));
+		blobStore.delete(pointerOf(book).getBlobId());
+		sut.findOne(book.getBookId());
+	}
+
+	@Test
+	public void testBlobsOfRejectedWritesAreDeleted() {
+		Book book = sut.create(new Book(LONG_NAME));
+		assertThat(folder.getRoot().list().length, is(1));
+		try {
+			sut.create(book);
+			fail();
+		} catch (DuplicateKeyException e) {
+			assertThat(folder.getRoot().list().length, is(1));
+		}
+		try {
+			sut.update(new Book(LONG_NAME));
+			fail();
+		} catch (IncorrectResultSizeDataAccessException e) {
+			assertThat(folder.getRoot().list().length, is(1));
+		}
+		assertThat(sut.findOne(book.getBookId()), is(book));
+	}
+
+	@Test
+	public void testCreateDoesNotReadBlobs() {
+		AtomicInteger reads = new AtomicInteger();
+		sut.setBlobOffload(new BlobOffload(new BlobStore() {
+			@Override
+			public void put(String blobId, byte[] content) {
+				blobStore.put(blobId, content);
+			}
+
+			@Override
+			public byte[] get(String blobId) {
+				reads.incrementAndGet();
+				return blobStore.get(blobId);
+			}
+
+			@Override
+			public void delete(String blobId) {
+				blobStore.delete(blobId);
+			}
+		}, Collections.singleton("name"), 512L));
+		Book book = sut.create(new Book(LONG_NAME));
+		assertThat(book.getName(), is(LONG_NAME));
+		assertThat(reads.get(), is(0));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+		assertThat(reads.get(), is(1));
+	}
+
+	@Test
+	public void testBlobsOfUnimportedItemsAreDeleted() throws Exception {
+		Path file = importFolder.newFile("books.ndjson").toPath();
+		Files.write(file, Arrays.asList(sut.convertDomainToJSON(new Book(LONG_NAME)), "not json"),
+				StandardCharsets.UTF_8);
+		try {
+			new TableImporter<>(sut, 1000.0).importFiles(Collections.singletonList(file));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertThat(folder.getRoot().list().length, is(0));
+		}
+	}
+
+	@Test
+	public void testFileSystemBlobStore() {
+		assertThat(blobStore.get("absent"), is(nullValue()));
+		blobStore.put("mst_book.1", new byte[] {1, 2, 3});
+		assertThat(blobStore.get("mst_book.1"), is(notNullValue()));
+		blobStore.delete("mst_book.1");
+		assertThat(blobStore.get("mst_book.1"), is(nullValue()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBlobIdOutsideDirectory() {
+		blobStore.get("../secret");
+	}
+
+	private BlobPointer pointerOf(Book book) {
+		return BlobPointer.decode(rawItem(book).get("name").getB().array());
+	}
+
+	private Map<String, AttributeValue> rawItem(Book book) {
+		return sut.dynamoDB.getItem(sut.tableName(),
+				Collections.singletonMap(Book.BOOK_ID, new AttributeValue(book.getBookId()))).getItem();
+	}
+}
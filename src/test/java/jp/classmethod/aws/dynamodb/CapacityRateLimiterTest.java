@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the capacity limiter that paces background scans and bulk writes
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class CapacityRateLimiterTest {
+
+	@Test
+	public void testThrottlingHalvesRateDownToFloor() {
+		CapacityRateLimiter limiter = new CapacityRateLimiter(100.0);
+		limiter.throttled(0.0, 0);
+		assertThat(limiter.getUnitsPerSecond(), is(50.0));
+		for (int attempt = 1; attempt < 10; attempt++) {
+			limiter.throttled(0.0, attempt);
+		}
+		assertThat(limiter.getUnitsPerSecond(), is(10.0));
+	}
+
+	@Test
+	public void testBackoffGrowsAndIsCapped() {
+		CapacityRateLimiter limiter = new CapacityRateLimiter(100.0);
+		long first = limiter.throttled(0.0, 0);
+		long second = limiter.throttled(0.0, 1);
+		assertTrue(second > first);
+		assertTrue(limiter.throttled(0.0, 60) <= 5_000L);
+	}
+
+	@Test
+	public void testRateRecoversToTarget() throws Exception {
+		CapacityRateLimiter limiter = new CapacityRateLimiter(100.0);
+		limiter.throttled(0.0, 0);
+		for (int i = 0; i < 20; i++) {
+			limiter.acquire(0.0);
+			limiter.consumed(0.0, 0.0);
+		}
+		assertThat(limiter.getUnitsPerSecond(), is(100.0));
+		assertThat(limiter.getTargetUnitsPerSecond(), is(100.0));
+	}
+
+	@Test
+	public void testDebtDelaysNextAcquire() throws Exception {
+		CapacityRateLimiter limiter = new CapacityRateLimiter(100.0);
+		limiter.acquire(0.0);
+		limiter.consumed(0.0, 120.0);
+		long start = System.nanoTime();
+		limiter.acquire(0.0);
+		assertTrue(System.nanoTime() - start >= 100_000_000L);
+	}
+
+	@Test
+	public void testUnreportedCapacityIsZero() {
+		assertThat(CapacityRateLimiter.unitsOf(null), is(0.0));
+		assertThat(CapacityRateLimiter.unitsOf(new ConsumedCapacity()), is(0.0));
+		assertThat(CapacityRateLimiter.unitsOf(new ConsumedCapacity().withCapacityUnits(2.5)), is(2.5));
+	}
+}
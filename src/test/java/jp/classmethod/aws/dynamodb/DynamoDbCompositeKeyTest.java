@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.local.shared.mapper.DynamoDBObjectMapper;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.Lists;
+import jp.classmethod.aws.infrastructure.ChapterDynamoDbRepository;
+import jp.classmethod.aws.model.Chapter;
+import jp.xet.sparwings.spring.data.chunk.Chunk;
+import jp.xet.sparwings.spring.data.chunk.ChunkRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Functional tests of a repository whose table has a hash and a range key
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class DynamoDbCompositeKeyTest {
+	@ClassRule
+	public static DynamoDbLocalRule dynamoDBLocalRule = new DynamoDbLocalRule();
+
+	private static final String BOOK_ID = "book";
+
+	ChapterDynamoDbRepository sut;
+
+	@Before
+	public void setup() throws Exception {
+		DynamoDBObjectMapper objectMapper = new DynamoDBObjectMapper();
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		sut = new ChapterDynamoDbRepository(new ProvisionedThroughput(1L, 1L), dynamoDBLocalRule.getAmazonDynamoDB(),
+				objectMapper);
+		sut.open();
+		for (int i = 1; i <= 5; i++) {
+			sut.create(new Chapter(BOOK_ID, i, "chapter " + i));
+		}
+		sut.create(new Chapter("other book", 1, "prologue"));
+	}
+
+	@After
+	public void cleanup() {
+		sut.deleteAll();
+	}
+
+	@Test
+	public void testFindOne() {
+		Chapter found = sut.findOne(CompositeKey.of(BOOK_ID, 3));
+		assertThat(found, is(notNullValue()));
+		assertThat(found.getTitle(), is("chapter 3"));
+		assertThat(sut.findOne(CompositeKey.of(BOOK_ID, 6)), is(nullValue()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindOneWrongRangeKeyType() {
+		sut.findOne(CompositeKey.of(BOOK_ID, "3"));
+	}
+
+	@Test
+	public void testBatchGet() {
+		List<Chapter> found = Lists.newArrayList(sut.findAll(
+				Lists.newArrayList(CompositeKey.of(BOOK_ID, 1), CompositeKey.of(BOOK_ID, 2),
+						CompositeKey.of("other book", 1))));
+		assertThat(found.size(), is(3));
+	}
+
+	@Test
+	public void testScanPagination() {
+		List<Chapter> all = new ArrayList<>();
+		String token = null;
+		do {
+			Chunk<Chapter> chunk = sut.findAll(new ChunkRequest(token, Sort.Direction.ASC, 2));
+			all.addAll(chunk.getContent());
+			token = chunk.getPaginationToken();
+		} while (token != null);
+		assertThat(all.size(), is(6));
+	}
+
+	@Test
+	public void testFindAllByHashKey() {
+		Chunk<Chapter> ascending = sut.findAllByHashKey(BOOK_ID, new ChunkRequest(Sort.Direction.ASC));
+		assertThat(ascending.getContent().size(), is(5));
+		assertThat(ascending.getContent().get(0).getChapterNumber(), is(1));
+		Chunk<Chapter> descending = sut.findAllByHashKey(BOOK_ID, new ChunkRequest(null, Sort.Direction.DESC, 2));
+		assertThat(descending.getContent().size(), is(2));
+		assertThat(descending.getContent().get(0).getChapterNumber(), is(5));
+		Chunk<Chapter> next = sut.findAllByHashKey(BOOK_ID,
+				new ChunkRequest(descending.getPaginationToken(), Sort.Direction.DESC, 2));
+		assertThat(next.getContent().get(0).getChapterNumber(), is(3));
+	}
+
+	@Test
+	public void testFindAllByHashKeyBetween() {
+		Chunk<Chapter> chunk = sut.findAllByHashKey(BOOK_ID, RangeCondition.between(2, 4),
+				new ChunkRequest(Sort.Direction.DESC));
+		assertThat(chunk.getContent().size(), is(3));
+		assertThat(chunk.getContent().get(0).getChapterNumber(), is(4));
+		assertThat(chunk.getContent().get(2).getChapterNumber(), is(2));
+	}
+
+	@Test
+	public void testFindAllByHashKeyComparison() {
+		Chunk<Chapter> chunk = sut.findAllByHashKey(BOOK_ID, RangeCondition.gt(3), new ChunkRequest(Sort.Direction.ASC));
+		assertThat(chunk.getContent().size(), is(2));
+		assertThat(chunk.getContent().get(0).getChapterNumber(), is(4));
+		assertThat(sut.findAllByHashKey(BOOK_ID, RangeCondition.eq(1), new ChunkRequest()).getContent().size(), is(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindAllByHashKeyBeginsWithNumber() {
+		sut.findAllByHashKey(BOOK_ID, RangeCondition.beginsWith(1), new ChunkRequest());
+	}
+
+	@Test
+	public void testFindAllByHashKeyFiltered() {
+		Chunk<Chapter> chunk = sut.findAllByHashKey(BOOK_ID, RangeCondition.le(4),
+				ExpressionSpecBuilder.S("title").eq("chapter 2"), new ChunkRequest());
+		assertThat(chunk.getContent().size(), is(1));
+		assertThat(chunk.getContent().get(0).getChapterNumber(), is(2));
+	}
+
+	@Test
+	public void testFindAllByGsi() {
+		Chunk<Chapter> all = sut.findAllByGsi(ChapterDynamoDbRepository.CHAPTER_NUMBER_INDEX, 1,
+				null /*no range condition*/, new ChunkRequest(Sort.Direction.ASC));
+		assertThat(all.getContent().size(), is(2));
+		assertThat(all.getContent().get(0).getBookId(), is(BOOK_ID));
+		Chunk<Chapter> prefixed = sut.findAllByGsi(ChapterDynamoDbRepository.CHAPTER_NUMBER_INDEX, 1,
+				RangeCondition.beginsWith("other"), new ChunkRequest());
+		assertThat(prefixed.getContent().size(), is(1));
+		assertThat(prefixed.getContent().get(0).getTitle(), is("prologue"));
+		Chunk<Chapter> between = sut.findAllByGsi(ChapterDynamoDbRepository.CHAPTER_NUMBER_INDEX, 3,
+				RangeCondition.between("a", "c"), new ChunkRequest());
+		assertThat(between.getContent().size(), is(1));
+		assertThat(between.getContent().get(0).getTitle(), is("chapter 3"));
+	}
+
+	@Test
+	public void testFindAllByGsiFiltered() {
+		Chunk<Chapter> chunk = sut.findAllByGsi(ChapterDynamoDbRepository.CHAPTER_NUMBER_INDEX, 1,
+				RangeCondition.ge("a"), ExpressionSpecBuilder.S("title").eq("chapter 1"), new ChunkRequest());
+		assertThat(chunk.getContent().size(), is(1));
+		assertThat(chunk.getContent().get(0).getBookId(), is(BOOK_ID));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindAllByGsiWrongRangeKeyType() {
+		sut.findAllByGsi(ChapterDynamoDbRepository.CHAPTER_NUMBER_INDEX, 1, RangeCondition.eq(1), new ChunkRequest());
+	}
+
+	@Test
+	public void testAggregate() {
+		NumericAggregate all = sut.aggregate(Chapter.CHAPTER_NUMBER, null /*no filter*/, 4);
+		assertThat(all.getCount(), is(6L));
+		assertThat(all.getSum(), is(new BigDecimal(16)));
+		assertThat(all.getMin(), is(BigDecimal.ONE));
+		assertThat(all.getMax(), is(new BigDecimal(5)));
+		NumericAggregate book = sut.aggregate(Chapter.CHAPTER_NUMBER,
+				ExpressionSpecBuilder.S(Chapter.BOOK_ID).eq(BOOK_ID), 2);
+		assertThat(book.getSum(), is(new BigDecimal(15)));
+		assertThat(book.getAverage().intValue(), is(3));
+		assertThat(sut.aggregate("title", null /*no filter*/, 1), is(NumericAggregate.EMPTY));
+	}
+
+	@Test
+	public void testStronglyConsistentScansAndQueries() {
+		assertThat(sut.count(null /*no filter*/, 2, ReadConsistency.STRONG), is(6L));
+		assertThat(sut.aggregate(Chapter.CHAPTER_NUMBER, null /*no filter*/, 2, ReadConsistency.STRONG).getSum(),
+				is(new BigDecimal(16)));
+		List<Chapter> scanned = Collections.synchronizedList(new ArrayList<>());
+		sut.parallelScan(2, null /*no filter*/, ReadConsistency.STRONG, scanned::add);
+		assertThat(scanned.size(), is(6));
+		Chunk<Chapter> chunk = sut.findAllByHashKey(BOOK_ID, RangeCondition.le(4), null /*no filter*/,
+				new ChunkRequest(), ReadConsistency.STRONG);
+		assertThat(chunk.getContent().size(), is(4));
+	}
+}
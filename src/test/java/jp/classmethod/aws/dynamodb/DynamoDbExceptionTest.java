@@ -47,8 +47,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -151,6 +155,26 @@ public class DynamoDbExceptionTest {
 		sut.findOne("a");
 	}
 
+	@Test
+	public void testFindOneThrottleOpensCircuit() {
+		when(dynamoDb.getItem(anyObject())).thenThrow(new ProvisionedThroughputExceededException("asdf"));
+		sut.enableCircuitBreakers(new CircuitBreakerPolicy(0.5, 2, 60_000L, 60_000L, 1));
+		for (int i = 0; i < 2; i++) {
+			try {
+				sut.findOne("a");
+				fail();
+			} catch (QueryTimeoutException e) {
+				assertFalse(e instanceof CircuitOpenException);
+			}
+		}
+		try {
+			sut.findOne("a");
+			fail();
+		} catch (CircuitOpenException e) {
+			verify(dynamoDb, times(2)).getItem(anyObject());
+		}
+	}
+
 	@Test(expected = InvalidDataAccessResourceUsageException.class)
 	public void testFindOneClientException() {
 		when(dynamoDb.getItem(anyObject())).thenThrow(new AmazonClientException("asdf"));
@@ -14,14 +14,19 @@
  */
 package jp.classmethod.aws.dynamodb;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder;
 import com.fasterxml.jackson.databind.node.TextNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
 import com.github.fge.jsonpatch.AddOperation;
 import com.github.fge.jsonpatch.JsonPatch;
+import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jp.classmethod.aws.infrastructure.BookDynamoDbRepository;
 import jp.classmethod.aws.model.Book;
 import jp.xet.sparwings.spring.data.chunk.Chunk;
@@ -29,17 +34,26 @@ import jp.xet.sparwings.spring.data.chunk.ChunkRequest;
 import org.junit.Test;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.dao.NonTransientDataAccessResourceException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
@@ -94,6 +108,31 @@ public class DynamoDbSpringInterfaceTest extends AbstractDynamoDbTest {
 		assertThat(found.getBookId(), is(book.getBookId()));
 	}
 
+	@Test
+	public void testReadableFindOneBatched() throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ids.add(sut.create(new Book(BOOK_NAME)).getBookId());
+		}
+		ids.add(ids.get(0)); // duplicate key
+		ids.add("not here");
+		sut.enableFindOneBatching(10_000L /*windowMicros*/, 100 /*maxBatchSize*/);
+		try {
+			ExecutorService executor = Executors.newFixedThreadPool(ids.size());
+			List<Future<Book>> futures = new ArrayList<>();
+			for (String id : ids) {
+				futures.add(executor.submit(() -> sut.findOne(id)));
+			}
+			for (int i = 0; i < ids.size() - 1; i++) {
+				assertThat(futures.get(i).get().getBookId(), is(ids.get(i)));
+			}
+			assertThat(futures.get(ids.size() - 1).get(), is(nullValue()));
+			executor.shutdown();
+		} finally {
+			sut.disableFindOneBatching();
+		}
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void testReadableGetIdNull() {
 		sut.getId(null);
@@ -145,6 +184,83 @@ public class DynamoDbSpringInterfaceTest extends AbstractDynamoDbTest {
 		assertThat(chunked, is(created));
 	}
 
+	@Test
+	public void testChunkableFindAllFiltered() {
+		sut.create(new Book(BOOK_NAME));
+		Book created = sut.create(new Book(SECOND_BOOK_NAME));
+		Chunk<Book> books = sut.findAll(new ChunkRequest(), ExpressionSpecBuilder.S("name").eq(SECOND_BOOK_NAME));
+		assertThat(Iterables.getOnlyElement(books.getContent()), is(created));
+	}
+
+	@Test
+	public void testParallelScanFiltered() {
+		for (int i = 0; i < 10; i++) {
+			sut.create(new Book(i % 2 == 0 ? BOOK_NAME : SECOND_BOOK_NAME));
+		}
+		List<Book> found = Collections.synchronizedList(new ArrayList<>());
+		sut.parallelScan(4, ExpressionSpecBuilder.S("name").beginsWith("The"), found::add);
+		assertThat(found.size(), is(5));
+		found.forEach(book -> assertThat(book.getName(), is(BOOK_NAME)));
+	}
+
+	@Test
+	public void testParallelScanOnSegmentExecutor() {
+		for (int i = 0; i < 10; i++) {
+			sut.create(new Book(BOOK_NAME));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		AtomicInteger segments = new AtomicInteger();
+		sut.setSegmentExecutor(task -> {
+			segments.incrementAndGet();
+			executor.execute(task);
+		});
+		try {
+			List<Book> found = Collections.synchronizedList(new ArrayList<>());
+			sut.parallelScan(5, null /*no filter*/, found::add);
+			assertThat(found.size(), is(10));
+			assertThat(sut.count(null /*no filter*/, 3), is(10L));
+			assertThat(segments.get(), is(8));
+		} finally {
+			sut.setSegmentExecutor(null);
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testParallelScanRethrowsSegmentFailure() {
+		sut.create(new Book(BOOK_NAME));
+		sut.parallelScan(4, null /*no filter*/, book -> {
+			throw new IllegalStateException("consumer failed");
+		});
+	}
+
+	@Test
+	public void testCount() {
+		assertThat(sut.count(), is(0L));
+		for (int i = 0; i < 10; i++) {
+			sut.create(new Book(i % 2 == 0 ? BOOK_NAME : SECOND_BOOK_NAME));
+		}
+		assertThat(sut.count(), is(10L));
+		assertThat(sut.count(ExpressionSpecBuilder.S("name").eq(BOOK_NAME), 3), is(5L));
+	}
+
+	@Test
+	public void testBackgroundScans() {
+		for (int i = 0; i < 10; i++) {
+			sut.create(new Book(BOOK_NAME));
+		}
+		sut.enableBackgroundScans(0.5);
+		try {
+			assertThat(sut.count(), is(10L));
+			assertThat(sut.findAll(new ChunkRequest()).getContent().size(), is(10));
+			List<Book> found = Collections.synchronizedList(new ArrayList<>());
+			sut.parallelScan(2, null /*no filter*/, found::add);
+			assertThat(found.size(), is(10));
+		} finally {
+			sut.disableBackgroundScans();
+		}
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void testBatchGettableFindAllNull() {
 		List<String> ids = null;
@@ -183,6 +299,57 @@ public class DynamoDbSpringInterfaceTest extends AbstractDynamoDbTest {
 		sut.findAll(ids);
 	}
 
+	@Test
+	public void testBatchGettableFindAllStronglyConsistent() {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			ids.add(sut.create(new Book(BOOK_NAME)).getBookId());
+		}
+		List<Book> bookList = Lists.newArrayList(sut.findAll(ids, ReadConsistency.STRONG));
+		assertThat(bookList.size(), is(3));
+		assertThat(sut.findOne(ids.get(0), ReadConsistency.STRONG).getBookId(), is(ids.get(0)));
+	}
+
+	@Test
+	public void testBatchReadCoordinator() {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			ids.add(sut.create(new Book(BOOK_NAME)).getBookId());
+		}
+		BatchReadCoordinator coordinator = new BatchReadCoordinator(dynamoDBLocalRule.getAmazonDynamoDB());
+		BatchReadCoordinator.Handle<Book> first = coordinator.add(sut, ids.subList(0, 110));
+		BatchReadCoordinator.Handle<Book> second = coordinator.add(sut, Lists.newArrayList(ids.get(119), "not here"),
+				ReadConsistency.STRONG);
+		coordinator.execute();
+		assertThat(first.get().size(), is(110));
+		assertThat(first.get().get(0).getBookId(), is(ids.get(0)));
+		assertThat(Iterables.getOnlyElement(second.get()).getBookId(), is(ids.get(119)));
+	}
+
+	@Test
+	public void testBatchReadCoordinatorIsSampledAndMeasured() {
+		Book book = sut.create(new Book(BOOK_NAME));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		sut.setMetrics(new MicrometerRepositoryMetrics(registry));
+		sut.enableHotKeyDetection(1.0 /*sampleRate*/, 1 /*topK*/, 60_000L /*windowMillis*/, null /*log*/);
+		sut.enableItemSizeHistograms();
+		try {
+			BatchReadCoordinator coordinator = new BatchReadCoordinator(dynamoDBLocalRule.getAmazonDynamoDB());
+			BatchReadCoordinator.Handle<Book> handle = coordinator.add(sut,
+					Lists.newArrayList(book.getBookId(), "not here"));
+			coordinator.execute();
+			assertThat(Iterables.getOnlyElement(handle.get()), is(book));
+			assertThat(sut.getHotKeyDetector().peek().getSampledAccesses(), is(2L));
+			assertThat(sut.getReadItemSizes().getCount(), is(1L));
+			assertThat(registry.find("dynamodb.repository.operation")
+					.tags("operation", "BatchReadCoordinator.execute", "outcome", RepositoryMetrics.SUCCESS)
+					.timer().count(), is(1L));
+		} finally {
+			sut.disableHotKeyDetection();
+			sut.setMetrics(RepositoryMetrics.NOOP);
+		}
+	}
+
 	@Test
 	public void testCreatableCreateNull() {
 		assertThat(sut.create(null), is(nullValue()));
@@ -495,6 +662,160 @@ public class DynamoDbSpringInterfaceTest extends AbstractDynamoDbTest {
 		assertThat(deleted.getVersion(), is(created.getVersion()));
 	}
 
+	@Test
+	public void testBatchedWrites() throws Exception {
+		sut.enableWriteBatching(10_000L /*lingerMicros*/, 25 /*maxBatchSize*/, 2 /*maxInFlightBatches*/);
+		try {
+			List<Book> books = new ArrayList<>();
+			List<CompletableFuture<Book>> puts = new ArrayList<>();
+			for (int i = 0; i < 30; i++) {
+				Book book = new Book(BOOK_NAME);
+				books.add(book);
+				puts.add(sut.updateBatched(book));
+			}
+			for (int i = 0; i < books.size(); i++) {
+				assertThat(puts.get(i).get(), is(books.get(i)));
+				assertThat(sut.exists(books.get(i).getBookId()), is(true));
+			}
+			sut.deleteBatched(books.get(0).getBookId()).get();
+			sut.deleteBatched("not here").get();
+			assertThat(sut.exists(books.get(0).getBookId()), is(false));
+		} finally {
+			sut.disableWriteBatching();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBatchedWritesNotEnabled() {
+		sut.updateBatched(new Book(BOOK_NAME));
+	}
+
+	@Test
+	public void testCreateOversizedItem() {
+		char[] title = new char[(int) ItemSizeCalculator.MAX_ITEM_BYTES];
+		Arrays.fill(title, 'a');
+		Book book = new Book(new String(title));
+		sut.enableItemSizeHistograms();
+		try {
+			sut.create(book);
+			fail();
+		} catch (InvalidDataAccessResourceUsageException e) {
+			assertThat(sut.findOne(book.getBookId()), is(nullValue()));
+		}
+		assertThat(sut.getWrittenItemSizes().getCount(), is(1L));
+	}
+
+	@Test
+	public void testItemSizeHistograms() {
+		Book book = sut.create(new Book(BOOK_NAME));
+		sut.findOne(book.getBookId());
+		assertThat(sut.getReadItemSizes().getCount(), is(0L));
+		assertThat(sut.getWrittenItemSizes().getCount(), is(0L));
+
+		sut.enableItemSizeHistograms();
+		sut.create(new Book(SECOND_BOOK_NAME));
+		sut.findOne(book.getBookId());
+		assertThat(sut.getReadItemSizes().getCount(), is(1L));
+		assertThat(sut.getWrittenItemSizes().getCount(), is(1L));
+
+		sut.disableItemSizeHistograms();
+		sut.findOne(book.getBookId());
+		assertThat(sut.getReadItemSizes().getCount(), is(1L));
+	}
+
+	@Test
+	public void testAttributeCompression() {
+		Book legacy = sut.create(new Book(BOOK_NAME));
+		sut.setAttributeCompression(AttributeCompression.aboveThreshold(64));
+		Book book = sut.create(new Book(Strings.repeat(BOOK_NAME, 20)));
+
+		Map<String, AttributeValue> raw = sut.dynamoDB.getItem(sut.tableName(),
+				Collections.singletonMap(Book.BOOK_ID, new AttributeValue(book.getBookId()))).getItem();
+		assertThat(raw.get("name").getB(), is(notNullValue()));
+		assertThat(raw.get(Book.BOOK_ID).getS(), is(book.getBookId()));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+		assertThat(sut.findOne(legacy.getBookId()), is(legacy));
+
+		sut.setAttributeCompression(new AttributeCompression(AttributeCompression.Algorithm.GZIP,
+				Collections.emptySet(), Integer.MAX_VALUE));
+		assertThat(sut.findOne(book.getBookId()), is(book));
+		assertThat(sut.create(new Book(Strings.repeat(SECOND_BOOK_NAME, 20))).getName(),
+				is(Strings.repeat(SECOND_BOOK_NAME, 20)));
+	}
+
+	@Test
+	public void testUnselectedAttributesAreNotDecompressed() {
+		sut.setAttributeCompression(AttributeCompression.forAttributes("name"));
+		Book book = sut.create(new Book(Strings.repeat(BOOK_NAME, 20)));
+		sut.setAttributeCompression(AttributeCompression.forAttributes("other"));
+		assertThat(sut.findOne(book.getBookId()).getName(), is(not(book.getName())));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAttributeCompressionOfKey() {
+		sut.setAttributeCompression(AttributeCompression.forAttributes(Book.BOOK_ID));
+	}
+
+	@Test
+	public void testHotKeyDetection() {
+		Book hot = sut.create(new Book(BOOK_NAME));
+		Book cold = sut.create(new Book(SECOND_BOOK_NAME));
+		sut.enableHotKeyDetection(1.0 /*sampleRate*/, 1 /*topK*/, 60_000L /*windowMillis*/, null /*log*/);
+		try {
+			for (int i = 0; i < 5; i++) {
+				sut.findOne(hot.getBookId());
+			}
+			sut.findOne(cold.getBookId());
+			HotKeySnapshot snapshot = sut.getHotKeyDetector().peek();
+			assertThat(snapshot.getSampledAccesses(), is(6L));
+			assertThat(snapshot.getHotKeys().get(0).getKey(), is(Book.BOOK_ID + "=" + hot.getBookId()));
+		} finally {
+			sut.disableHotKeyDetection();
+		}
+	}
+
+	@Test
+	public void testBatchedFindOneIsSampledAndRecordedOnce() {
+		Book book = sut.create(new Book(BOOK_NAME));
+		sut.enableHotKeyDetection(1.0 /*sampleRate*/, 1 /*topK*/, 60_000L /*windowMillis*/, null /*log*/);
+		sut.enableItemSizeHistograms();
+		sut.enableFindOneBatching(0L /*windowMicros*/, 100 /*maxBatchSize*/);
+		try {
+			assertThat(sut.findOne(book.getBookId()), is(book));
+			assertThat(sut.getHotKeyDetector().peek().getSampledAccesses(), is(1L));
+			assertThat(sut.getReadItemSizes().getCount(), is(1L));
+		} finally {
+			sut.disableFindOneBatching();
+			sut.disableHotKeyDetection();
+		}
+	}
+
+	@Test
+	public void testMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		sut.setMetrics(new MicrometerRepositoryMetrics(registry));
+		Book book = sut.create(new Book(BOOK_NAME));
+		sut.findOne(book.getBookId());
+		sut.findOne("not here");
+		try {
+			sut.create(book);
+			fail();
+		} catch (DuplicateKeyException e) {
+			// expected
+		}
+		Timer found = registry.find("dynamodb.repository.operation")
+				.tags("table", sut.tableName(), "index", MicrometerRepositoryMetrics.BASE_TABLE,
+						"operation", "findOne", "outcome", RepositoryMetrics.SUCCESS)
+				.timer();
+		assertThat(found.count(), is(2L));
+		assertThat(registry.find("dynamodb.repository.items").tags("operation", "findOne").summary().totalAmount(),
+				is(1.0));
+		assertThat(registry.find("dynamodb.repository.operation")
+				.tags("operation", "create", "outcome", "DuplicateKeyException").timer().count(), is(1L));
+		assertThat(registry.find("dynamodb.repository.payload").tags("operation", "create").summary().count(),
+				is(2L));
+	}
+
 	@Test(expected = NonTransientDataAccessResourceException.class)
 	public void testTruncateTableDoesntExist() {
 		dynamoDBLocalRule.getAmazonDynamoDB().deleteTable(BookDynamoDbRepository.TABLE_NAME);
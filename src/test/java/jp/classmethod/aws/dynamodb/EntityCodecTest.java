@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the entity codecs generated at compile time
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class EntityCodecTest extends AbstractDynamoDbTest {
+
+	/**
+	 * A repository of Magazine domain models
+	 */
+	static class MagazineDynamoDbRepository extends DynamoDbRepository<Magazine, String> {
+		static final String TABLE_NAME = "mst_magazine";
+
+		MagazineDynamoDbRepository(AmazonDynamoDB amazonDynamoDB, ObjectMapper objectMapper) {
+			super(null /*prefix*/, TABLE_NAME, amazonDynamoDB,
+					ImmutableMap.of(TABLE_NAME, new ProvisionedThroughput(1L, 1L)), objectMapper, Magazine.class,
+					Collections.singletonMap(Magazine.MAGAZINE_ID, ScalarAttributeType.S),
+					Collections.singletonList(Magazine.MAGAZINE_ID), null /*gsi list*/, Magazine.VERSION);
+		}
+
+		@Override
+		public String getId(Magazine magazine) {
+			return magazine.getMagazineId();
+		}
+	}
+
+	MagazineDynamoDbRepository magazines;
+
+	@Before
+	public void openMagazines() {
+		magazines = new MagazineDynamoDbRepository(dynamoDBLocalRule.getAmazonDynamoDB(), objectMapper());
+		magazines.open();
+	}
+
+	@After
+	public void deleteMagazines() {
+		magazines.deleteAll();
+	}
+
+	private static ObjectMapper objectMapper() {
+		ObjectMapper objectMapper = new DynamoDbObjectMapper();
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		return objectMapper;
+	}
+
+	@Test
+	public void testGeneratedCodecIsUsed() {
+		assertThat(magazines.getEntityCodec(), instanceOf(MagazineDynamoDbCodec.class));
+	}
+
+	@Test
+	public void testCodecIsNotUsedWithIncompatibleObjectMapper() {
+		ObjectMapper objectMapper = objectMapper().enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
+		MagazineDynamoDbRepository repository =
+				new MagazineDynamoDbRepository(dynamoDBLocalRule.getAmazonDynamoDB(), objectMapper);
+		assertThat(repository.getEntityCodec(), is(nullValue()));
+	}
+
+	@Test
+	public void testCodecWritesLikeJackson() throws JsonProcessingException {
+		Magazine magazine = new Magazine("Monthly Gardening");
+		Map<String, AttributeValue> encoded = new MagazineDynamoDbCodec().encode(magazine);
+		Map<String, AttributeValue> jackson = DynamoDbInternalUtils.toAttributeValues(
+				Item.fromJSON(objectMapper().writeValueAsString(magazine)));
+		assertThat(encoded, is(jackson));
+		assertThat(new MagazineDynamoDbCodec().decode(encoded), is(magazine));
+	}
+
+	@Test
+	public void testNullPropertiesAreNotWritten() {
+		Magazine magazine = new Magazine("Monthly Gardening");
+		magazine.setIssue(null);
+		magazine.setFrequency(null);
+		Map<String, AttributeValue> encoded = new MagazineDynamoDbCodec().encode(magazine);
+		assertThat(encoded.containsKey("issue"), is(false));
+		assertThat(encoded.containsKey("frequency"), is(false));
+		assertThat(new MagazineDynamoDbCodec().decode(encoded), is(magazine));
+	}
+
+	@Test
+	public void testItemsWrittenByJacksonAreRead() {
+		magazines.setEntityCodec(null);
+		Magazine magazine = magazines.create(new Magazine("Monthly Gardening"));
+		magazines.setEntityCodec(new MagazineDynamoDbCodec());
+		assertThat(magazines.findOne(magazine.getMagazineId()), is(magazine));
+	}
+
+	@Test
+	public void testItemsWrittenByCodecAreReadByJackson() {
+		Magazine magazine = magazines.create(new Magazine("Monthly Gardening"));
+		magazines.setEntityCodec(null);
+		assertThat(magazines.findOne(magazine.getMagazineId()), is(magazine));
+	}
+
+	@Test
+	public void testCodecCoercesLikeJackson() throws IOException {
+		Item item = new Item()
+				.withString(Magazine.MAGAZINE_ID, "magazine")
+				.withNumber("title", 2016)
+				.withString("issue", " 12 ")
+				.withString("price", "9.50")
+				.withNumber("frequency", 2)
+				.withString("in_print", "True")
+				.withString(Magazine.VERSION, "3");
+		Magazine magazine = new MagazineDynamoDbCodec().decode(DynamoDbInternalUtils.toAttributeValues(item));
+		assertThat(magazine, is(objectMapper().readValue(item.toJSON(), Magazine.class)));
+		assertThat(magazine.getTitle(), is("2016"));
+		assertThat(magazine.getFrequency(), is(Magazine.Frequency.QUARTERLY));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfRangeNumbersAreNotTruncated() {
+		Item item = new Item()
+				.withString(Magazine.MAGAZINE_ID, "magazine")
+				.withNumber("issue", 1L + Integer.MAX_VALUE);
+		new MagazineDynamoDbCodec().decode(DynamoDbInternalUtils.toAttributeValues(item));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnparseableBooleansAreNotRead() {
+		Item item = new Item()
+				.withString(Magazine.MAGAZINE_ID, "magazine")
+				.withString("in_print", "yes");
+		new MagazineDynamoDbCodec().decode(DynamoDbInternalUtils.toAttributeValues(item));
+	}
+
+	@Test
+	public void testBytesAndShortsAreRangeChecked() {
+		Map<String, AttributeValue> item = ImmutableMap.of(
+				"unsigned", new AttributeValue().withN("255"),
+				"byte", new AttributeValue().withN("256"),
+				"short", new AttributeValue().withN("-32769"),
+				"fraction", new AttributeValue().withN("-7.9"));
+		assertThat(EntityCodecs.getByte(item, "unsigned"), is((byte) -1));
+		assertThat(EntityCodecs.getShort(item, "fraction"), is((short) -7));
+		for (String name : Arrays.asList("byte", "short")) {
+			try {
+				EntityCodecs.getShort(item, name);
+				EntityCodecs.getByte(item, name);
+				fail(name);
+			} catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), containsString(name));
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import jp.classmethod.aws.model.Book;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the flight recorder events of repositories
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class FlightRecorderEventsTest extends AbstractDynamoDbTest {
+
+	@Test
+	public void testRoundTripAndSerializationEvents() throws Exception {
+		Path dump = Files.createTempFile("dynamodb", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("jp.classmethod.aws.dynamodb.RoundTrip");
+			recording.enable("jp.classmethod.aws.dynamodb.Serialization");
+			recording.start();
+			Book book = sut.create(new Book("The Great Gatsby"));
+			sut.findOne(book.getBookId());
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		Files.delete(dump);
+		List<RecordedEvent> roundTrips = events.stream()
+				.filter(e -> e.getEventType().getName().equals("jp.classmethod.aws.dynamodb.RoundTrip"))
+				.collect(Collectors.toList());
+		List<RecordedEvent> gets = roundTrips.stream()
+				.filter(e -> "findOne".equals(e.getString("operation")))
+				.collect(Collectors.toList());
+		assertThat(gets.size(), is(1));
+		assertThat(gets.get(0).getString("table"), is(sut.tableName()));
+		assertThat(gets.get(0).getLong("itemCount"), is(1L));
+		assertTrue(gets.get(0).getLong("bytes") > 0);
+		assertTrue(gets.get(0).getDouble("consumedCapacity") > 0);
+		assertTrue(roundTrips.stream()
+				.anyMatch(e -> "create".equals(e.getString("operation")) && e.getDouble("consumedCapacity") > 0));
+		assertTrue(events.stream()
+				.filter(e -> e.getEventType().getName().equals("jp.classmethod.aws.dynamodb.Serialization"))
+				.anyMatch(e -> "deserialize".equals(e.getString("step")) && e.getLong("bytes") > 0));
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.google.common.collect.ImmutableMap;
+import jp.classmethod.aws.infrastructure.BookDynamoDbRepository;
+import jp.classmethod.aws.model.Book;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of hedged reads
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class HedgerTest {
+	private static final long HEDGE_DELAY_MICROS = 50_000L;
+
+	AmazonDynamoDB dynamoDb;
+
+	BookDynamoDbRepository sut;
+
+	@Before
+	public void setup() {
+		dynamoDb = mock(AmazonDynamoDBClient.class);
+		DynamoDbObjectMapper objectMapper = new DynamoDbObjectMapper();
+		objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		sut = new BookDynamoDbRepository(new ProvisionedThroughput(1L, 1L), dynamoDb, objectMapper);
+		//hedge every read after exactly 50ms, from the first read on
+		sut.setHedgingPolicy(new HedgingPolicy(0.5, HEDGE_DELAY_MICROS, HEDGE_DELAY_MICROS, 1.0, 0L));
+	}
+
+	@After
+	public void tearDown() {
+		sut.setHedgingPolicy(null);
+	}
+
+	@Test
+	public void testHedgeFiresAfterDelayAndFirstResponseWins() {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicLong firstCallNanos = new AtomicLong();
+		AtomicLong hedgeCallNanos = new AtomicLong();
+		when(dynamoDb.getItem(any(GetItemRequest.class))).thenAnswer(invocation -> {
+			if (calls.incrementAndGet() == 1) {
+				firstCallNanos.set(System.nanoTime());
+				Thread.sleep(2_000L);
+				return result("slow");
+			}
+			hedgeCallNanos.set(System.nanoTime());
+			return result("fast");
+		});
+
+		long start = System.nanoTime();
+		Book book = sut.findOne("1");
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertThat(book.getName(), is("fast"));
+		assertTrue("the hedge answered before the slow read: " + elapsedMillis + "ms", elapsedMillis < 1_000L);
+		assertTrue("the hedge waited for the delay", hedgeCallNanos.get() - firstCallNanos.get()
+				>= TimeUnit.MICROSECONDS.toNanos(HEDGE_DELAY_MICROS));
+		verify(dynamoDb, times(2)).getItem(any(GetItemRequest.class));
+	}
+
+	@Test
+	public void testFastReadIsNotHedged() {
+		when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(result("fast"));
+		assertThat(sut.findOne("1").getName(), is("fast"));
+		verify(dynamoDb, times(1)).getItem(any(GetItemRequest.class));
+	}
+
+	private static GetItemResult result(String name) {
+		return new GetItemResult().withItem(ImmutableMap.of(Book.BOOK_ID, new AttributeValue("1"),
+				"name", new AttributeValue(name), Book.VERSION, new AttributeValue().withN("0")));
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the log-linear histogram
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class HistogramTest {
+
+	@Test
+	public void testEmpty() {
+		Histogram histogram = new Histogram();
+		assertThat(histogram.getCount(), is(0L));
+		assertThat(histogram.getValueAtQuantile(0.99), is(0L));
+	}
+
+	@Test
+	public void testBucketBoundsContainValue() {
+		for (long value : new long[] {0L, 1L, 7L, 8L, 15L, 16L, 1000L, 123_456_789L, Long.MAX_VALUE}) {
+			long upper = Histogram.upperBoundOf(Histogram.bucketOf(value));
+			assertTrue(value + " <= " + upper, value <= upper);
+			assertTrue(value + " within 12.5% of " + upper, upper - value <= value / 8);
+		}
+	}
+
+	@Test
+	public void testQuantiles() {
+		Histogram histogram = new Histogram();
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertThat(histogram.getCount(), is(1000L));
+		long median = histogram.getValueAtQuantile(0.5);
+		long p99 = histogram.getValueAtQuantile(0.99);
+		assertTrue("median was " + median, median >= 500 && median <= 500 + 500 / 8);
+		assertTrue("p99 was " + p99, p99 >= 990 && p99 <= 990 + 990 / 8);
+	}
+
+	@Test
+	public void testDecay() {
+		Histogram histogram = new Histogram(100L);
+		for (int i = 0; i < 100; i++) {
+			histogram.record(10L);
+		}
+		assertThat(histogram.getCount(), is(50L));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the count-min sketch and the hot key detector
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class HotKeyDetectorTest {
+
+	@Test
+	public void testSketchNeverUnderestimates() {
+		CountMinSketch sketch = new CountMinSketch(64, 4);
+		for (int i = 0; i < 1000; i++) {
+			sketch.add("key" + (i % 100));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertTrue(sketch.estimate("key" + i) >= 10);
+		}
+		assertThat(sketch.estimate("absent") <= 1000, is(true));
+	}
+
+	@Test
+	public void testFindsHeavyHitters() {
+		HotKeyDetector detector = new HotKeyDetector("tbl", 1.0, 2);
+		for (int round = 0; round < 100; round++) {
+			detector.record("id=hot");
+			if (round % 2 == 0) {
+				detector.record("id=warm");
+			}
+			for (int i = 0; i < 10; i++) {
+				detector.record("id=cold" + round + "-" + i);
+			}
+		}
+		HotKeySnapshot snapshot = detector.rotate();
+		assertThat(snapshot.getTableName(), is("tbl"));
+		assertThat(snapshot.getSampledAccesses(), is(1150L));
+		assertThat(snapshot.getHotKeys().size(), is(2));
+		assertThat(snapshot.getHotKeys().get(0).getKey(), is("id=hot"));
+		assertThat(snapshot.getHotKeys().get(1).getKey(), is("id=warm"));
+		assertTrue(snapshot.getHotKeys().get(0).getSampledAccesses() >= 100);
+		assertThat(detector.peek().getSampledAccesses(), is(0L));
+	}
+
+	@Test
+	public void testScalesBySampleRate() {
+		HotKeyDetector detector = new HotKeyDetector("tbl", 0.5, 1);
+		detector.record("id=hot");
+		detector.record("id=hot");
+		assertThat(detector.peek().getHotKeys().get(0).getEstimatedAccesses(), is(4L));
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests of the DynamoDB item size rules
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ItemSizeCalculatorTest {
+
+	@Test
+	public void testScalars() {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put("id", new AttributeValue().withS("café")); // 2 + 5
+		item.put("b", new AttributeValue().withB(ByteBuffer.wrap(new byte[10]))); // 1 + 10
+		item.put("ok", new AttributeValue().withBOOL(true)); // 2 + 1
+		item.put("n", new AttributeValue().withNULL(true)); // 1 + 1
+		assertThat(ItemSizeCalculator.sizeOf(item), is(23L));
+	}
+
+	@Test
+	public void testNumbers() {
+		assertThat(ItemSizeCalculator.sizeOfNumber("0"), is(2L));
+		assertThat(ItemSizeCalculator.sizeOfNumber("7"), is(2L));
+		assertThat(ItemSizeCalculator.sizeOfNumber("12"), is(2L));
+		assertThat(ItemSizeCalculator.sizeOfNumber("123"), is(3L));
+		assertThat(ItemSizeCalculator.sizeOfNumber("1000000"), is(2L));
+		assertThat(ItemSizeCalculator.sizeOfNumber("-0.00123"), is(3L));
+	}
+
+	@Test
+	public void testDocumentsAndSets() {
+		AttributeValue list = new AttributeValue()
+				.withL(new AttributeValue().withS("ab"), new AttributeValue().withN("1"));
+		assertThat(ItemSizeCalculator.sizeOf(list), is(3L + 1 + 2 + 1 + 2));
+		AttributeValue map = new AttributeValue()
+				.withM(Collections.singletonMap("key", new AttributeValue().withS("v")));
+		assertThat(ItemSizeCalculator.sizeOf(map), is(3L + 1 + 3 + 1));
+		AttributeValue set = new AttributeValue().withSS(Arrays.asList("a", "bc"));
+		assertThat(ItemSizeCalculator.sizeOf(set), is(3L));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A Magazine domain model class to use for testing the generated entity codecs
+ *
+ * <p>The accessors are written out rather than generated by Lombok, so that the codec processor sees them whether or
+ * not Lombok runs before it.</p>
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@ToString
+@EqualsAndHashCode
+@DynamoDbEntity
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Magazine {
+	public static final String MAGAZINE_ID = "magazine_id";
+	public static final String VERSION = "version";
+
+	/**
+	 * how often a magazine is published
+	 */
+	public enum Frequency {
+		WEEKLY, MONTHLY, QUARTERLY
+	}
+
+	@JsonProperty(MAGAZINE_ID)
+	private String magazineId;
+
+	@JsonProperty("title")
+	private String title;
+
+	@JsonProperty("issue")
+	private Integer issue;
+
+	@JsonProperty("price")
+	private BigDecimal price;
+
+	@JsonProperty("frequency")
+	private Frequency frequency;
+
+	@JsonProperty("in_print")
+	private boolean inPrint;
+
+	@JsonProperty(VERSION)
+	private Long version;
+
+	public Magazine() {
+	}
+
+	public Magazine(String title) {
+		this.magazineId = UuidGenerator.generateModelId().toString();
+		this.title = title;
+		this.issue = 1;
+		this.price = new BigDecimal("12.5");
+		this.frequency = Frequency.MONTHLY;
+		this.inPrint = true;
+		this.version = 0L;
+	}
+
+	public String getMagazineId() {
+		return magazineId;
+	}
+
+	public void setMagazineId(String magazineId) {
+		this.magazineId = magazineId;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+
+	public Integer getIssue() {
+		return issue;
+	}
+
+	public void setIssue(Integer issue) {
+		this.issue = issue;
+	}
+
+	public BigDecimal getPrice() {
+		return price;
+	}
+
+	public void setPrice(BigDecimal price) {
+		this.price = price;
+	}
+
+	public Frequency getFrequency() {
+		return frequency;
+	}
+
+	public void setFrequency(Frequency frequency) {
+		this.frequency = frequency;
+	}
+
+	public boolean isInPrint() {
+		return inPrint;
+	}
+
+	public void setInPrint(boolean inPrint) {
+		this.inPrint = inPrint;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the jittered exponential backoff retry policy
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class RetryPolicyTest {
+
+	@Test
+	public void testRetryable() {
+		assertTrue(RetryPolicy.isRetryable(new ProvisionedThroughputExceededException("throttled")));
+		AmazonServiceException throttling = new AmazonServiceException("throttled");
+		throttling.setErrorCode("ThrottlingException");
+		throttling.setErrorType(AmazonServiceException.ErrorType.Client);
+		throttling.setStatusCode(400);
+		assertTrue(RetryPolicy.isRetryable(throttling));
+		AmazonServiceException internal = new AmazonServiceException("internal");
+		internal.setErrorType(AmazonServiceException.ErrorType.Service);
+		internal.setStatusCode(500);
+		assertTrue(RetryPolicy.isRetryable(internal));
+		AmazonServiceException validation = new AmazonServiceException("invalid");
+		validation.setErrorCode("ValidationException");
+		validation.setErrorType(AmazonServiceException.ErrorType.Client);
+		validation.setStatusCode(400);
+		assertFalse(RetryPolicy.isRetryable(validation));
+		assertFalse(RetryPolicy.isRetryable(new AmazonClientException("no connection")));
+	}
+
+	@Test
+	public void testDelayIsJitteredAndCapped() {
+		RetryPolicy policy = new RetryPolicy(10, 10L, 100L, 0L);
+		for (int retry = 0; retry < 40; retry++) {
+			long delay = policy.delayMillis(retry);
+			assertTrue("delay was " + delay, delay >= 0 && delay <= Math.min(100L, 10L << Math.min(retry, 30)));
+		}
+	}
+
+	@Test
+	public void testRetriesThrottlingUntilSuccess() {
+		AtomicInteger calls = new AtomicInteger();
+		String result = new RetryPolicy(5, 1L, 2L, 0L).execute(() -> {
+			if (calls.incrementAndGet() < 3) {
+				throw new ProvisionedThroughputExceededException("throttled");
+			}
+			return "ok";
+		});
+		assertThat(result, is("ok"));
+		assertThat(calls.get(), is(3));
+	}
+
+	@Test
+	public void testStopsAfterMaxAttempts() {
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			new RetryPolicy(3, 1L, 2L, 0L).execute(() -> {
+				calls.incrementAndGet();
+				throw new ProvisionedThroughputExceededException("throttled");
+			});
+			fail();
+		} catch (ProvisionedThroughputExceededException e) {
+			assertThat(calls.get(), is(3));
+		}
+	}
+
+	@Test
+	public void testDoesNotRetryClientErrors() {
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			new RetryPolicy(3, 1L, 2L, 0L).execute(() -> {
+				calls.incrementAndGet();
+				throw new AmazonClientException("no connection");
+			});
+			fail();
+		} catch (AmazonClientException e) {
+			assertThat(calls.get(), is(1));
+		}
+	}
+
+	@Test
+	public void testDeadline() {
+		RetryPolicy.Backoff backoff = new RetryPolicy(1000, 50L, 50L, 120L).start();
+		int retries = 0;
+		while (backoff.retry()) {
+			retries++;
+		}
+		assertTrue("retries were " + retries, retries < 1000);
+		assertThat(backoff.getAttempts(), is(retries + 1));
+	}
+
+	@Test
+	public void testNone() {
+		assertFalse(RetryPolicy.none().start().retry());
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder;
+import jp.classmethod.aws.model.Book;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Functional tests of checkpointed scan jobs
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ScanJobTest extends AbstractDynamoDbTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testProvisionedReadCapacity() {
+		assertThat(sut.provisionedReadCapacity(), is(1L));
+	}
+
+	@Test
+	public void testRunResumeAndReset() {
+		for (int i = 0; i < 12; i++) {
+			sut.create(new Book(i % 3 == 0 ? "match" : "other"));
+		}
+		ScanJob<Book> job = new ScanJob<>(sut, "books", 3, new FileCheckpointStore(folder.getRoot().toPath()),
+				1.0, 0L);
+		job.setFilter(ExpressionSpecBuilder.S("name").eq("match"));
+		List<Book> found = Collections.synchronizedList(new ArrayList<>());
+		ScanProgress progress = job.run(found::add);
+		assertThat(found.size(), is(4));
+		assertThat(progress.getItemsRead(), is(4L));
+		assertThat(progress.getSegmentsCompleted(), is(3));
+
+		//all segments completed, so nothing is read again
+		assertThat(job.run(found::add).getItemsRead(), is(0L));
+		assertThat(found.size(), is(4));
+
+		job.reset();
+		assertThat(job.run(found::add).getItemsRead(), is(4L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReadCapacityFractionOutOfRange() {
+		new ScanJob<>(sut, "books", 1, new FileCheckpointStore(folder.getRoot().toPath()), 1.5, 0L);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.local.shared.mapper.DynamoDBObjectMapper;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import jp.classmethod.aws.infrastructure.ChapterDynamoDbRepository;
+import jp.classmethod.aws.model.Book;
+import jp.classmethod.aws.model.Chapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Functional tests of the table copy pipeline and its file checkpoints
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class TableCopierTest extends AbstractDynamoDbTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	ChapterDynamoDbRepository chapters;
+
+	@Before
+	public void setupTarget() {
+		chapters = new ChapterDynamoDbRepository(new ProvisionedThroughput(1L, 1L),
+				dynamoDBLocalRule.getAmazonDynamoDB(), new DynamoDBObjectMapper());
+		chapters.open();
+	}
+
+	@After
+	public void cleanupTarget() {
+		chapters.deleteAll();
+	}
+
+	@Test
+	public void testCopyAndResume() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			sut.create(new Book(i % 4 == 0 ? "skip" : "book " + i));
+		}
+		FileCheckpointStore store = new FileCheckpointStore(folder.getRoot().toPath());
+		TableCopier<Book, Chapter> copier = new TableCopier<>(sut, chapters,
+				book -> "skip".equals(book.getName()) ? null : new Chapter(book.getBookId(), 1, book.getName()),
+				store, 1000.0, 1000.0);
+		CopyProgress progress = copier.copy("books-to-chapters", 2);
+		assertThat(progress.getItemsRead(), is(20L));
+		assertThat(progress.getItemsWritten(), is(15L));
+		assertThat(progress.getItemsSkipped(), is(5L));
+		assertThat(progress.getSegmentsCompleted(), is(2));
+		assertThat(chapters.count(), is(15L));
+		assertThat(store.load("books-to-chapters", 0).isComplete(), is(true));
+
+		//every segment is complete, so running the job again reads nothing
+		assertThat(copier.copy("books-to-chapters", 2).getItemsRead(), is(0L));
+
+		store.clear("books-to-chapters");
+		assertThat(store.load("books-to-chapters", 1), is(nullValue()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testResumeWithOtherSegments() {
+		FileCheckpointStore store = new FileCheckpointStore(folder.getRoot().toPath());
+		store.save("job", SegmentCheckpoint.start(0, 4));
+		new TableCopier<Book, Chapter>(sut, chapters, book -> null, store, 1000.0, 1000.0).copy("job", 2);
+	}
+}
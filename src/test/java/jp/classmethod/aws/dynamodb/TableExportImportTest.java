@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.google.common.collect.Lists;
+import jp.classmethod.aws.model.Book;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Functional tests of the NDJSON export and import
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class TableExportImportTest extends AbstractDynamoDbTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		roundTrip(false);
+	}
+
+	@Test
+	public void testRoundTripGzip() throws Exception {
+		roundTrip(true);
+	}
+
+	private void roundTrip(boolean gzip) throws Exception {
+		List<Book> books = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			books.add(sut.create(new Book("book " + i)));
+		}
+		TableExporter<Book> exporter = new TableExporter<>(sut, gzip);
+		List<Path> files = exporter.export(folder.getRoot().toPath(), "books", 3, null /*no filter*/);
+		assertThat(files.size(), is(3));
+		assertThat(exporter.getExportedCount(), is(30L));
+
+		sut.deleteAll();
+		assertThat(sut.count(), is(0L));
+
+		TableImporter<Book> importer = new TableImporter<>(sut, 1000.0);
+		assertThat(importer.importFiles(files), is(30L));
+		List<Book> found = Lists.newArrayList(sut.findAll(Lists.transform(books, Book::getBookId)));
+		assertThat(found.size(), is(30));
+		for (Book book : books) {
+			assertThat(sut.findOne(book.getBookId()), is(book));
+		}
+	}
+}
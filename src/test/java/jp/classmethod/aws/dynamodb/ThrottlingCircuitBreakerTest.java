@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the throttling circuit breaker
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ThrottlingCircuitBreakerTest {
+
+	AtomicLong clock;
+
+	ThrottlingCircuitBreaker sut;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		sut = new ThrottlingCircuitBreaker("tbl", new CircuitBreakerPolicy(0.5, 4, 1_000L, 500L, 2), clock::get);
+	}
+
+	private void advanceMillis(long millis) {
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	private void throttled(ThrottlingCircuitBreaker.Priority priority) {
+		try {
+			sut.call(priority, () -> {
+				throw new ProvisionedThroughputExceededException("throttled");
+			});
+			fail();
+		} catch (ProvisionedThroughputExceededException e) {
+			// expected
+		}
+	}
+
+	private void succeeded(ThrottlingCircuitBreaker.Priority priority) {
+		assertThat(sut.call(priority, () -> "ok"), is("ok"));
+	}
+
+	private void rejected(ThrottlingCircuitBreaker.Priority priority) {
+		try {
+			sut.call(priority, () -> "ok");
+			fail();
+		} catch (CircuitOpenException e) {
+			// expected
+		}
+	}
+
+	private void trip() {
+		succeeded(ThrottlingCircuitBreaker.Priority.NORMAL);
+		succeeded(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.OPEN));
+	}
+
+	@Test
+	public void testStaysClosedBelowMinimumRequests() {
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.CLOSED));
+	}
+
+	@Test
+	public void testWindowExpires() {
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		advanceMillis(1_000L);
+		succeeded(ThrottlingCircuitBreaker.Priority.NORMAL);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.CLOSED));
+	}
+
+	@Test
+	public void testOpenFailsFast() {
+		trip();
+		rejected(ThrottlingCircuitBreaker.Priority.NORMAL);
+		rejected(ThrottlingCircuitBreaker.Priority.LOW);
+	}
+
+	@Test
+	public void testHalfOpenClosesAfterSuccessfulTrials() {
+		trip();
+		advanceMillis(500L);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.HALF_OPEN));
+		rejected(ThrottlingCircuitBreaker.Priority.LOW);
+		succeeded(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.HALF_OPEN));
+		succeeded(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.CLOSED));
+		succeeded(ThrottlingCircuitBreaker.Priority.LOW);
+	}
+
+	@Test
+	public void testThrottledTrialReopens() {
+		trip();
+		advanceMillis(500L);
+		throttled(ThrottlingCircuitBreaker.Priority.NORMAL);
+		assertThat(sut.getState(), is(ThrottlingCircuitBreaker.State.OPEN));
+		rejected(ThrottlingCircuitBreaker.Priority.NORMAL);
+	}
+}
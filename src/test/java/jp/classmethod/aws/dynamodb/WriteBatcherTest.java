@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.dynamodb;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of the ordering of batched writes
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class WriteBatcherTest {
+	private static final String TABLE = "mst_book";
+	private static final String KEY = "book_id";
+
+	@Test
+	public void testLaterPutWinsWhenEarlierPutIsThrottled() {
+		AmazonDynamoDB dynamoDB = mock(AmazonDynamoDB.class);
+		Map<AttributeValue, String> table = new ConcurrentHashMap<>();
+		AtomicBoolean throttled = new AtomicBoolean();
+		when(dynamoDB.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(invocation -> {
+			BatchWriteItemRequest request = (BatchWriteItemRequest) invocation.getArguments()[0];
+			List<WriteRequest> requests = request.getRequestItems().get(TABLE);
+			Map<String, AttributeValue> item = requests.get(0).getPutRequest().getItem();
+			if ("v1".equals(item.get("name").getS()) && throttled.compareAndSet(false, true)) {
+				//the first attempt of v1 is left unprocessed, as under throttling
+				return new BatchWriteItemResult().withUnprocessedItems(ImmutableMap.of(TABLE, requests));
+			}
+			requests.forEach(r -> table.put(r.getPutRequest().getItem().get(KEY),
+					r.getPutRequest().getItem().get("name").getS()));
+			return new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap());
+		});
+		WriteBatcher sut = new WriteBatcher(TABLE, Collections.singletonList(KEY), dynamoDB,
+				e -> new DataAccessResourceFailureException("failed", e), 0L /*lingerMicros*/,
+				WriteBatcher.MAX_BATCH_WRITE_ITEMS, 4 /*maxInFlightBatches*/, new RetryPolicy(8, 20L, 50L, 10_000L));
+		try {
+			CompletableFuture<Void> v1 = sut.put(item("v1"));
+			CompletableFuture<Void> v2 = sut.put(item("v2"));
+			CompletableFuture.allOf(v1, v2).join();
+			assertThat(throttled.get(), is(true));
+			assertThat(table.get(new AttributeValue("1")), is("v2"));
+		} finally {
+			sut.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnexpectedFailureCompletesFutures() {
+		AmazonDynamoDB dynamoDB = mock(AmazonDynamoDB.class);
+		when(dynamoDB.batchWriteItem(any(BatchWriteItemRequest.class))).thenThrow(new IllegalStateException("boom"));
+		WriteBatcher sut = newWriteBatcher(dynamoDB);
+		try {
+			CompletableFuture<Void> future = sut.put(item("v1"));
+			try {
+				future.join();
+				fail();
+			} catch (CompletionException e) {
+				assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+			}
+		} finally {
+			sut.shutdown();
+		}
+	}
+
+	@Test
+	public void testShutdownWritesBatchesWaitingForPredecessors() throws InterruptedException {
+		AmazonDynamoDB dynamoDB = mock(AmazonDynamoDB.class);
+		Map<AttributeValue, String> table = new ConcurrentHashMap<>();
+		CountDownLatch release = new CountDownLatch(1);
+		when(dynamoDB.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(invocation -> {
+			release.await();
+			BatchWriteItemRequest request = (BatchWriteItemRequest) invocation.getArguments()[0];
+			request.getRequestItems().get(TABLE).forEach(r -> table.put(r.getPutRequest().getItem().get(KEY),
+					r.getPutRequest().getItem().get("name").getS()));
+			return new BatchWriteItemResult().withUnprocessedItems(Collections.emptyMap());
+		});
+		WriteBatcher sut = newWriteBatcher(dynamoDB);
+		CompletableFuture<Void> v1 = sut.put(item("v1"));
+		//the repeated key seals v1, so v2 waits for it
+		CompletableFuture<Void> v2 = sut.put(item("v2"));
+		sut.shutdown();
+		release.countDown();
+		CompletableFuture.allOf(v1, v2).join();
+		assertThat(table.get(new AttributeValue("1")), is("v2"));
+	}
+
+	@Test
+	public void testPutAfterShutdownFails() {
+		WriteBatcher sut = newWriteBatcher(mock(AmazonDynamoDB.class));
+		sut.shutdown();
+		CompletableFuture<Void> future = sut.put(item("v1"));
+		assertThat(future.isCompletedExceptionally(), is(true));
+	}
+
+	private static WriteBatcher newWriteBatcher(AmazonDynamoDB dynamoDB) {
+		return new WriteBatcher(TABLE, Collections.singletonList(KEY), dynamoDB,
+				e -> new DataAccessResourceFailureException("failed", e), 1_000_000L /*lingerMicros*/,
+				WriteBatcher.MAX_BATCH_WRITE_ITEMS, 4 /*maxInFlightBatches*/, new RetryPolicy(1, 20L, 50L, 10_000L));
+	}
+
+	private static Map<String, AttributeValue> item(String name) {
+		return ImmutableMap.of(KEY, new AttributeValue("1"), "name", new AttributeValue(name));
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.infrastructure;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import jp.classmethod.aws.dynamodb.CompositeKey;
+import jp.classmethod.aws.dynamodb.DynamoDbRepository;
+import jp.classmethod.aws.model.Chapter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A repository of Chapter domain models to use for testing tables with a hash and a range key
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+public class ChapterDynamoDbRepository extends DynamoDbRepository<Chapter, CompositeKey> {
+	/** chapter table suffix */
+	public static final String TABLE_NAME = "mst_chapter";
+
+	/** index of the chapters by chapter number, ordered by book */
+	public static final String CHAPTER_NUMBER_INDEX = "chapter_number_index";
+
+	private static final Map<String, ScalarAttributeType> ATTRIBUTE_TYPE_MAP = new HashMap<>();
+	static {
+		ATTRIBUTE_TYPE_MAP.put(Chapter.BOOK_ID, ScalarAttributeType.S);
+		ATTRIBUTE_TYPE_MAP.put(Chapter.CHAPTER_NUMBER, ScalarAttributeType.N);
+	}
+
+	/**
+	 * Create instance.
+	 *
+	 * @param amazonDynamoDB the dynamodb client
+	 * @param objectMapper the object mapper to use
+	 * @since #version#
+	 */
+	public ChapterDynamoDbRepository(ProvisionedThroughput throughput, AmazonDynamoDB amazonDynamoDB,
+									 ObjectMapper objectMapper) {
+		super(null /*prefix*/, TABLE_NAME, amazonDynamoDB,
+				ImmutableMap.of(TABLE_NAME, throughput, CHAPTER_NUMBER_INDEX, throughput),
+				objectMapper, Chapter.class, ATTRIBUTE_TYPE_MAP, Arrays.asList(Chapter.BOOK_ID, Chapter.CHAPTER_NUMBER),
+				ImmutableMap.of(CHAPTER_NUMBER_INDEX, createGlobalSecondaryIndex(CHAPTER_NUMBER_INDEX,
+						Chapter.CHAPTER_NUMBER, Chapter.BOOK_ID, null /*project all attributes*/)),
+				Chapter.VERSION);
+	}
+
+	@Override
+	public CompositeKey getId(Chapter chapter) {
+		return CompositeKey.of(chapter.getBookId(), chapter.getChapterNumber());
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Classmethod, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package jp.classmethod.aws.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * A Chapter domain model class, keyed by book and chapter number, to use for testing composite keys
+ *
+ * @author Alexander Patrikalakis
+ * @since #version#
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Chapter {
+	public static final String BOOK_ID = "book_id";
+	public static final String CHAPTER_NUMBER = "chapter_number";
+	public static final String VERSION = "version";
+
+	@JsonProperty(BOOK_ID)
+	private String bookId;
+
+	@JsonProperty(CHAPTER_NUMBER)
+	private Integer chapterNumber;
+
+	@Setter
+	@JsonProperty("title")
+	private String title;
+
+	@Setter(AccessLevel.PACKAGE)
+	@JsonProperty(VERSION)
+	private Long version;
+
+	public Chapter(String bookId, int chapterNumber, String title) {
+		this.bookId = bookId;
+		this.chapterNumber = chapterNumber;
+		this.title = title;
+		this.version = 0L;
+	}
+}